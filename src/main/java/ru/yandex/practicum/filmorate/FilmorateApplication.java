@@ -6,7 +6,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 @SpringBootApplication
 public class FilmorateApplication {
 	public static void main(String[] args) {
-		SpringApplication.run(FilmorateApplication.class);
+		SpringApplication.run(FilmorateApplication.class, args);
 	}
 
 }
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.bulk;
+
+import org.springframework.http.MediaType;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.storage.EntityCodec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Двоичный формат: кадры [id: 8 байт][длина: 4 байта][запись], числа big-endian.
+ * Запись — упакованное представление компактной раскладки хранилища, поэтому при
+ * {@code filmorate.storage.layout=compact} выгрузка отдаёт хранимые байты без распаковки.
+ * При загрузке id из кадра не используется: хранилище выдаёт новые id по порядку.
+ */
+class BinaryFormat<T> implements BulkFormat<T> {
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final EntityCodec<T> codec;
+    private final byte[] header = new byte[HEADER_SIZE];
+
+    BinaryFormat(EntityCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public String mediaType() {
+        return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    @Override
+    public int recordEnd(byte[] buffer, int from, int to, boolean eof) {
+        if (to - from < HEADER_SIZE) {
+            return -1;
+        }
+        int length = readInt(buffer, from + Long.BYTES);
+        if (length < 0) {
+            throw new ValidationException("Повреждённый поток: отрицательная длина записи");
+        }
+        long end = (long) from + HEADER_SIZE + length;
+        return end <= to ? (int) end : -1;
+    }
+
+    @Override
+    public T decode(byte[] buffer, int from, int to) {
+        return codec.decode(0, Arrays.copyOfRange(buffer, from + HEADER_SIZE, to));
+    }
+
+    @Override
+    public EntityCodec<T> codec() {
+        return codec;
+    }
+
+    /**
+     * Вызывается из одного потока выгрузки: заголовок собирается в общем буфере.
+     */
+    @Override
+    public void write(OutputStream out, long id, byte[] value) throws IOException {
+        for (int i = 0; i < Long.BYTES; i++) {
+            header[i] = (byte) (id >>> (56 - 8 * i));
+        }
+        int length = value.length;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            header[Long.BYTES + i] = (byte) (length >>> (24 - 8 * i));
+        }
+        out.write(header);
+        out.write(value);
+    }
+
+    private static int readInt(byte[] buffer, int at) {
+        return (buffer[at] & 0xFF) << 24 | (buffer[at + 1] & 0xFF) << 16
+                | (buffer[at + 2] & 0xFF) << 8 | buffer[at + 3] & 0xFF;
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.bulk;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.CompactFilmCodec;
+import ru.yandex.practicum.filmorate.storage.CompactUserCodec;
+import ru.yandex.practicum.filmorate.storage.EntityCodec;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.validator.FilmValidator;
+import ru.yandex.practicum.filmorate.validator.UserValidator;
+import ru.yandex.practicum.filmorate.validator.Validator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Массовая выгрузка и загрузка каталога: {@code entity} — films или users,
+ * {@code format} — ndjson или binary (см. {@link BinaryFormat}).
+ * Загрузка проверяет и дополняет записи так же, как POST, и отвечает отчётом с пропускной способностью;
+ * отчёт о выгрузке пишется в лог. Объём обоих направлений — в метриках {@code filmorate.bulk.*}.
+ * В кластере выгружаются данные узла, принявшего запрос.
+ * <p>
+ * Выгружаются только сами сущности: лайки и друзья в поток не входят, а загрузка, как и POST,
+ * выдаёт новые id. Выгрузка и загрузка переносят каталог, а не копируют узел целиком — для этого
+ * есть журнал и репликация.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+public class BulkController {
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final int parallelism;
+    private final MeterRegistry registry;
+
+    @Autowired
+    public BulkController(FilmStorage filmStorage, UserStorage userStorage,
+                          @Value("${filmorate.bulk.parallelism:0}") int parallelism,
+                          ObjectProvider<MeterRegistry> registry) {
+        this(filmStorage, userStorage, parallelism, registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    public BulkController(FilmStorage filmStorage, UserStorage userStorage, int parallelism,
+                          MeterRegistry registry) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.registry = registry;
+    }
+
+    private record Target<T>(String entity, InMemoryStorage<T> storage, Validator<T> validator,
+                             Consumer<T> normalizer, BulkFormat<T> format) {
+    }
+
+    @PostMapping("/import")
+    public TransferReport importAll(@RequestParam String entity,
+                                    @RequestParam(defaultValue = "ndjson") String format,
+                                    InputStream body) throws IOException {
+        return importInto(target(entity, format), body);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAll(@RequestParam String entity,
+                                                           @RequestParam(defaultValue = "ndjson") String format) {
+        Target<?> target = target(entity, format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(target.format().mediaType()))
+                .body(out -> exportFrom(target, out));
+    }
+
+    private <T> TransferReport importInto(Target<T> target, InputStream body) throws IOException {
+        TransferReport report = new BulkImporter<>(target.storage(), target.validator(), target.normalizer(),
+                target.format(), parallelism)
+                .run(body, target.entity());
+        log.info("Import {} ({}): {} records, {} imported, {} rejected, {} bytes in {} ms ({} records/s)",
+                report.entity(), report.format(), report.records(), report.imported(), report.rejected(),
+                report.bytes(), report.millis(), report.recordsPerSecond());
+        count("import", report);
+        return report;
+    }
+
+    private <T> void exportFrom(Target<T> target, OutputStream out) throws IOException {
+        TransferReport report = BulkExporter.export(target.storage(), target.format(), out, target.entity());
+        log.info("Export {} ({}): {} records, {} bytes in {} ms ({} records/s)", report.entity(), report.format(),
+                report.records(), report.bytes(), report.millis(), report.recordsPerSecond());
+        count("export", report);
+    }
+
+    private Target<?> target(String entity, String format) {
+        return switch (entity) {
+            case "films" -> new Target<>(entity, filmStorage, FilmValidator.INSTANCE, null,
+                    format(format, Film.class, new CompactFilmCodec()));
+            case "users" -> new Target<>(entity, userStorage, UserValidator.INSTANCE, User::fillDefaultName,
+                    format(format, User.class, new CompactUserCodec()));
+            default -> throw new ValidationException("Параметр entity: ожидается films или users, получено " + entity);
+        };
+    }
+
+    private static <T> BulkFormat<T> format(String format, Class<T> type, EntityCodec<T> compact) {
+        return switch (format) {
+            case "ndjson" -> new NdjsonFormat<>(type);
+            case "binary" -> new BinaryFormat<>(compact);
+            default -> throw new ValidationException("Параметр format: ожидается ndjson или binary, получено " + format);
+        };
+    }
+
+    private void count(String direction, TransferReport report) {
+        registry.counter("filmorate.bulk.records", "direction", direction, "entity", report.entity())
+                .increment(report.imported());
+        registry.counter("filmorate.bulk.bytes", "direction", direction, "entity", report.entity())
+                .increment(report.bytes());
+    }
+}
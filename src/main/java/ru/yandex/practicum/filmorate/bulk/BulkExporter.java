@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.bulk;
+
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage;
+import ru.yandex.practicum.filmorate.storage.StorageSnapshot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Потоковая выгрузка хранилища страницами по курсору в порядке id из одного среза
+ * {@link InMemoryStorage#snapshot()}. Значения берутся через {@link InMemoryStorage#findPackedPage}:
+ * если формат совпадает с раскладкой хранилища, байты записи уходят в ответ без распаковки.
+ * Массивы страницы переиспользуются.
+ */
+final class BulkExporter {
+    private static final int PAGE_SIZE = 1000;
+
+    private BulkExporter() {
+    }
+
+    static <T> TransferReport export(InMemoryStorage<T> storage, BulkFormat<T> format, OutputStream out,
+                                     String entity) throws IOException {
+        long start = System.nanoTime();
+        long[] ids = new long[PAGE_SIZE];
+        Object[] values = new Object[PAGE_SIZE];
+        long records = 0;
+        long bytes = 0;
+        long cursor = 0;
+        int count;
+        StorageSnapshot<T> snapshot = storage.snapshot();
+        while ((count = snapshot.findPackedPage(cursor, format.codec(), ids, values)) > 0) {
+            for (int i = 0; i < count; i++) {
+                byte[] value = (byte[]) values[i];
+                format.write(out, ids[i], value);
+                bytes += value.length;
+                values[i] = null;
+            }
+            records += count;
+            cursor = ids[count - 1];
+        }
+        out.flush();
+        return TransferReport.of(entity, format.mediaType(), records, records, 0, bytes, start, List.of());
+    }
+}
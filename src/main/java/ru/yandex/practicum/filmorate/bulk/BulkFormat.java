@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.bulk;
+
+import ru.yandex.practicum.filmorate.storage.EntityCodec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Формат потока записей для выгрузки и загрузки каталога. Поток режется на записи
+ * без разбора их содержимого, чтобы разбор можно было выполнять параллельно.
+ */
+interface BulkFormat<T> {
+
+    String mediaType();
+
+    /**
+     * Конец записи, начинающейся с {@code from}, среди прочитанных байт {@code [from, to)};
+     * -1, если запись ещё не дочитана. {@code eof} — больше данных не будет.
+     */
+    int recordEnd(byte[] buffer, int from, int to, boolean eof);
+
+    /**
+     * Сущность из записи {@code [from, to)}; null для пустой записи, которую надо пропустить.
+     */
+    T decode(byte[] buffer, int from, int to) throws IOException;
+
+    /**
+     * Представление записи при выгрузке: значение, которое передаётся в {@link #write}.
+     */
+    EntityCodec<T> codec();
+
+    void write(OutputStream out, long id, byte[] value) throws IOException;
+}
@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.bulk;
+
+import org.springframework.http.HttpStatus;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage;
+import ru.yandex.practicum.filmorate.validator.Validator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Потоковая загрузка сущностей в хранилище. Поток читается блоками, блок режется на целые
+ * записи и отдаётся в пул на разбор и проверку. Готовые блоки сохраняются строго по очереди
+ * в потоке запроса, поэтому id выдаются в порядке записей в потоке. В работе одновременно
+ * не больше {@code 2 * parallelism} блоков: память не зависит от размера потока.
+ */
+class BulkImporter<T> {
+    private static final int CHUNK_BYTES = 256 * 1024;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_ERRORS = 100;
+
+    private final InMemoryStorage<T> storage;
+    private final Validator<T> validator;
+    private final Consumer<T> normalizer;
+    private final BulkFormat<T> format;
+    private final int parallelism;
+
+    private final List<BatchItemResult> errors = new ArrayList<>();
+    private long records;
+    private long imported;
+    private long rejected;
+    private long bytes;
+
+    /**
+     * @param normalizer приводит проверенную сущность к виду, в котором её сохраняет POST; null — как есть
+     */
+    BulkImporter(InMemoryStorage<T> storage, Validator<T> validator, Consumer<T> normalizer, BulkFormat<T> format,
+                 int parallelism) {
+        this.storage = storage;
+        this.validator = validator;
+        this.normalizer = normalizer;
+        this.format = format;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Блок потока: границы записей парами {@code [начало, конец)} и номер первой записи.
+     */
+    private record Chunk(byte[] buffer, int[] bounds, int count, long firstIndex) {
+    }
+
+    /**
+     * Разобранный блок: прошедшие проверку сущности с номерами записей и отклонённые записи.
+     */
+    private record Decoded<T>(List<T> entities, long[] indexes, List<BatchItemResult> rejected) {
+    }
+
+    TransferReport run(InputStream in, String entity) throws IOException {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ArrayDeque<Future<Decoded<T>>> inFlight = new ArrayDeque<>();
+        try {
+            byte[] buffer = new byte[CHUNK_BYTES];
+            int filled = 0;
+            boolean eof = false;
+            while (!eof || filled > 0) {
+                while (!eof && filled < buffer.length) {
+                    int read = in.read(buffer, filled, buffer.length - filled);
+                    if (read < 0) {
+                        eof = true;
+                    } else {
+                        filled += read;
+                        bytes += read;
+                    }
+                }
+                Chunk chunk = split(buffer, filled, eof);
+                if (chunk == null) {
+                    if (eof) {
+                        throw new ValidationException("Поток обрывается посреди записи " + records
+                                + ", загружено " + imported);
+                    }
+                    buffer = Arrays.copyOf(buffer, grow(buffer.length));
+                    continue;
+                }
+                int consumed = chunk.bounds()[2 * chunk.count() - 1];
+                byte[] next = new byte[Math.max(CHUNK_BYTES, filled - consumed)];
+                System.arraycopy(buffer, consumed, next, 0, filled - consumed);
+                buffer = next;
+                filled -= consumed;
+                records += chunk.count();
+                inFlight.add(pool.submit(() -> decode(chunk)));
+                if (inFlight.size() >= 2 * parallelism) {
+                    save(inFlight.poll());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                save(inFlight.poll());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return TransferReport.of(entity, format.mediaType(), records, imported, rejected, bytes,
+                start, errors);
+    }
+
+    /**
+     * Целые записи из начала буфера; null, если не поместилась ни одна.
+     */
+    private Chunk split(byte[] buffer, int filled, boolean eof) {
+        int[] bounds = new int[64];
+        int count = 0;
+        int position = 0;
+        while (position < filled) {
+            int end = format.recordEnd(buffer, position, filled, eof);
+            if (end < 0) {
+                break;
+            }
+            if (2 * count == bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[2 * count] = position;
+            bounds[2 * count + 1] = end;
+            count++;
+            position = end;
+        }
+        return count == 0 ? null : new Chunk(buffer, bounds, count, records);
+    }
+
+    private Decoded<T> decode(Chunk chunk) {
+        List<T> entities = new ArrayList<>(chunk.count());
+        long[] indexes = new long[chunk.count()];
+        List<BatchItemResult> invalid = new ArrayList<>();
+        for (int i = 0; i < chunk.count(); i++) {
+            long index = chunk.firstIndex() + i;
+            T entity;
+            try {
+                entity = format.decode(chunk.buffer(), chunk.bounds()[2 * i], chunk.bounds()[2 * i + 1]);
+            } catch (IOException | RuntimeException e) {
+                invalid.add(result(index, HttpStatus.BAD_REQUEST, "Некорректная запись: " + e.getMessage()));
+                continue;
+            }
+            if (entity == null) {
+                continue;
+            }
+            Map<String, String> violations = validator.violations(entity);
+            if (!violations.isEmpty()) {
+                invalid.add(result(index, HttpStatus.BAD_REQUEST, ValidationException.describe(violations)));
+                continue;
+            }
+            if (normalizer != null) {
+                normalizer.accept(entity);
+            }
+            indexes[entities.size()] = index;
+            entities.add(entity);
+        }
+        return new Decoded<>(entities, indexes, invalid);
+    }
+
+    private void save(Future<Decoded<T>> pending) throws IOException {
+        Decoded<T> decoded;
+        try {
+            decoded = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Загрузка прервана", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Не удалось разобрать блок записей", e.getCause());
+        }
+        decoded.rejected().forEach(this::reject);
+        int[] failed = {0};
+        storage.saveAll(decoded.entities(), (error, i) -> {
+            failed[0]++;
+            long index = decoded.indexes()[i];
+            if (error instanceof DuplicatedDataException) {
+                reject(result(index, HttpStatus.CONFLICT, error.getMessage()));
+            } else if (error instanceof ValidationException) {
+                reject(result(index, HttpStatus.BAD_REQUEST, error.getMessage()));
+            } else {
+                reject(result(index, HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + error.getMessage()));
+            }
+        });
+        imported += decoded.entities().size() - failed[0];
+    }
+
+    private void reject(BatchItemResult result) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(result);
+        }
+    }
+
+    private static BatchItemResult result(long index, HttpStatus status, String error) {
+        return new BatchItemResult((int) Math.min(index, Integer.MAX_VALUE), null, status.value(), error);
+    }
+
+    private static int grow(int size) {
+        if (size >= MAX_RECORD_BYTES) {
+            throw new ValidationException("Запись длиннее " + MAX_RECORD_BYTES + " байт");
+        }
+        return Math.min(size * 2, MAX_RECORD_BYTES);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.bulk;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import ru.yandex.practicum.filmorate.storage.EntityCodec;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * NDJSON: одна сущность в JSON на строку, пустые строки пропускаются.
+ */
+class NdjsonFormat<T> implements BulkFormat<T> {
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final EntityCodec<T> codec;
+
+    NdjsonFormat(Class<T> type) {
+        this.reader = Json.MAPPER.readerFor(type);
+        this.writer = Json.MAPPER.writerFor(type);
+        this.codec = new EntityCodec<>() {
+            @Override
+            public Object encode(T entity) {
+                try {
+                    return writer.writeValueAsBytes(entity);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public T decode(long id, Object packed) {
+                try {
+                    return reader.readValue((byte[]) packed);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public String mediaType() {
+        return MediaType.APPLICATION_NDJSON_VALUE;
+    }
+
+    @Override
+    public int recordEnd(byte[] buffer, int from, int to, boolean eof) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return eof ? to : -1;
+    }
+
+    @Override
+    public T decode(byte[] buffer, int from, int to) throws IOException {
+        while (from < to && Character.isWhitespace(buffer[from])) {
+            from++;
+        }
+        while (to > from && Character.isWhitespace(buffer[to - 1])) {
+            to--;
+        }
+        return from == to ? null : reader.readValue(buffer, from, to - from);
+    }
+
+    @Override
+    public EntityCodec<T> codec() {
+        return codec;
+    }
+
+    @Override
+    public void write(OutputStream out, long id, byte[] value) throws IOException {
+        out.write(value);
+        out.write('\n');
+    }
+}
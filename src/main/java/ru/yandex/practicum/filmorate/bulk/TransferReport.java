@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.bulk;
+
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Итог выгрузки или загрузки: объём, длительность и пропускная способность.
+ * {@code errors} — первые отклонённые записи с их номерами в потоке.
+ */
+public record TransferReport(String entity, String format, long records, long imported, long rejected,
+                             long bytes, long millis, long recordsPerSecond, long bytesPerSecond,
+                             List<BatchItemResult> errors) {
+
+    static TransferReport of(String entity, String format, long records, long imported, long rejected,
+                             long bytes, long startNanos, List<BatchItemResult> errors) {
+        long nanos = Math.max(1, System.nanoTime() - startNanos);
+        return new TransferReport(entity, format, records, imported, rejected, bytes,
+                TimeUnit.NANOSECONDS.toMillis(nanos), perSecond(records, nanos), perSecond(bytes, nanos), errors);
+    }
+
+    private static long perSecond(long amount, long nanos) {
+        return (long) (amount * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+    }
+}
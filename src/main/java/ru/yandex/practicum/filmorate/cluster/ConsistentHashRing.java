@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Кольцо согласованного хеширования: каждый узел занимает {@code virtualNodes} точек кольца,
+ * ключ принадлежит первому узлу по часовой стрелке от своего хеша. При добавлении или удалении узла
+ * переезжает только около 1/N ключей. Кольцо неизменяемо и читается без блокировок.
+ */
+public class ConsistentHashRing {
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+    private final List<String> nodes;
+
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Кольцо должно содержать хотя бы один узел");
+        }
+        this.nodes = List.copyOf(nodes);
+        for (String node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(pointHash(node + "#" + i), node);
+            }
+        }
+    }
+
+    public String ownerOf(long id) {
+        return ownerOfHash(mix(id));
+    }
+
+    public String ownerOf(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return ownerOfHash(mix(hash));
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    private String ownerOfHash(long hash) {
+        Map.Entry<Long, String> entry = points.ceilingEntry(hash);
+        return entry != null ? entry.getValue() : points.firstEntry().getValue();
+    }
+
+    // финализатор SplitMix64: близкие id расходятся по всему кольцу
+    private static long mix(long value) {
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long pointHash(String label) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(label.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
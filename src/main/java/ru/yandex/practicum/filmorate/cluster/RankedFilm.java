@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Фильм из локального топа узла с числом лайков — для слияния топов всех узлов.
+ */
+public record RankedFilm(int likes, Film film) {
+}
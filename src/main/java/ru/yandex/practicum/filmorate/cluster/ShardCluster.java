@@ -0,0 +1,211 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Узел шардированного кластера: кольцо владения, HTTP-клиент к соседним узлам
+ * и реестр уникальных ключей (названия фильмов, email), за которые отвечает этот узел.
+ * Владелец сущности определяется по id, владелец уникального ключа — по самому ключу,
+ * поэтому проверка уникальности — один запрос к одному узлу, а не опрос всех.
+ * Внутренние вызовы идут на {@link #INTERNAL_PATH} с общим секретом узлов в {@value #SECRET_HEADER};
+ * ошибки узла превращаются в те же исключения, что и при локальной работе.
+ * Реестр ключей хранится только в памяти и после перезапуска узла заполняется заново
+ * (см. {@link ShardKeyRecovery}).
+ */
+public class ShardCluster {
+    public static final String INTERNAL_PATH = "/internal/shard";
+    public static final String SECRET_HEADER = "X-Filmorate-Cluster-Secret";
+    private static final int VIRTUAL_NODES = 128;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final ConsistentHashRing ring;
+    private final String self;
+    private final List<String> nodes;
+    private final List<String> peers;
+    private final byte[] secret;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final Map<String, Map<String, Long>> keys = new ConcurrentHashMap<>();
+
+    public ShardCluster(List<String> nodes, String self, String secret) {
+        if (!nodes.contains(self)) {
+            throw new IllegalArgumentException("Узел " + self + " не входит в список узлов " + nodes);
+        }
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("filmorate.cluster.secret: нужен общий секрет узлов кластера");
+        }
+        this.ring = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+        this.self = self;
+        this.nodes = List.copyOf(nodes);
+        this.peers = nodes.stream().filter(node -> !node.equals(self)).toList();
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public List<String> peers() {
+        return peers;
+    }
+
+    /**
+     * Проверяет секрет из заголовка внутреннего запроса за время, не зависящее от совпавшего префикса.
+     */
+    public boolean isTrusted(String providedSecret) {
+        return providedSecret != null
+                && MessageDigest.isEqual(secret, providedSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isLocal(long id) {
+        return self.equals(ring.ownerOf(id));
+    }
+
+    public String ownerOf(long id) {
+        return ring.ownerOf(id);
+    }
+
+    public String keyOwner(String type, String key) {
+        return ring.ownerOf(type + ":" + key);
+    }
+
+    /**
+     * Закрепляет уникальный ключ за сущностью во всём кластере.
+     * Повторное закрепление за той же сущностью допустимо.
+     */
+    public void reserveKey(String type, String key, long id, String duplicateMessage) {
+        String owner = keyOwner(type, key);
+        boolean reserved = self.equals(owner)
+                ? reserveLocal(type, key, id)
+                : send(owner, "POST", keyPath("reserve", type, key, id), null, Boolean.class);
+        if (!reserved) {
+            throw new DuplicatedDataException(duplicateMessage);
+        }
+    }
+
+    public void releaseKey(String type, String key, long id) {
+        String owner = keyOwner(type, key);
+        if (self.equals(owner)) {
+            releaseLocal(type, key, id);
+        } else {
+            send(owner, "POST", keyPath("release", type, key, id), null, Boolean.class);
+        }
+    }
+
+    boolean reserveLocal(String type, String key, long id) {
+        Long ownerId = keys.computeIfAbsent(type, t -> new ConcurrentHashMap<>()).putIfAbsent(key, id);
+        return ownerId == null || ownerId == id;
+    }
+
+    boolean releaseLocal(String type, String key, long id) {
+        Map<String, Long> typeKeys = keys.get(type);
+        return typeKeys != null && typeKeys.remove(key, id);
+    }
+
+    /**
+     * Запрос к одному узлу. Для 404 возвращает null.
+     */
+    public <R> R send(String node, String method, String path, Object body, Class<R> type) {
+        return join(sendAsync(node, method, path, body, Json.MAPPER.constructType(type)));
+    }
+
+    public <R> R send(String node, String method, String path, Object body, TypeReference<R> type) {
+        return join(sendAsync(node, method, path, body, Json.MAPPER.constructType(type)));
+    }
+
+    /**
+     * Один и тот же запрос ко всем остальным узлам параллельно; ответы в порядке узлов.
+     */
+    public <R> List<R> fanOut(String method, String path, Object body, TypeReference<R> type) {
+        JavaType javaType = Json.MAPPER.constructType(type);
+        List<CompletableFuture<R>> futures = new ArrayList<>(peers.size());
+        for (String peer : peers) {
+            futures.add(sendAsync(peer, method, path, body, javaType));
+        }
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    public static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private <R> CompletableFuture<R> sendAsync(String node, String method, String path, Object body, JavaType type) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(node + INTERNAL_PATH + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header(SECRET_HEADER, new String(secret, StandardCharsets.UTF_8));
+        try {
+            request.method(method, body == null
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(Json.MAPPER.writeValueAsBytes(body)));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> read(node, response, type));
+    }
+
+    private <R> R read(String node, HttpResponse<byte[]> response, JavaType type) {
+        int status = response.statusCode();
+        try {
+            if (status == 200) {
+                return Json.MAPPER.readValue(response.body(), type);
+            }
+            if (status == 404) {
+                return null;
+            }
+            String message = Json.MAPPER.readTree(response.body()).path("error").asText();
+            switch (status) {
+                case 400 -> throw new ValidationException(message);
+                case 409 -> throw new DuplicatedDataException(message);
+                case 412 -> throw new VersionConflictException(message);
+                default -> throw new IllegalStateException("Узел " + node + " ответил " + status + ": " + message);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Некорректный ответ узла " + node + " (" + status + ")", e);
+        }
+    }
+
+    private static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Узел кластера недоступен", e.getCause());
+        }
+    }
+
+    private static String keyPath(String action, String type, String key, long id) {
+        return "/keys/" + type + "/" + action + "?key=" + encode(key) + "&id=" + id;
+    }
+}
@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.exception.ErrorResponse;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Внутренний API узла кластера: операции только над данными этого узла.
+ * Вызывается соседними узлами через {@link ShardCluster}, а не клиентами.
+ */
+@RestController
+@RequestMapping(ShardCluster.INTERNAL_PATH)
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class ShardController {
+
+    // как у публичных GET /films и GET /users: страница по курсору без limit
+    private static final String DEFAULT_PAGE_SIZE = "100";
+
+    private final ShardCluster cluster;
+    private final ShardedFilmStorage filmStorage;
+    private final ShardedUserStorage userStorage;
+
+    public ShardController(ShardCluster cluster, FilmStorage filmStorage, UserStorage userStorage) {
+        this.cluster = cluster;
+        this.filmStorage = (ShardedFilmStorage) filmStorage;
+        this.userStorage = (ShardedUserStorage) userStorage;
+    }
+
+    @GetMapping("/films/{id}")
+    public ResponseEntity<Film> findFilm(@PathVariable long id) {
+        return found(filmStorage.findByIdsLocal(List.of(id)));
+    }
+
+    @PostMapping("/films/by-ids")
+    public List<Film> findFilms(@RequestBody List<Long> ids) {
+        return filmStorage.findByIdsLocal(ids);
+    }
+
+    @GetMapping("/films")
+    public Collection<Film> findFilmPage(@RequestParam(required = false) Long after,
+                                         @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        return after == null ? filmStorage.findAllLocal() : filmStorage.findPageLocal(after, limit);
+    }
+
+    @GetMapping("/films/version")
+    public long filmsVersion() {
+        return filmStorage.versionLocal();
+    }
+
+    @PutMapping("/films")
+    public Film updateFilm(@RequestBody Film film, @RequestParam(required = false) Long expectedVersion) {
+        return filmStorage.updateLocal(film, expectedVersion);
+    }
+
+    @GetMapping("/films/popular")
+    public List<RankedFilm> findPopular(@RequestParam int count) {
+        return filmStorage.findPopularLocal(count);
+    }
+
+    @GetMapping("/films/search")
+    public List<Film> search(@RequestParam String q, @RequestParam int limit) {
+        return filmStorage.searchLocal(q, limit);
+    }
+
+    @GetMapping("/films/ranges")
+    public List<Film> findByRanges(@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate releasedFrom,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate releasedTo,
+                                   @RequestParam(required = false) Integer minDuration,
+                                   @RequestParam(required = false) Integer maxDuration,
+                                   @RequestParam(defaultValue = "0") long after,
+                                   @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int limit) {
+        return filmStorage.findByRangesLocal(releasedFrom, releasedTo, minDuration, maxDuration, after, limit);
+    }
+
+    @PutMapping("/films/{id}/like/{userId}")
+    public boolean addLike(@PathVariable long id, @PathVariable long userId) {
+        return filmStorage.addLikeLocal(id, userId);
+    }
+
+    @DeleteMapping("/films/{id}/like/{userId}")
+    public boolean removeLike(@PathVariable long id, @PathVariable long userId) {
+        return filmStorage.removeLikeLocal(id, userId);
+    }
+
+    @GetMapping("/users/{id}")
+    public ResponseEntity<User> findUser(@PathVariable long id) {
+        return found(userStorage.findByIdsLocal(List.of(id)));
+    }
+
+    @PostMapping("/users/by-ids")
+    public List<User> findUsers(@RequestBody List<Long> ids) {
+        return userStorage.findByIdsLocal(ids);
+    }
+
+    @GetMapping("/users")
+    public Collection<User> findUserPage(@RequestParam(required = false) Long after,
+                                         @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        return after == null ? userStorage.findAllLocal() : userStorage.findPageLocal(after, limit);
+    }
+
+    @GetMapping("/users/version")
+    public long usersVersion() {
+        return userStorage.versionLocal();
+    }
+
+    @PutMapping("/users")
+    public User updateUser(@RequestBody User user, @RequestParam(required = false) Long expectedVersion) {
+        return userStorage.updateLocal(user, expectedVersion);
+    }
+
+    @PutMapping("/users/{id}/friends/{friendId}")
+    public boolean linkFriend(@PathVariable long id, @PathVariable long friendId) {
+        userStorage.linkFriendLocal(id, friendId);
+        return true;
+    }
+
+    @DeleteMapping("/users/{id}/friends/{friendId}")
+    public boolean unlinkFriend(@PathVariable long id, @PathVariable long friendId) {
+        userStorage.unlinkFriendLocal(id, friendId);
+        return true;
+    }
+
+    @GetMapping("/users/{id}/friend-ids")
+    public long[] friendIds(@PathVariable long id) {
+        return userStorage.friendIdsLocal(id);
+    }
+
+    @PostMapping("/keys/{type}/reserve")
+    public boolean reserveKey(@PathVariable String type, @RequestParam String key, @RequestParam long id) {
+        return cluster.reserveLocal(type, key, id);
+    }
+
+    /**
+     * Вызывает перезапущенный узел {@code node}: его реестр ключей пуст.
+     */
+    @PostMapping("/keys/restore")
+    public int restoreKeys(@RequestParam String node) {
+        return filmStorage.restoreKeysLocal(node) + userStorage.restoreKeysLocal(node);
+    }
+
+    @PostMapping("/keys/{type}/release")
+    public boolean releaseKey(@PathVariable String type, @RequestParam String key, @RequestParam long id) {
+        return cluster.releaseLocal(type, key, id);
+    }
+
+    /**
+     * 412 вместо 409, чтобы вызывающий узел отличал конфликт версий от дубликата.
+     */
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<ErrorResponse> handleVersionConflict(VersionConflictException ex) {
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(NoSuchElementException.class)
+    public ResponseEntity<ErrorResponse> handleNotFound(NoSuchElementException ex) {
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.NOT_FOUND);
+    }
+
+    private static <T> ResponseEntity<T> found(List<T> entities) {
+        return entities.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(entities.get(0));
+    }
+}
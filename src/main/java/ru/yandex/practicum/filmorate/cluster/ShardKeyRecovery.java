@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+/**
+ * Восстанавливает реестр уникальных ключей после старта узла. Реестр не сохраняется,
+ * поэтому узел, когда готов принимать запросы, закрепляет ключи своих сущностей на всех узлах
+ * (после восстановления из журнала их может быть много) и просит соседей закрепить у него
+ * ключи их сущностей. Недоступный сосед пропускается: он сделает то же самое при своём старте.
+ * До окончания восстановления дубликат ключа, принадлежащего этому узлу, не обнаруживается.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class ShardKeyRecovery {
+    private final ShardCluster cluster;
+    private final ShardedFilmStorage filmStorage;
+    private final ShardedUserStorage userStorage;
+
+    public ShardKeyRecovery(ShardCluster cluster, FilmStorage filmStorage, UserStorage userStorage) {
+        this.cluster = cluster;
+        this.filmStorage = (ShardedFilmStorage) filmStorage;
+        this.userStorage = (ShardedUserStorage) userStorage;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreKeys() {
+        int own = 0;
+        for (String node : cluster.nodes()) {
+            try {
+                own += filmStorage.restoreKeysLocal(node) + userStorage.restoreKeysLocal(node);
+            } catch (RuntimeException e) {
+                log.warn("Could not restore keys on {}: {}", node, e.getMessage());
+            }
+        }
+        int peers = 0;
+        for (String peer : cluster.peers()) {
+            try {
+                peers += cluster.send(peer, "POST", "/keys/restore?node=" + ShardCluster.encode(cluster.self()),
+                        null, Integer.class);
+            } catch (RuntimeException e) {
+                log.warn("Could not ask {} to restore keys: {}", peer, e.getMessage());
+            }
+        }
+        log.info("Restored {} keys of local entities and {} keys of peer entities", own, peers);
+    }
+}
@@ -0,0 +1,340 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.storage.EntityCodec;
+import ru.yandex.practicum.filmorate.storage.StorageSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Маршрутизация операций одного типа сущностей по узлам кластера. Точечные операции уходят
+ * владельцу id, выборки опрашивают все узлы и сливают ответы в порядке id.
+ * Уникальный ключ закрепляется в кластере до локальной записи и освобождается при откате.
+ * Локальные изменения идут через условное обновление по версии, поэтому прежний ключ
+ * известен точно и освобождается без гонок с параллельными изменениями той же сущности.
+ */
+@Slf4j
+class ShardRouter<T> {
+    private final ShardCluster cluster;
+    private final String type;
+    private final Class<T> entityClass;
+    private final TypeReference<List<T>> listType;
+    private final Entity<T> entity;
+    private final Local<T> local;
+    private final Comparator<T> byId;
+
+    /**
+     * Доступ к полям сущности.
+     */
+    record Entity<T>(ToLongFunction<T> id, ObjLongConsumer<T> setId, ToLongFunction<T> version,
+                     Function<T, String> uniqueKey, String duplicateMessage) {
+    }
+
+    /**
+     * Операции локального хранилища узла (без маршрутизации); хранилища передают сюда ссылки
+     * на методы базового класса ({@code super::findById} и т.п.).
+     */
+    record Local<T>(LongFunction<T> findById, Page<T> findPage, Supplier<Collection<T>> findAll,
+                    LongSupplier version, LongSupplier nextId, Save<T> saveWithId, Patch<T> patch) {
+    }
+
+    interface Page<T> {
+        List<T> find(long afterId, int limit);
+    }
+
+    interface Save<T> {
+        T save(T entity, long id);
+    }
+
+    interface Patch<T> {
+        T patch(long id, long expectedVersion, UnaryOperator<T> change);
+    }
+
+    ShardRouter(ShardCluster cluster, String type, Class<T> entityClass, TypeReference<List<T>> listType,
+                Entity<T> entity, Local<T> local) {
+        this.cluster = cluster;
+        this.type = type;
+        this.entityClass = entityClass;
+        this.listType = listType;
+        this.entity = entity;
+        this.local = local;
+        this.byId = Comparator.comparingLong(entity.id());
+    }
+
+    /**
+     * Следующий id из тех, которыми владеет этот узел: узлы выдают id без согласования,
+     * а маршрутизация по id не требует отдельного каталога.
+     */
+    long nextId() {
+        long id;
+        do {
+            id = local.nextId().getAsLong();
+        } while (!cluster.isLocal(id));
+        return id;
+    }
+
+    T findById(long id) {
+        return cluster.isLocal(id)
+                ? local.findById().apply(id)
+                : cluster.send(cluster.ownerOf(id), "GET", "/" + type + "/" + id, null, entityClass);
+    }
+
+    /**
+     * Сущности по отсортированным id; один запрос на узел-владелец.
+     */
+    List<T> findByIds(long[] ids) {
+        List<T> result = new ArrayList<>(ids.length);
+        Map<String, List<Long>> remote = new HashMap<>();
+        for (long id : ids) {
+            if (cluster.isLocal(id)) {
+                T found = local.findById().apply(id);
+                if (found != null) {
+                    result.add(found);
+                }
+            } else {
+                remote.computeIfAbsent(cluster.ownerOf(id), node -> new ArrayList<>()).add(id);
+            }
+        }
+        remote.forEach((node, nodeIds) ->
+                result.addAll(cluster.send(node, "POST", "/" + type + "/by-ids", nodeIds, listType)));
+        result.sort(byId);
+        return result;
+    }
+
+    /**
+     * Сущности этого узла по id, без обращения к другим узлам.
+     */
+    List<T> findByIdsLocal(List<Long> ids) {
+        List<T> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T found = local.findById().apply(id);
+            if (found != null) {
+                result.add(found);
+            }
+        }
+        return result;
+    }
+
+    Collection<T> findAll() {
+        return merge(new ArrayList<>(local.findAll().get()), fanOut(""), Integer.MAX_VALUE);
+    }
+
+    List<T> findPage(long afterId, int limit) {
+        return merge(local.findPage().find(afterId, limit), fanOut("?after=" + afterId + "&limit=" + limit), limit);
+    }
+
+    /**
+     * Общего среза кластера нет: страницы собираются с узлов по мере чтения,
+     * согласован только срез локальных данных.
+     */
+    StorageSnapshot<T> snapshot(StorageSnapshot<T> localSnapshot) {
+        return new StorageSnapshot<>() {
+            @Override
+            public List<T> findPage(long afterId, int limit) {
+                return ShardRouter.this.findPage(afterId, limit);
+            }
+
+            @Override
+            public int findPackedPage(long afterId, EntityCodec<T> format, long[] ids, Object[] packed) {
+                return localSnapshot.findPackedPage(afterId, format, ids, packed);
+            }
+        };
+    }
+
+    /**
+     * Сумма локальных версий узлов: растёт при любой записи в любом узле.
+     * Стоит опроса всех узлов, поэтому списки кластера не кэшируются по версии.
+     */
+    long version() {
+        long version = local.version().getAsLong();
+        for (Long remote : cluster.fanOut("GET", "/" + type + "/version", null, new TypeReference<Long>() {
+        })) {
+            version += remote;
+        }
+        return version;
+    }
+
+    /**
+     * Создаёт сущность на этом узле под id, которым он владеет.
+     */
+    T save(T created) {
+        long id = nextId();
+        String key = entity.uniqueKey().apply(created);
+        if (key != null) {
+            cluster.reserveKey(type, key, id, entity.duplicateMessage());
+        }
+        try {
+            return local.saveWithId().save(created, id);
+        } catch (RuntimeException e) {
+            if (key != null) {
+                cluster.releaseKey(type, key, id);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * По одной записи: уникальный ключ каждой сущности закрепляется в кластере.
+     */
+    void saveAll(List<T> entities, ObjIntConsumer<RuntimeException> onReject) {
+        for (int i = 0; i < entities.size(); i++) {
+            try {
+                save(entities.get(i));
+            } catch (RuntimeException e) {
+                onReject.accept(e, i);
+            }
+        }
+    }
+
+    /**
+     * Заново закрепляет уникальные ключи локальных сущностей, которые хранит узел {@code node}.
+     * Возвращает число закреплённых ключей; недоступность узла — исключение.
+     */
+    int restoreKeys(String node) {
+        int restored = 0;
+        for (T current : local.findAll().get()) {
+            String key = entity.uniqueKey().apply(current);
+            if (key == null || !node.equals(cluster.keyOwner(type, key))) {
+                continue;
+            }
+            try {
+                cluster.reserveKey(type, key, entity.id().applyAsLong(current), entity.duplicateMessage());
+                restored++;
+            } catch (DuplicatedDataException e) {
+                log.warn("Key {} of {} {} is already taken by another entity", key, type,
+                        entity.id().applyAsLong(current));
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * По одной записи, как {@link #saveAll}: каждая сущность обновляется на своём узле-владельце.
+     */
+    void updateAll(List<T> entities, ObjIntConsumer<RuntimeException> onReject) {
+        for (int i = 0; i < entities.size(); i++) {
+            try {
+                update(entities.get(i));
+            } catch (RuntimeException e) {
+                onReject.accept(e, i);
+            }
+        }
+    }
+
+    T update(T updated) {
+        long id = entity.id().applyAsLong(updated);
+        return cluster.isLocal(id)
+                ? updateLocal(updated, null)
+                : cluster.send(cluster.ownerOf(id), "PUT", "/" + type, updated, entityClass);
+    }
+
+    /**
+     * Обновление на узле-владельце; {@code expectedVersion == null} — без проверки версии.
+     */
+    T updateLocal(T updated, Long expectedVersion) {
+        long id = entity.id().applyAsLong(updated);
+        while (true) {
+            T current = local.findById().apply(id);
+            if (current == null) {
+                throw new NoSuchElementException("Entity with id = " + id + " not found.");
+            }
+            long currentVersion = entity.version().applyAsLong(current);
+            if (expectedVersion != null && expectedVersion != currentVersion) {
+                throw conflict(id, currentVersion, expectedVersion);
+            }
+            String oldKey = entity.uniqueKey().apply(current);
+            String newKey = entity.uniqueKey().apply(updated);
+            boolean keyChanged = newKey != null && !Objects.equals(oldKey, newKey);
+            if (keyChanged) {
+                cluster.reserveKey(type, newKey, id, entity.duplicateMessage());
+            }
+            T result;
+            try {
+                result = local.patch().patch(id, currentVersion, ignored -> updated);
+            } catch (VersionConflictException e) {
+                if (keyChanged) {
+                    cluster.releaseKey(type, newKey, id);
+                }
+                if (expectedVersion != null) {
+                    throw e;
+                }
+                continue;
+            } catch (RuntimeException e) {
+                if (keyChanged) {
+                    cluster.releaseKey(type, newKey, id);
+                }
+                throw e;
+            }
+            if (oldKey != null && !oldKey.equals(newKey)) {
+                cluster.releaseKey(type, oldKey, id);
+            }
+            return result;
+        }
+    }
+
+    T patch(long id, Long expectedVersion, UnaryOperator<T> change) {
+        while (true) {
+            T current = findById(id);
+            if (current == null) {
+                throw new NoSuchElementException("Entity with id = " + id + " not found.");
+            }
+            long currentVersion = entity.version().applyAsLong(current);
+            if (expectedVersion != null && expectedVersion != currentVersion) {
+                throw conflict(id, currentVersion, expectedVersion);
+            }
+            T updated = change.apply(current);
+            entity.setId().accept(updated, id);
+            try {
+                return cluster.isLocal(id)
+                        ? updateLocal(updated, currentVersion)
+                        : cluster.send(cluster.ownerOf(id), "PUT", "/" + type + "?expectedVersion=" + currentVersion,
+                        updated, entityClass);
+            } catch (VersionConflictException e) {
+                if (expectedVersion != null) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Сливает отсортированные по id ответы узлов и оставляет первые {@code limit}.
+     */
+    <E> List<E> merge(List<E> localPart, List<List<E>> remoteParts, Comparator<? super E> order, int limit) {
+        List<E> all = new ArrayList<>(localPart);
+        remoteParts.forEach(all::addAll);
+        all.sort(order);
+        return all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all;
+    }
+
+    List<T> merge(List<T> localPart, List<List<T>> remoteParts, int limit) {
+        return merge(localPart, remoteParts, byId, limit);
+    }
+
+    List<List<T>> fanOut(String pathAndQuery) {
+        return cluster.fanOut("GET", "/" + type + pathAndQuery, null, listType);
+    }
+
+    private static VersionConflictException conflict(long id, long currentVersion, long expectedVersion) {
+        return new VersionConflictException("Запись с id = " + id + " уже изменена: текущая версия "
+                + currentVersion + ", ожидалась " + expectedVersion);
+    }
+}
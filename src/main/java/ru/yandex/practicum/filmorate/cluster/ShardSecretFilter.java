@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.exception.ErrorResponse;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.io.IOException;
+
+/**
+ * Пропускает во внутренний API узла только запросы с общим секретом кластера:
+ * внутренние операции обходят маршрутизацию и проверки уникальности и клиентам недоступны.
+ */
+public class ShardSecretFilter extends OncePerRequestFilter {
+    private final ShardCluster cluster;
+
+    public ShardSecretFilter(ShardCluster cluster) {
+        this.cluster = cluster;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (cluster.isTrusted(request.getHeader(ShardCluster.SECRET_HEADER))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        Json.MAPPER.writeValue(response.getOutputStream(),
+                new ErrorResponse("Внутренний API доступен только узлам кластера"));
+    }
+}
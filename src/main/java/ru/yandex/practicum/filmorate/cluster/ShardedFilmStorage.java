@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.EntityCodec;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.StorageSnapshot;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Хранилище фильмов узла кластера. Фильм и его лайки живут на узле-владельце id,
+ * остальные узлы перенаправляют к нему запросы. Топ, поиск и выборки по диапазонам
+ * собираются из локальных результатов всех узлов. Методы с суффиксом {@code Local}
+ * работают только с данными этого узла и вызываются из {@link ShardController}.
+ */
+public class ShardedFilmStorage extends FilmStorage {
+    private static final Comparator<RankedFilm> RANK_ORDER = Comparator.comparingInt(RankedFilm::likes).reversed()
+            .thenComparingLong(ranked -> ranked.film().getId());
+
+    private final ShardCluster cluster;
+    private final ShardRouter<Film> router;
+
+    public ShardedFilmStorage(ShardCluster cluster, EntityCodec<Film> codec) {
+        super(codec);
+        this.cluster = cluster;
+        this.router = new ShardRouter<>(cluster, "films", Film.class, new TypeReference<>() {
+                },
+                new ShardRouter.Entity<>(Film::getId, Film::setId, Film::getVersion, Film::getName,
+                        getDuplicateMessage()),
+                new ShardRouter.Local<>(super::findById, super::findPage, super::findAll, super::version,
+                        super::getNextId, super::saveWithId, super::patch));
+    }
+
+    @Override
+    protected Long getNextId() {
+        return router.nextId();
+    }
+
+    @Override
+    public Film findById(Long id) {
+        return id == null ? null : router.findById(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return findById(id) != null;
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return router.findAll();
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return router.findPage(afterId, limit);
+    }
+
+    @Override
+    public StorageSnapshot<Film> snapshot() {
+        return router.snapshot(super.snapshot());
+    }
+
+    /**
+     * Данные других узлов кодируются на месте, локальные берутся из фрагментов.
+     */
+    @Override
+    public byte[] findAllJson() {
+        return toJson(findAll());
+    }
+
+    @Override
+    public byte[] findPageJson(long afterId, int limit) {
+        return toJson(findPage(afterId, limit));
+    }
+
+    @Override
+    public long version() {
+        return router.version();
+    }
+
+    @Override
+    public boolean isVersionLocal() {
+        return false;
+    }
+
+    @Override
+    public Film save(Film film) {
+        return router.save(film);
+    }
+
+    @Override
+    public void saveAll(List<Film> films, ObjIntConsumer<RuntimeException> onReject) {
+        router.saveAll(films, onReject);
+    }
+
+    @Override
+    public void updateAll(List<Film> films, ObjIntConsumer<RuntimeException> onReject) {
+        router.updateAll(films, onReject);
+    }
+
+    @Override
+    public Film update(Film film) {
+        return router.update(film);
+    }
+
+    @Override
+    public Film patch(long id, Long expectedVersion, UnaryOperator<Film> change) {
+        return router.patch(id, expectedVersion, change);
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return cluster.isLocal(filmId)
+                ? super.addLike(filmId, userId)
+                : cluster.send(cluster.ownerOf(filmId), "PUT", likePath(filmId, userId), null, Boolean.class);
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        return cluster.isLocal(filmId)
+                ? super.removeLike(filmId, userId)
+                : cluster.send(cluster.ownerOf(filmId), "DELETE", likePath(filmId, userId), null, Boolean.class);
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        List<List<RankedFilm>> remote = cluster.fanOut("GET", "/films/popular?count=" + count, null,
+                new TypeReference<>() {
+                });
+        return router.merge(findPopularLocal(count), remote, RANK_ORDER, count).stream()
+                .map(RankedFilm::film)
+                .toList();
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        return router.merge(super.search(query, limit),
+                router.fanOut("/search?q=" + ShardCluster.encode(query) + "&limit=" + limit), limit);
+    }
+
+    @Override
+    public List<Film> findByRanges(LocalDate releasedFrom, LocalDate releasedTo, Integer minDuration,
+                                   Integer maxDuration, long afterId, int limit) {
+        StringBuilder query = new StringBuilder("/ranges?");
+        appendParam(query, "releasedFrom", releasedFrom);
+        appendParam(query, "releasedTo", releasedTo);
+        appendParam(query, "minDuration", minDuration);
+        appendParam(query, "maxDuration", maxDuration);
+        // каждый узел отдаёт не больше страницы после курсора, слияние оставляет первые limit по id
+        appendParam(query, "after", afterId);
+        appendParam(query, "limit", limit);
+        return router.merge(findByRangesLocal(releasedFrom, releasedTo, minDuration, maxDuration, afterId, limit),
+                router.fanOut(query.toString()), limit);
+    }
+
+    public Collection<Film> findAllLocal() {
+        return super.findAll();
+    }
+
+    public List<Film> findPageLocal(long afterId, int limit) {
+        return super.findPage(afterId, limit);
+    }
+
+    public List<Film> findByIdsLocal(List<Long> ids) {
+        return router.findByIdsLocal(ids);
+    }
+
+    public long versionLocal() {
+        return super.version();
+    }
+
+    /**
+     * Закрепляет ключи локальных сущностей в реестре узла {@code node}, см. {@link ShardKeyRecovery}.
+     */
+    public int restoreKeysLocal(String node) {
+        return router.restoreKeys(node);
+    }
+
+    public Film updateLocal(Film film, Long expectedVersion) {
+        return router.updateLocal(film, expectedVersion);
+    }
+
+    public List<RankedFilm> findPopularLocal(int count) {
+        List<RankedFilm> result = new ArrayList<>();
+        for (Film film : super.findPopular(count)) {
+            result.add(new RankedFilm(countLikes(film.getId()), film));
+        }
+        return result;
+    }
+
+    public List<Film> searchLocal(String query, int limit) {
+        return super.search(query, limit);
+    }
+
+    public List<Film> findByRangesLocal(LocalDate releasedFrom, LocalDate releasedTo, Integer minDuration,
+                                        Integer maxDuration, long afterId, int limit) {
+        // базовая реализация при пустом фильтре читает findPage(), который здесь маршрутизируется
+        if (releasedFrom == null && releasedTo == null && minDuration == null && maxDuration == null) {
+            return super.findPage(afterId, limit);
+        }
+        return super.findByRanges(releasedFrom, releasedTo, minDuration, maxDuration, afterId, limit);
+    }
+
+    public boolean addLikeLocal(long filmId, long userId) {
+        return super.addLike(filmId, userId);
+    }
+
+    public boolean removeLikeLocal(long filmId, long userId) {
+        return super.removeLike(filmId, userId);
+    }
+
+    private static String likePath(long filmId, long userId) {
+        return "/films/" + filmId + "/like/" + userId;
+    }
+
+    private static void appendParam(StringBuilder query, String name, Object value) {
+        if (value != null) {
+            query.append(name).append('=').append(value).append('&');
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityCodec;
+import ru.yandex.practicum.filmorate.storage.StorageSnapshot;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Хранилище пользователей узла кластера. Каждая сторона дружбы хранится на узле-владельце
+ * пользователя, поэтому добавление друга — две точечные записи, возможно на разных узлах.
+ * Методы с суффиксом {@code Local} работают только с данными этого узла
+ * и вызываются из {@link ShardController}.
+ */
+public class ShardedUserStorage extends UserStorage {
+    private final ShardCluster cluster;
+    private final ShardRouter<User> router;
+
+    public ShardedUserStorage(ShardCluster cluster, EntityCodec<User> codec) {
+        super(codec);
+        this.cluster = cluster;
+        this.router = new ShardRouter<>(cluster, "users", User.class, new TypeReference<>() {
+                },
+                new ShardRouter.Entity<>(User::getId, User::setId, User::getVersion, User::getEmail,
+                        getDuplicateMessage()),
+                new ShardRouter.Local<>(super::findById, super::findPage, super::findAll, super::version,
+                        super::getNextId, super::saveWithId, super::patch));
+    }
+
+    @Override
+    protected Long getNextId() {
+        return router.nextId();
+    }
+
+    @Override
+    public User findById(Long id) {
+        return id == null ? null : router.findById(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return findById(id) != null;
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return router.findAll();
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return router.findPage(afterId, limit);
+    }
+
+    @Override
+    public StorageSnapshot<User> snapshot() {
+        return router.snapshot(super.snapshot());
+    }
+
+    /**
+     * Данные других узлов кодируются на месте, локальные берутся из фрагментов.
+     */
+    @Override
+    public byte[] findAllJson() {
+        return toJson(findAll());
+    }
+
+    @Override
+    public byte[] findPageJson(long afterId, int limit) {
+        return toJson(findPage(afterId, limit));
+    }
+
+    @Override
+    public long version() {
+        return router.version();
+    }
+
+    @Override
+    public boolean isVersionLocal() {
+        return false;
+    }
+
+    @Override
+    public User save(User user) {
+        return router.save(user);
+    }
+
+    @Override
+    public void saveAll(List<User> users, ObjIntConsumer<RuntimeException> onReject) {
+        router.saveAll(users, onReject);
+    }
+
+    @Override
+    public void updateAll(List<User> users, ObjIntConsumer<RuntimeException> onReject) {
+        router.updateAll(users, onReject);
+    }
+
+    @Override
+    public User update(User user) {
+        return router.update(user);
+    }
+
+    @Override
+    public User patch(long id, Long expectedVersion, UnaryOperator<User> change) {
+        return router.patch(id, expectedVersion, change);
+    }
+
+    @Override
+    protected void linkFriend(long userId, long friendId) {
+        if (cluster.isLocal(userId)) {
+            super.linkFriend(userId, friendId);
+        } else {
+            cluster.send(cluster.ownerOf(userId), "PUT", friendPath(userId, friendId), null, Boolean.class);
+        }
+    }
+
+    @Override
+    protected void unlinkFriend(long userId, long friendId) {
+        if (cluster.isLocal(userId)) {
+            super.unlinkFriend(userId, friendId);
+        } else {
+            cluster.send(cluster.ownerOf(userId), "DELETE", friendPath(userId, friendId), null, Boolean.class);
+        }
+    }
+
+    @Override
+    public long[] friendIds(long userId) {
+        return cluster.isLocal(userId)
+                ? super.friendIds(userId)
+                : cluster.send(cluster.ownerOf(userId), "GET", "/users/" + userId + "/friend-ids", null, long[].class);
+    }
+
+    @Override
+    protected List<User> findAllByIds(long[] ids) {
+        return router.findByIds(ids);
+    }
+
+    public Collection<User> findAllLocal() {
+        return super.findAll();
+    }
+
+    public List<User> findPageLocal(long afterId, int limit) {
+        return super.findPage(afterId, limit);
+    }
+
+    public List<User> findByIdsLocal(List<Long> ids) {
+        return router.findByIdsLocal(ids);
+    }
+
+    public long versionLocal() {
+        return super.version();
+    }
+
+    /**
+     * Закрепляет ключи локальных сущностей в реестре узла {@code node}, см. {@link ShardKeyRecovery}.
+     */
+    public int restoreKeysLocal(String node) {
+        return router.restoreKeys(node);
+    }
+
+    public User updateLocal(User user, Long expectedVersion) {
+        return router.updateLocal(user, expectedVersion);
+    }
+
+    public void linkFriendLocal(long userId, long friendId) {
+        super.linkFriend(userId, friendId);
+    }
+
+    public void unlinkFriendLocal(long userId, long friendId) {
+        super.unlinkFriend(userId, friendId);
+    }
+
+    public long[] friendIdsLocal(long userId) {
+        return super.friendIds(userId);
+    }
+
+    private static String friendPath(long userId, long friendId) {
+        return "/users/" + userId + "/friends/" + friendId;
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+@Slf4j
+@Configuration
+public class JacksonConfig {
+    private static final String JACKSON_PREFIX = "spring.jackson.";
+
+    /**
+     * Заменяет ObjectMapper Spring Boot общим экземпляром, которым кодируют JSON хранилище,
+     * журнал, репликация и кластер. Он создаётся вне контекста, поэтому настройки
+     * {@code spring.jackson.*} к нему не применяются; заданные настройки попадают в лог.
+     */
+    @Bean
+    public ObjectMapper objectMapper(ConfigurableEnvironment environment) {
+        Set<String> ignored = new TreeSet<>();
+        environment.getPropertySources().forEach(source -> {
+            if (source instanceof EnumerablePropertySource<?> enumerable) {
+                Arrays.stream(enumerable.getPropertyNames())
+                        .filter(name -> name.startsWith(JACKSON_PREFIX))
+                        .forEach(ignored::add);
+            }
+        });
+        if (!ignored.isEmpty()) {
+            log.warn("Настройки {} не применяются: JSON кодирует общий ObjectMapper (util.Json)", ignored);
+        }
+        return Json.MAPPER;
+    }
+}
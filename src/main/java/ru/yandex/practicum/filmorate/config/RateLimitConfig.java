@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.ratelimit.AdmissionControl;
+import ru.yandex.practicum.filmorate.ratelimit.RateLimitFilter;
+import ru.yandex.practicum.filmorate.ratelimit.RateLimiter;
+
+import java.util.Set;
+
+/**
+ * Фильтр подключается, если включено ограничение частоты или адаптивный допуск; каждое из них
+ * работает и без другого.
+ */
+@Configuration
+@ConditionalOnExpression("${filmorate.ratelimit.enabled:false} or ${filmorate.admission.enabled:false}")
+public class RateLimitConfig {
+
+    @Value("${filmorate.ratelimit.enabled:false}")
+    private boolean rateLimitEnabled;
+
+    @Value("${filmorate.ratelimit.default:100/200}")
+    private String defaultLimit;
+
+    @Value("${filmorate.ratelimit.rules:}")
+    private String rules;
+
+    @Value("${filmorate.ratelimit.client-header:X-Client-Id}")
+    private String clientHeader;
+
+    @Value("${filmorate.ratelimit.trusted-proxies:}")
+    private Set<String> trustedProxies;
+
+    @Value("${filmorate.ratelimit.max-clients:10000}")
+    private int maxClients;
+
+    @Value("${filmorate.admission.enabled:false}")
+    private boolean admissionEnabled;
+
+    @Value("${filmorate.admission.p99-threshold-ms:500}")
+    private long p99ThresholdMs;
+
+    @Value("${filmorate.admission.window-ms:1000}")
+    private long windowMs;
+
+    /**
+     * Только API фильмов и пользователей: служебные и внутренние запросы узлов не ограничиваются.
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(ObjectProvider<MeterRegistry> registry) {
+        MeterRegistry meters = registry.getIfAvailable(() -> Metrics.globalRegistry);
+        RateLimiter rateLimiter = rateLimitEnabled ? new RateLimiter(rules, defaultLimit, maxClients, meters) : null;
+        AdmissionControl admission = admissionEnabled ? new AdmissionControl(p99ThresholdMs, windowMs, meters) : null;
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+                new RateLimitFilter(rateLimiter, admission, clientHeader, trustedProxies));
+        registration.addUrlPatterns("/films", "/films/*", "/users", "/users/*");
+        return registration;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Фиксирует время от старта JVM до готовности приложения принимать запросы
+ * (включая восстановление хранилищ из снимков).
+ */
+@Slf4j
+@Component
+public class ReadinessReporter {
+    private volatile long readyMillis = -1;
+
+    public ReadinessReporter(ObjectProvider<MeterRegistry> registry) {
+        Gauge.builder("filmorate.readiness.time", this, ReadinessReporter::getReadyMillis)
+                .baseUnit("milliseconds")
+                .register(registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        log.info("Filmorate ready to accept traffic in {} ms", readyMillis);
+    }
+
+    public long getReadyMillis() {
+        return readyMillis;
+    }
+}
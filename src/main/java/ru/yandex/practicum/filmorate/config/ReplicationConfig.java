@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.replication.ReplicaClient;
+import ru.yandex.practicum.filmorate.replication.ReplicationFilter;
+import ru.yandex.practicum.filmorate.replication.ReplicationSource;
+import ru.yandex.practicum.filmorate.storage.ChangeFeed;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+
+@Configuration
+public class ReplicationConfig {
+
+    @Value("${filmorate.replication.port:7070}")
+    private int port;
+
+    @Value("${filmorate.replication.primary:localhost:7070}")
+    private String primary;
+
+    @Value("${filmorate.replication.max-wait-ms:1000}")
+    private long maxWaitMs;
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "filmorate.replication.role", havingValue = "primary")
+    public ReplicationSource replicationSource(ChangeFeed changeFeed, FilmStorage filmStorage,
+                                               UserStorage userStorage, ObjectProvider<MeterRegistry> registry)
+            throws IOException {
+        return new ReplicationSource(port, changeFeed, filmStorage, userStorage,
+                registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.replication.role", havingValue = "primary")
+    public ReplicationFilter primaryReplicationFilter(ChangeFeed changeFeed) {
+        return ReplicationFilter.primary(changeFeed::lastSeq);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "filmorate.replication.role", havingValue = "replica")
+    public ReplicaClient replicaClient(FilmStorage filmStorage, UserStorage userStorage,
+                                       ObjectProvider<MeterRegistry> registry) {
+        return new ReplicaClient(primary, filmStorage, userStorage,
+                registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.replication.role", havingValue = "replica")
+    public ReplicationFilter replicaReplicationFilter(ReplicaClient replicaClient) {
+        return ReplicationFilter.replica(replicaClient, maxWaitMs);
+    }
+}
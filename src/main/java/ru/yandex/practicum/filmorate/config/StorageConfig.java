@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.cluster.ShardCluster;
+import ru.yandex.practicum.filmorate.cluster.ShardSecretFilter;
+import ru.yandex.practicum.filmorate.cluster.ShardedFilmStorage;
+import ru.yandex.practicum.filmorate.cluster.ShardedUserStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ChangeFeed;
+import ru.yandex.practicum.filmorate.storage.CompactFilmCodec;
+import ru.yandex.practicum.filmorate.storage.CompactUserCodec;
+import ru.yandex.practicum.filmorate.storage.EntityCodec;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage;
+import ru.yandex.practicum.filmorate.storage.Link;
+import ru.yandex.practicum.filmorate.storage.RecommendationIndex;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Configuration
+public class StorageConfig {
+
+    @Value("${filmorate.storage.persistence.enabled:false}")
+    private boolean persistenceEnabled;
+
+    @Value("${filmorate.storage.persistence.dir:data}")
+    private Path persistenceDir;
+
+    @Value("${filmorate.storage.persistence.snapshot-interval:100000}")
+    private long snapshotInterval;
+
+    @Value("${filmorate.storage.persistence.load-parallelism:0}")
+    private int loadParallelism;
+
+    @Value("${filmorate.storage.layout:objects}")
+    private String layout;
+
+    @Value("${filmorate.storage.json-fragments:true}")
+    private boolean jsonFragments;
+
+    @Value("${filmorate.recommendations.queue-capacity:100000}")
+    private int recommendationQueueCapacity;
+
+    @Value("${filmorate.recommendations.max-staleness-ms:100}")
+    private long recommendationMaxStalenessMs;
+
+    @Value("${filmorate.recommendations.max-likers-per-film:" + RecommendationIndex.DEFAULT_MAX_LIKERS_PER_FILM + "}")
+    private int recommendationMaxLikersPerFilm;
+
+    @Value("${filmorate.changes.capacity:65536}")
+    private int changesCapacity;
+
+    @Value("${filmorate.replication.role:standalone}")
+    private String replicationRole;
+
+    @Value("${filmorate.cluster.nodes:}")
+    private List<String> clusterNodes;
+
+    @Value("${filmorate.cluster.self:}")
+    private String clusterSelf;
+
+    @Value("${filmorate.cluster.secret:}")
+    private String clusterSecret;
+
+    private final List<InMemoryStorage<?>> persistentStorages = new CopyOnWriteArrayList<>();
+
+    @Bean(destroyMethod = "close")
+    public RecommendationIndex recommendationIndex() {
+        return new RecommendationIndex(recommendationQueueCapacity, recommendationMaxStalenessMs,
+                recommendationMaxLikersPerFilm);
+    }
+
+    @Bean
+    public ChangeFeed changeFeed() {
+        return new ChangeFeed(changesCapacity);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+    public ShardCluster shardCluster() {
+        if (!"standalone".equals(replicationRole)) {
+            throw new IllegalArgumentException("Шардирование и репликация вместе не поддерживаются");
+        }
+        return new ShardCluster(clusterNodes, clusterSelf, clusterSecret);
+    }
+
+    /**
+     * Внутренний API узлов слушает тот же порт, что и публичный, поэтому закрыт общим секретом.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+    public FilterRegistrationBean<ShardSecretFilter> shardSecretFilter(ShardCluster shardCluster) {
+        FilterRegistrationBean<ShardSecretFilter> registration =
+                new FilterRegistrationBean<>(new ShardSecretFilter(shardCluster));
+        registration.addUrlPatterns(ShardCluster.INTERNAL_PATH + "/*");
+        return registration;
+    }
+
+    @Bean
+    public FilmStorage filmStorage(RecommendationIndex recommendationIndex, ChangeFeed changeFeed,
+                                   ObjectProvider<ShardCluster> cluster, ObjectProvider<MeterRegistry> registry) {
+        EntityCodec<Film> codec = isCompact() ? new CompactFilmCodec() : EntityCodec.objects(Film::copy);
+        ShardCluster shardCluster = cluster.getIfAvailable();
+        FilmStorage storage = shardCluster != null
+                ? new ShardedFilmStorage(shardCluster, codec)
+                : new FilmStorage(codec);
+        // реестр контекста: у нескольких приложений в одной JVM метры хранилищ не смешиваются
+        storage.registerMetrics(registry.getIfAvailable(() -> Metrics.globalRegistry));
+        storage.setLikeListener(recommendationIndex);
+        if (jsonFragments) {
+            storage.enableJsonFragments();
+        }
+        if (!isReplica()) {
+            attachJournal(storage, "films", Film.class);
+            if (persistenceEnabled) {
+                // журнал лайков закрывается вместе с журналом фильмов
+                storage.attachLikesJournal(journal("likes", Link.class));
+            }
+            storage.attachChangeFeed(changeFeed, "film");
+        }
+        return storage;
+    }
+
+    @Bean
+    public UserStorage userStorage(ChangeFeed changeFeed, ObjectProvider<ShardCluster> cluster,
+                                   ObjectProvider<MeterRegistry> registry) {
+        EntityCodec<User> codec = isCompact() ? new CompactUserCodec() : EntityCodec.objects(User::copy);
+        ShardCluster shardCluster = cluster.getIfAvailable();
+        UserStorage storage = shardCluster != null
+                ? new ShardedUserStorage(shardCluster, codec)
+                : new UserStorage(codec);
+        storage.registerMetrics(registry.getIfAvailable(() -> Metrics.globalRegistry));
+        if (jsonFragments) {
+            storage.enableJsonFragments();
+        }
+        if (!isReplica()) {
+            attachJournal(storage, "users", User.class);
+            if (persistenceEnabled) {
+                storage.attachFriendsJournal(journal("friends", Link.class));
+            }
+            storage.attachChangeFeed(changeFeed, "user");
+        }
+        return storage;
+    }
+
+    @PreDestroy
+    public void closeStorages() {
+        persistentStorages.forEach(InMemoryStorage::closeJournal);
+    }
+
+    /**
+     * Реплика получает данные только с ведущего узла: без журнала и своей ленты изменений.
+     */
+    private boolean isReplica() {
+        if (!List.of("standalone", "primary", "replica").contains(replicationRole)) {
+            throw new IllegalArgumentException("filmorate.replication.role: ожидается standalone, primary или replica, "
+                    + "получено " + replicationRole);
+        }
+        return "replica".equals(replicationRole);
+    }
+
+    private boolean isCompact() {
+        if (!"objects".equals(layout) && !"compact".equals(layout)) {
+            throw new IllegalArgumentException("filmorate.storage.layout: ожидается objects или compact, получено " + layout);
+        }
+        return "compact".equals(layout);
+    }
+
+    private <T> void attachJournal(InMemoryStorage<T> storage, String name, Class<T> type) {
+        if (!persistenceEnabled) {
+            return;
+        }
+        storage.attachJournal(journal(name, type));
+        persistentStorages.add(storage);
+    }
+
+    private <T> StorageJournal<T> journal(String name, Class<T> type) {
+        int parallelism = loadParallelism > 0 ? loadParallelism : Runtime.getRuntime().availableProcessors();
+        return new StorageJournal<>(persistenceDir.resolve(name), type, snapshotInterval, parallelism);
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpStatus;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.validator.Validator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Пакетная обработка: записи сначала проверяются по одной, затем все прошедшие проверку
+ * пишутся в хранилище одним вызовом (одно ожидание журнала на пакет).
+ * Ошибка в одной записи не прерывает обработку остальных.
+ * Некорректная запись отклоняется по результату проверки, без исключения.
+ */
+public final class BatchExecutor {
+    private BatchExecutor() {
+    }
+
+    /**
+     * Запись пакета в хранилище: {@code onReject} получает ошибку и номер записи в переданном списке.
+     */
+    @FunctionalInterface
+    public interface BulkWrite<T> {
+        void write(List<T> items, ObjIntConsumer<RuntimeException> onReject);
+    }
+
+    public static <T> List<BatchItemResult> execute(List<T> items, Validator<T> validator, BulkWrite<T> write,
+                                                    Function<T, Long> idOf) {
+        return execute(items, validator, item -> {
+        }, write, idOf);
+    }
+
+    /**
+     * {@code prepare} вызывается для каждой корректной записи до записи пакета
+     * (проверка существования, значения по умолчанию) и может отклонить её исключением.
+     */
+    public static <T> List<BatchItemResult> execute(List<T> items, Validator<T> validator, Consumer<T> prepare,
+                                                    BulkWrite<T> write, Function<T, Long> idOf) {
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        List<T> accepted = new ArrayList<>(items.size());
+        int[] indexes = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            if (item == null) {
+                results[i] = new BatchItemResult(i, null, HttpStatus.BAD_REQUEST.value(), "Пустая запись");
+                continue;
+            }
+            try {
+                Map<String, String> violations = validator.violations(item);
+                if (!violations.isEmpty()) {
+                    results[i] = new BatchItemResult(i, null, HttpStatus.BAD_REQUEST.value(),
+                            ValidationException.describe(violations));
+                    continue;
+                }
+                prepare.accept(item);
+                indexes[accepted.size()] = i;
+                accepted.add(item);
+            } catch (RuntimeException ex) {
+                results[i] = failure(i, ex);
+            }
+        }
+        write.write(accepted, (ex, position) -> results[indexes[position]] = failure(indexes[position], ex));
+        for (int position = 0; position < accepted.size(); position++) {
+            int i = indexes[position];
+            if (results[i] == null) {
+                results[i] = new BatchItemResult(i, idOf.apply(accepted.get(position)), HttpStatus.OK.value(), null);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private static BatchItemResult failure(int index, RuntimeException ex) {
+        if (ex instanceof ValidationException) {
+            return new BatchItemResult(index, null, HttpStatus.BAD_REQUEST.value(), ex.getMessage());
+        }
+        if (ex instanceof DuplicatedDataException) {
+            return new BatchItemResult(index, null, HttpStatus.CONFLICT.value(), ex.getMessage());
+        }
+        if (ex instanceof NotFoundException || ex instanceof NoSuchElementException) {
+            return new BatchItemResult(index, null, HttpStatus.NOT_FOUND.value(), ex.getMessage());
+        }
+        return new BatchItemResult(index, null, HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                "Unexpected error: " + ex.getMessage());
+    }
+}
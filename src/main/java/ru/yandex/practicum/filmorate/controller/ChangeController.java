@@ -0,0 +1,245 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.exception.ChangesExpiredException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.ChangeBatch;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.storage.ChangeFeed;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Лента изменений фильмов и пользователей. Потребитель сам задаёт темп: получает не больше
+ * {@code limit} событий за запрос и продолжает с номера {@code next} из ответа.
+ * Long-poll: если новых событий нет, ответ ждёт первого из них до {@code waitMs}, не занимая поток.
+ * SSE: события отправляются по мере появления из продолжения {@link ChangeFeed#nextChange()},
+ * между событиями поток запроса не занят; после переподключения чтение продолжается
+ * с {@code Last-Event-ID}. Отправка блокируется на медленном клиенте, поэтому идёт в своём пуле
+ * из {@code filmorate.changes.sse-threads} потоков, а не в общем {@code ForkJoinPool}.
+ * Один запуск отправляет клиенту не больше одной страницы и встаёт в конец очереди пула, так что
+ * непрерывный поток событий одного клиента не задерживает остальных. Если страница не ушла
+ * за {@code filmorate.changes.sse-send-timeout-ms}, поток отправки прерывается, а SSE-поток закрывается:
+ * клиент переподключится с {@code Last-Event-ID} и продолжит с последнего принятого события.
+ */
+@RestController
+@RequestMapping("/changes")
+public class ChangeController {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    // ниже тайм-аута асинхронного запроса (spring.mvc.async.request-timeout, 30 с): иначе ожидание
+    // на границе срока завершилось бы 503 контейнера, а не пустым ответом
+    private static final long MAX_WAIT_MS = 25_000;
+    private static final long SSE_STREAM_MS = 25_000;
+
+    private final ChangeFeed changeFeed;
+    private final long sendTimeoutMs;
+    private final ExecutorService sseDelivery;
+    private final ScheduledExecutorService sendWatchdog;
+
+    @Autowired
+    public ChangeController(ChangeFeed changeFeed, @Value("${filmorate.changes.sse-threads:4}") int sseThreads,
+                            @Value("${filmorate.changes.sse-send-timeout-ms:5000}") long sendTimeoutMs) {
+        this.changeFeed = changeFeed;
+        this.sendTimeoutMs = sendTimeoutMs;
+        AtomicInteger threads = new AtomicInteger();
+        this.sseDelivery = Executors.newFixedThreadPool(sseThreads, task -> {
+            Thread thread = new Thread(task, "sse-delivery-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sendWatchdog = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "sse-send-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        sseDelivery.shutdownNow();
+        sendWatchdog.shutdownNow();
+    }
+
+    @GetMapping
+    public CompletableFuture<ChangeBatch> poll(@RequestParam(defaultValue = "0") long since,
+                                               @RequestParam(required = false) Integer limit,
+                                               @RequestParam(defaultValue = "0") long waitMs) {
+        int pageSize = checkLimit(limit);
+        if (waitMs < 0 || waitMs > MAX_WAIT_MS) {
+            throw new ValidationException("Параметр waitMs должен быть от 0 до " + MAX_WAIT_MS);
+        }
+        CompletableFuture<Void> nextChange = changeFeed.nextChange();
+        List<ChangeEvent> events = changeFeed.read(since, pageSize);
+        if (!events.isEmpty() || waitMs == 0) {
+            return CompletableFuture.completedFuture(batch(since, events));
+        }
+        // по сроку завершается своя копия ожидания, а не общий сигнал;
+        // продолжение асинхронное: сигнал завершается в потоке писателя
+        return nextChange.copy().completeOnTimeout(null, waitMs, TimeUnit.MILLISECONDS)
+                .thenApplyAsync(ignored -> batch(since, changeFeed.read(since, pageSize)));
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) Long since,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                             @RequestParam(required = false) Integer limit) {
+        int pageSize = checkLimit(limit);
+        long start = lastEventId != null ? lastEventId : since != null ? since : changeFeed.lastSeq();
+        changeFeed.read(start, 1);
+        // по истечении срока поток закрывается, клиент переподключится с Last-Event-ID
+        SseEmitter emitter = createEmitter(SSE_STREAM_MS);
+        SseSubscription subscription = new SseSubscription(emitter, start, pageSize);
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        subscription.pump();
+        return emitter;
+    }
+
+    /**
+     * Точка подмены для тестов: медленного клиента изображает эмиттер с блокирующей отправкой.
+     */
+    SseEmitter createEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private ChangeBatch batch(long since, List<ChangeEvent> events) {
+        return new ChangeBatch(events, events.isEmpty() ? since : events.get(events.size() - 1).getSeq());
+    }
+
+    private int checkLimit(Integer limit) {
+        int pageSize = limit == null ? DEFAULT_LIMIT : limit;
+        if (pageSize <= 0 || pageSize > MAX_LIMIT) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_LIMIT);
+        }
+        return pageSize;
+    }
+
+    /**
+     * Один SSE-клиент: отправляет страницу событий после курсора и либо встаёт в очередь пула
+     * за следующей, либо подписывается на следующее изменение. Одновременно выполняется не больше
+     * одного {@link #pump()}: следующий ставится в пул только тем, что выполняется сейчас.
+     */
+    private final class SseSubscription {
+        private final SseEmitter emitter;
+        private final int pageSize;
+        private final ReentrantLock sendLock = new ReentrantLock();
+        private long cursor;
+        // поток, который сейчас отправляет страницу; под sendLock
+        private Thread sender;
+        private volatile boolean expired;
+        private volatile boolean cancelled;
+
+        SseSubscription(SseEmitter emitter, long cursor, int pageSize) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.pageSize = pageSize;
+        }
+
+        void pump() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                CompletableFuture<Void> nextChange = changeFeed.nextChange();
+                List<ChangeEvent> events = changeFeed.read(cursor, pageSize);
+                if (events.isEmpty()) {
+                    // продолжение асинхронное: сигнал завершается в потоке писателя
+                    nextChange.thenRunAsync(this::pump, sseDelivery);
+                    return;
+                }
+                sendPage(events);
+                if (expired) {
+                    emitter.complete();
+                    return;
+                }
+                // одна страница за запуск: между страницами пул обслуживает остальных клиентов
+                sseDelivery.execute(this::pump);
+            } catch (ChangesExpiredException e) {
+                // клиент отстал на весь буфер: после переподключения получит 410
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // клиент отключился, поток уже закрыт по сроку или отправка прервана по сроку страницы
+                cancel();
+                if (expired) {
+                    emitter.complete();
+                }
+            } catch (RejectedExecutionException e) {
+                // контроллер закрывается
+                cancel();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        private void sendPage(List<ChangeEvent> events) throws IOException {
+            sendLock.lock();
+            try {
+                sender = Thread.currentThread();
+            } finally {
+                sendLock.unlock();
+            }
+            ScheduledFuture<?> deadline = sendWatchdog.schedule(this::expire, sendTimeoutMs, TimeUnit.MILLISECONDS);
+            try {
+                for (ChangeEvent event : events) {
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(event.getSeq()))
+                            .name("change")
+                            .data(event, MediaType.APPLICATION_JSON));
+                    cursor = event.getSeq();
+                }
+            } finally {
+                deadline.cancel(false);
+                sendLock.lock();
+                try {
+                    sender = null;
+                    if (expired) {
+                        // прерывание относилось к этой отправке, а не к следующей задаче пула
+                        Thread.interrupted();
+                    }
+                } finally {
+                    sendLock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Срок страницы истёк: клиент не принимает данные, поток пула освобождается прерыванием отправки.
+         */
+        private void expire() {
+            sendLock.lock();
+            try {
+                if (sender != null) {
+                    expired = true;
+                    cancelled = true;
+                    sender.interrupt();
+                }
+            } finally {
+                sendLock.unlock();
+            }
+        }
+    }
+}
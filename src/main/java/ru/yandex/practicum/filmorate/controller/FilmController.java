@@ -1,58 +1,166 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
 import ru.yandex.practicum.filmorate.validator.FilmValidator;
 
-import java.util.Collection;
+import java.time.LocalDate;
+import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/films")
 public class FilmController {
 
-    private final FilmStorage filmStorage = new FilmStorage();
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final FilmValidator VALIDATOR = FilmValidator.INSTANCE;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ResponseCache responseCache = new ResponseCache();
+
+    public FilmController(FilmStorage filmStorage, UserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
 
     @GetMapping
-    public Collection<Film> findAll() {
-        return filmStorage.findAll();
+    public ResponseEntity<byte[]> findAll(@RequestParam(required = false) Long after,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE)
+                                          LocalDate releasedFrom,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE)
+                                          LocalDate releasedTo,
+                                          @RequestParam(required = false) Integer minDuration,
+                                          @RequestParam(required = false) Integer maxDuration) {
+        if (!filmStorage.isVersionLocal()) {
+            // версия кластера — опрос всех узлов, поэтому ETag строится по самому ответу
+            return ResponseCache.tagged(query(after, limit, releasedFrom, releasedTo, minDuration, maxDuration));
+        }
+        String key = after + "|" + limit + "|" + releasedFrom + "|" + releasedTo + "|" + minDuration + "|" + maxDuration;
+        return responseCache.getEncoded(key, filmStorage.version(),
+                () -> query(after, limit, releasedFrom, releasedTo, minDuration, maxDuration));
+    }
+
+    private byte[] query(Long after, Integer limit, LocalDate releasedFrom, LocalDate releasedTo,
+                         Integer minDuration, Integer maxDuration) {
+        if (releasedFrom != null || releasedTo != null || minDuration != null || maxDuration != null) {
+            int pageSize = after == null && limit == null ? Integer.MAX_VALUE : checkPageSize(limit);
+            return filmStorage.toJson(filmStorage.findByRanges(releasedFrom, releasedTo, minDuration, maxDuration,
+                    after == null ? 0 : after, pageSize));
+        }
+        if (after == null && limit == null) {
+            return filmStorage.findAllJson();
+        }
+        return filmStorage.findPageJson(after == null ? 0 : after, checkPageSize(limit));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll(@RequestParam(required = false) Long after) {
+        return NdjsonStreamer.stream(filmStorage, after == null ? 0 : after);
+    }
+
+    @GetMapping("/popular")
+    public ResponseEntity<byte[]> findPopular(@RequestParam(defaultValue = "10") int count) {
+        if (count <= 0) {
+            throw new ValidationException("Параметр count должен быть положительным");
+        }
+        return ResponseCache.json(filmStorage.toJson(filmStorage.findPopular(count)));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<byte[]> search(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        return ResponseCache.json(filmStorage.toJson(filmStorage.search(q, checkPageSize(limit))));
+    }
+
+    @PutMapping("/{id}/like/{userId}")
+    public void addLike(@PathVariable long id, @PathVariable long userId) {
+        log.debug("addLike parameters: filmId {}, userId {}", id, userId);
+        checkFilmAndUserExist(id, userId);
+        filmStorage.addLike(id, userId);
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public void removeLike(@PathVariable long id, @PathVariable long userId) {
+        log.debug("removeLike parameters: filmId {}, userId {}", id, userId);
+        checkFilmAndUserExist(id, userId);
+        filmStorage.removeLike(id, userId);
     }
 
     @PostMapping
-    public Film create(@Valid @RequestBody Film film) {
+    public Film create(@RequestBody Film film) {
         log.debug("createFilm parameters: name {}, description {}, releaseDate {}, duration {}",
                 film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration());
-        checkFilmDuplicates(film);
-        new FilmValidator().validate(film);
+        VALIDATOR.validate(film);
         return filmStorage.save(film);
     }
 
     @PutMapping
-    public Film update(@Valid @RequestBody Film newFilm) {
+    public Film update(@RequestBody Film newFilm) {
         log.debug("updateFilm parameters: id {}, name {}, description {}, releaseDate {}, duration {}",
                 newFilm.getId(), newFilm.getName(), newFilm.getDescription(), newFilm.getReleaseDate(),
                 newFilm.getDuration());
+        VALIDATOR.validate(newFilm);
         if (!filmStorage.existsById(newFilm.getId())) {
             throw new NotFoundException("Фильм с id = " + newFilm.getId() + " не найден");
         }
-        checkFilmDuplicates(newFilm);
         return filmStorage.update(newFilm);
     }
 
-    private void checkFilmDuplicates(Film film) {
-        boolean duplicate = filmStorage.findAll().stream()
-                .anyMatch(existing ->
-                        !existing.getId().equals(film.getId()) &&
-                                existing.getName().equals(film.getName())
-                );
+    @PatchMapping("/{id}")
+    public Film patch(@PathVariable long id, @RequestBody FilmPatch patch) {
+        log.debug("patchFilm parameters: id {}, patch {}", id, patch);
+        VALIDATOR.validate(patch);
+        if (!filmStorage.existsById(id)) {
+            throw new NotFoundException("Фильм с id = " + id + " не найден");
+        }
+        return filmStorage.patch(id, patch.getVersion(), patch::applyTo);
+    }
+
+    @PostMapping("/batch")
+    public List<BatchItemResult> createBatch(@RequestBody List<Film> films) {
+        log.debug("createFilms batch size {}", films.size());
+        return BatchExecutor.execute(films, VALIDATOR, filmStorage::saveAll, Film::getId);
+    }
+
+    @PutMapping("/batch")
+    public List<BatchItemResult> updateBatch(@RequestBody List<Film> films) {
+        log.debug("updateFilms batch size {}", films.size());
+        return BatchExecutor.execute(films, VALIDATOR, film -> checkFilmExists(film.getId()),
+                filmStorage::updateAll, Film::getId);
+    }
+
+    private int checkPageSize(Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return pageSize;
+    }
+
+    private void checkFilmExists(Long id) {
+        if (!filmStorage.existsById(id)) {
+            throw new NotFoundException("Фильм с id = " + id + " не найден");
+        }
+    }
 
-        if (duplicate) {
-            throw new DuplicatedDataException("Фильм с таким названием уже существует");
+    private void checkFilmAndUserExist(long filmId, long userId) {
+        checkFilmExists(filmId);
+        if (!userStorage.existsById(userId)) {
+            throw new NotFoundException("Юзер с id = " + userId + " не найден");
         }
     }
 }
\ No newline at end of file
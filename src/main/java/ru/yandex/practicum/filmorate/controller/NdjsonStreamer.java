@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage;
+import ru.yandex.practicum.filmorate.storage.StorageSnapshot;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.util.List;
+
+/**
+ * Потоковая выдача содержимого хранилища в формате NDJSON (одна сущность на строку).
+ * Сущности читаются страницами по курсору из одного среза хранилища, поэтому память
+ * не зависит от размера хранилища, а записи во время выдачи в ответ не попадают.
+ */
+public final class NdjsonStreamer {
+    private static final int CHUNK_SIZE = 500;
+    private static final ObjectWriter WRITER = Json.MAPPER.writer();
+
+    private NdjsonStreamer() {
+    }
+
+    public static <T> StreamingResponseBody stream(InMemoryStorage<T> storage, long afterId) {
+        return out -> {
+            StorageSnapshot<T> snapshot = storage.snapshot();
+            long cursor = afterId;
+            List<T> chunk = snapshot.findPage(cursor, CHUNK_SIZE);
+            while (!chunk.isEmpty()) {
+                for (T entity : chunk) {
+                    WRITER.writeValue(out, entity);
+                    out.write('\n');
+                }
+                out.flush();
+                cursor = storage.idOf(chunk.get(chunk.size() - 1));
+                chunk = snapshot.findPage(cursor, CHUNK_SIZE);
+            }
+        };
+    }
+}
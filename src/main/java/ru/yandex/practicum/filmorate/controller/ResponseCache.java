@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш сериализованных ответов для чтения коллекций. Запись помечена версией хранилища,
+ * на которой она собрана; любая запись в хранилище увеличивает версию, и старые ответы
+ * перестают совпадать. ETag строится из версии, поэтому If-None-Match с актуальной версией
+ * даёт 304 (проверку выполняет Spring по заголовку ETag ответа).
+ * Размер кэша ограничен числом записей и суммарным объёмом тел.
+ */
+public class ResponseCache {
+    private static final int DEFAULT_MAX_ENTRIES = 256;
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    // отличает ETag разных запусков: версия после рестарта начинается заново
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    public ResponseCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    public ResponseCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Возвращает тело для ключа запроса из кэша, если оно собрано на текущей версии,
+     * иначе берёт готовое JSON-тело у {@code loader} и запоминает его.
+     * Версию нужно читать до выборки данных, чтобы ответ не оказался старше своей метки.
+     */
+    public ResponseEntity<byte[]> getEncoded(String key, long version, Supplier<byte[]> loader) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.version() != version) {
+            entry = new Entry(version, loader.get(), "\"" + epoch + "-" + version + "\"");
+            store(key, entry);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(entry.etag())
+                .body(entry.body());
+    }
+
+    /**
+     * Ответ без кэширования с ETag по содержимому тела — для данных, версию которых
+     * нельзя узнать дешевле самой выборки. If-None-Match по-прежнему даёт 304.
+     */
+    static ResponseEntity<byte[]> tagged(byte[] body) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag("\"" + HexFormat.of().formatHex(Arrays.copyOf(digest, 16)) + "\"")
+                .body(body);
+    }
+
+    /**
+     * Ответ с готовым JSON-телом, без кэширования.
+     */
+    static ResponseEntity<byte[]> json(byte[] body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private void store(String key, Entry entry) {
+        if (entry.body().length > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        totalBytes.addAndGet(entry.body().length - (previous == null ? 0 : previous.body().length));
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalBytes.get() > maxBytes) && iterator.hasNext()) {
+            Map.Entry<String, Entry> evicted = iterator.next();
+            if (!evicted.getKey().equals(key) && entries.remove(evicted.getKey(), evicted.getValue())) {
+                totalBytes.addAndGet(-evicted.getValue().body().length);
+            }
+        }
+    }
+
+    private record Entry(long version, byte[] body, String etag) {
+    }
+}
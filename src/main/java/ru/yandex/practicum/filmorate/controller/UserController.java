@@ -1,66 +1,169 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserPatch;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.RecommendationIndex;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 import ru.yandex.practicum.filmorate.validator.UserValidator;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
-    private final UserStorage userStorage = new UserStorage();
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final UserValidator VALIDATOR = UserValidator.INSTANCE;
+
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final RecommendationIndex recommendationIndex;
+    private final ResponseCache responseCache = new ResponseCache();
+
+    public UserController(UserStorage userStorage, FilmStorage filmStorage,
+                          RecommendationIndex recommendationIndex) {
+        this.userStorage = userStorage;
+        this.filmStorage = filmStorage;
+        this.recommendationIndex = recommendationIndex;
+    }
 
     @GetMapping
-    public Collection<User> findAll() {
-        return userStorage.findAll();
+    public ResponseEntity<byte[]> findAll(@RequestParam(required = false) Long after,
+                                          @RequestParam(required = false) Integer limit) {
+        if (!userStorage.isVersionLocal()) {
+            // версия кластера — опрос всех узлов, поэтому ETag строится по самому ответу
+            return ResponseCache.tagged(query(after, limit));
+        }
+        return responseCache.getEncoded(after + "|" + limit, userStorage.version(), () -> query(after, limit));
+    }
+
+    private byte[] query(Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return userStorage.findAllJson();
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return userStorage.findPageJson(after == null ? 0 : after, pageSize);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll(@RequestParam(required = false) Long after) {
+        return NdjsonStreamer.stream(userStorage, after == null ? 0 : after);
+    }
+
+    @GetMapping("/{id}/friends")
+    public ResponseEntity<byte[]> findFriends(@PathVariable long id) {
+        checkUserExists(id);
+        return ResponseCache.json(userStorage.toJson(userStorage.findFriends(id)));
+    }
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public ResponseEntity<byte[]> findCommonFriends(@PathVariable long id, @PathVariable long otherId) {
+        checkUserExists(id);
+        checkUserExists(otherId);
+        return ResponseCache.json(userStorage.toJson(userStorage.findCommonFriends(id, otherId)));
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<byte[]> findRecommendations(@PathVariable long id) {
+        checkUserExists(id);
+        List<Film> films = new ArrayList<>();
+        for (long filmId : recommendationIndex.recommend(id)) {
+            Film film = filmStorage.findById(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return ResponseCache.json(filmStorage.toJson(films));
+    }
+
+    @PutMapping("/{id}/friends/{friendId}")
+    public void addFriend(@PathVariable long id, @PathVariable long friendId) {
+        log.debug("addFriend parameters: id {}, friendId {}", id, friendId);
+        if (id == friendId) {
+            throw new ValidationException("Нельзя добавить в друзья самого себя");
+        }
+        checkUserExists(id);
+        checkUserExists(friendId);
+        userStorage.addFriend(id, friendId);
+    }
+
+    @DeleteMapping("/{id}/friends/{friendId}")
+    public void removeFriend(@PathVariable long id, @PathVariable long friendId) {
+        log.debug("removeFriend parameters: id {}, friendId {}", id, friendId);
+        checkUserExists(id);
+        checkUserExists(friendId);
+        userStorage.removeFriend(id, friendId);
     }
 
     @PostMapping
-    public User create(@Valid @RequestBody User user) {
+    public User create(@RequestBody User user) {
         log.debug("createUser parameters: name {}, email {}, login {}, birthday {}",
                 user.getName(), user.getEmail(), user.getLogin(), user.getBirthday());
 
-        checkUserDuplicates(user);
-        new UserValidator().validate(user);
-
-        if (user.getName() == null || user.getName().isBlank()) {
-            user.setName(user.getLogin());
-        }
+        VALIDATOR.validate(user);
+        user.fillDefaultName();
 
         return userStorage.save(user);
     }
 
     @PutMapping
-    public User update(@Valid @RequestBody User newUser) {
+    public User update(@RequestBody User newUser) {
         log.debug("updateUser parameters: id {}, name {}, email {}, login {}, birthday {}",
                 newUser.getId(), newUser.getName(), newUser.getEmail(),
                 newUser.getLogin(), newUser.getBirthday());
 
+        VALIDATOR.validate(newUser);
         if (!userStorage.existsById(newUser.getId())) {
             throw new NotFoundException("Юзер с id = " + newUser.getId() + " не найден");
         }
 
-        checkUserDuplicates(newUser);
         return userStorage.update(newUser);
     }
 
-    private void checkUserDuplicates(User user) {
-        boolean duplicate = userStorage.findAll().stream()
-                .anyMatch(existingUser ->
-                        !existingUser.getId().equals(user.getId()) &&
-                                existingUser.equals(user)
-                );
+    @PatchMapping("/{id}")
+    public User patch(@PathVariable long id, @RequestBody UserPatch patch) {
+        log.debug("patchUser parameters: id {}, patch {}", id, patch);
+        VALIDATOR.validate(patch);
+        checkUserExists(id);
+        return userStorage.patch(id, patch.getVersion(), current -> {
+            User user = patch.applyTo(current);
+            user.fillDefaultName();
+            return user;
+        });
+    }
+
+    @PostMapping("/batch")
+    public List<BatchItemResult> createBatch(@RequestBody List<User> users) {
+        log.debug("createUsers batch size {}", users.size());
+        return BatchExecutor.execute(users, VALIDATOR, User::fillDefaultName, userStorage::saveAll, User::getId);
+    }
+
+    @PutMapping("/batch")
+    public List<BatchItemResult> updateBatch(@RequestBody List<User> users) {
+        log.debug("updateUsers batch size {}", users.size());
+        return BatchExecutor.execute(users, VALIDATOR, user -> checkUserExists(user.getId()),
+                userStorage::updateAll, User::getId);
+    }
 
-        if (duplicate) {
-            throw new DuplicatedDataException("Этот имейл уже используется");
+    private void checkUserExists(Long id) {
+        if (!userStorage.existsById(id)) {
+            throw new NotFoundException("Юзер с id = " + id + " не найден");
         }
     }
 }
\ No newline at end of file
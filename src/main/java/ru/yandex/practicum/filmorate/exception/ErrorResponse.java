@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.Map;
@@ -7,6 +8,7 @@ import java.util.Map;
 @Data
 public class ErrorResponse {
     private String error;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Map<String, String> details;
 
     public ErrorResponse(String error) {
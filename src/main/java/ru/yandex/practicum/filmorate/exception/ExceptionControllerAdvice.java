@@ -1,44 +1,89 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.FieldError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
-
-import java.util.HashMap;
-import java.util.Map;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 @RestControllerAdvice
 public class ExceptionControllerAdvice {
+    private final Counter conflicts;
+    private final Counter versionConflicts;
+    private final Counter expired;
+    private final Counter notFound;
+    private final Counter invalid;
+    private final Counter unexpected;
+
+    @Autowired
+    public ExceptionControllerAdvice(ObjectProvider<MeterRegistry> registry) {
+        this(registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    public ExceptionControllerAdvice(MeterRegistry registry) {
+        conflicts = errors("duplicated", HttpStatus.CONFLICT, registry);
+        versionConflicts = errors("version_conflict", HttpStatus.CONFLICT, registry);
+        expired = errors("changes_expired", HttpStatus.GONE, registry);
+        notFound = errors("not_found", HttpStatus.NOT_FOUND, registry);
+        invalid = errors("validation", HttpStatus.BAD_REQUEST, registry);
+        unexpected = errors("unexpected", HttpStatus.INTERNAL_SERVER_ERROR, registry);
+    }
 
     @ExceptionHandler(DuplicatedDataException.class)
     public ResponseEntity<ErrorResponse> handleDuplicatedDataException(DuplicatedDataException ex) {
+        conflicts.increment();
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.CONFLICT); // 409
+    }
+
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<ErrorResponse> handleVersionConflictException(VersionConflictException ex) {
+        versionConflicts.increment();
         return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.CONFLICT); // 409
     }
 
+    @ExceptionHandler(ChangesExpiredException.class)
+    public ResponseEntity<ErrorResponse> handleChangesExpiredException(ChangesExpiredException ex) {
+        expired.increment();
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.GONE); // 410
+    }
+
     @ExceptionHandler(NotFoundException.class)
     public ResponseEntity<ErrorResponse> handleNotFoundException(NotFoundException ex) {
+        notFound.increment();
         return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.NOT_FOUND); // 404
     }
 
     @ExceptionHandler(ValidationException.class)
     public ResponseEntity<ErrorResponse> handleValidationException(ValidationException ex) {
+        invalid.increment();
+        return new ResponseEntity<>(new ErrorResponse(ex.getMessage(), ex.getDetails()), HttpStatus.BAD_REQUEST); // 400
+    }
+
+    /**
+     * Отсутствующий или некорректный параметр запроса — ошибка клиента, а не сервера.
+     */
+    @ExceptionHandler({MissingServletRequestParameterException.class, MethodArgumentTypeMismatchException.class})
+    public ResponseEntity<ErrorResponse> handleBadParameter(Exception ex) {
+        invalid.increment();
         return new ResponseEntity<>(new ErrorResponse(ex.getMessage()), HttpStatus.BAD_REQUEST); // 400
     }
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
+        unexpected.increment();
         return new ResponseEntity<>(new ErrorResponse("Unexpected error: " + ex.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR); // 500
     }
 
-    @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<ErrorResponse> handleMethodArgumentNotValid(MethodArgumentNotValidException ex) {
-        Map<String, String> fieldErrors = new HashMap<>();
-        for (FieldError error : ex.getBindingResult().getFieldErrors()) {
-            fieldErrors.put(error.getField(), error.getDefaultMessage());
-        }
-        return new ResponseEntity<>(new ErrorResponse("Validation failed", fieldErrors), HttpStatus.BAD_REQUEST);
+    private static Counter errors(String type, HttpStatus status, MeterRegistry registry) {
+        return Counter.builder("filmorate.errors")
+                .tag("type", type)
+                .tag("status", String.valueOf(status.value()))
+                .register(registry);
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,32 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import java.util.Map;
+
+/**
+ * Ошибка во входных данных. Стек не собирается: причина — в запросе, а не в коде,
+ * а поток некорректных запросов не должен стоить обхода стека на каждый из них.
+ */
 public class ValidationException extends RuntimeException {
+    private final Map<String, String> details;
+
     public ValidationException(String message) {
-        super(message);
+        super(message, null, false, false);
+        this.details = null;
+    }
+
+    /**
+     * Нарушения по полям; сообщение — все нарушения через «; ».
+     */
+    public ValidationException(Map<String, String> violations) {
+        super(describe(violations), null, false, false);
+        this.details = violations;
+    }
+
+    public Map<String, String> getDetails() {
+        return details;
+    }
+
+    public static String describe(Map<String, String> violations) {
+        return String.join("; ", violations.values());
     }
 }
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+@Data
+public class BatchItemResult {
+    private int index;
+    private Long id;
+    private int status;
+    private String error;
+
+    public BatchItemResult(int index, Long id, int status, String error) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Ответ GET /changes: события по порядку и номер, с которого продолжать чтение ({@code since}).
+ */
+@Data
+public class ChangeBatch {
+    private List<ChangeEvent> events;
+    private long next;
+
+    public ChangeBatch(List<ChangeEvent> events, long next) {
+        this.events = events;
+        this.next = next;
+    }
+}
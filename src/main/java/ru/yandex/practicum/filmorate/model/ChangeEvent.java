@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+/**
+ * Событие ленты изменений. Операции: {@code create} и {@code update} с сущностью в {@code data};
+ * {@code like}/{@code unlike} — {@code id} фильма, в {@code data} id пользователя;
+ * {@code friend}/{@code unfriend} — {@code id} пользователя, в {@code data} id друга.
+ */
+@Data
+public class ChangeEvent {
+    private long seq;
+    private String entity;
+    private String operation;
+    private long id;
+    private Object data;
+
+    public ChangeEvent(long seq, String entity, String operation, long id, Object data) {
+        this.seq = seq;
+        this.entity = entity;
+        this.operation = operation;
+        this.id = id;
+        this.data = data;
+    }
+}
@@ -1,7 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
-import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -13,10 +12,24 @@ import java.time.LocalDate;
 @EqualsAndHashCode(of = {"name"})
 public class Film {
     Long id;
-    @NotBlank
     String name;
     String description;
     @JsonFormat(pattern = "yyyy-MM-dd")
     LocalDate releaseDate;
     int duration;
-}
\ No newline at end of file
+    long version;
+
+    /**
+     * Независимая копия со всеми полями.
+     */
+    public Film copy() {
+        Film copy = new Film();
+        copy.id = id;
+        copy.name = name;
+        copy.description = description;
+        copy.releaseDate = releaseDate;
+        copy.duration = duration;
+        copy.version = version;
+        return copy;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Тело PATCH /films/{id}: заданы только изменяемые поля, отсутствующие (null) не меняются.
+ * {@code version} — версия, на которой клиент видел фильм; если задана, устаревшее изменение отклоняется.
+ */
+@Data
+public class FilmPatch {
+    String name;
+    String description;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    LocalDate releaseDate;
+    Integer duration;
+    Long version;
+
+    /**
+     * Новый фильм: поля {@code current}, поверх которых применены заданные поля изменения.
+     */
+    public Film applyTo(Film current) {
+        Film film = new Film();
+        film.setId(current.getId());
+        film.setName(name != null ? name : current.getName());
+        film.setDescription(description != null ? description : current.getDescription());
+        film.setReleaseDate(releaseDate != null ? releaseDate : current.getReleaseDate());
+        film.setDuration(duration != null ? duration : current.getDuration());
+        film.setVersion(current.getVersion());
+        return film;
+    }
+}
@@ -1,9 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
-import jakarta.validation.constraints.Email;
-import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -16,12 +13,32 @@ import java.time.LocalDate;
 public class User {
     Long id;
     String name;
-    @NotBlank
-    @Email
     String email;
-    @NotBlank
-    @Pattern(regexp = "^\\S+$")
     String login;
     @JsonFormat(pattern = "yyyy-MM-dd")
     LocalDate birthday;
-}
\ No newline at end of file
+    long version;
+
+    /**
+     * Пустое имя заменяется логином: так создаются пользователи и через API, и при загрузке.
+     */
+    public void fillDefaultName() {
+        if (name == null || name.isBlank()) {
+            name = login;
+        }
+    }
+
+    /**
+     * Независимая копия со всеми полями.
+     */
+    public User copy() {
+        User copy = new User();
+        copy.id = id;
+        copy.name = name;
+        copy.email = email;
+        copy.login = login;
+        copy.birthday = birthday;
+        copy.version = version;
+        return copy;
+    }
+}
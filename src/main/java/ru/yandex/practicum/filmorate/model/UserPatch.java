@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Тело PATCH /users/{id}: заданы только изменяемые поля, отсутствующие (null) не меняются.
+ * {@code version} — версия, на которой клиент видел пользователя; если задана, устаревшее изменение отклоняется.
+ */
+@Data
+public class UserPatch {
+    String name;
+    String email;
+    String login;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    LocalDate birthday;
+    Long version;
+
+    /**
+     * Новый пользователь: поля {@code current}, поверх которых применены заданные поля изменения.
+     */
+    public User applyTo(User current) {
+        User user = new User();
+        user.setId(current.getId());
+        user.setName(name != null ? name : current.getName());
+        user.setEmail(email != null ? email : current.getEmail());
+        user.setLogin(login != null ? login : current.getLogin());
+        user.setBirthday(birthday != null ? birthday : current.getBirthday());
+        user.setVersion(current.getVersion());
+        return user;
+    }
+}
@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Адаптивный допуск запросов по задержке. Время ответов копится в гистограмме текущего окна
+ * (логарифмические корзины по 4 на каждую степень двойки, точность около 20%). По закрытии окна
+ * считается p99: если он выше порога, доля допускаемых запросов уменьшается в {@value #DECREASE} раза,
+ * иначе растёт на {@value #INCREASE} до единицы. Окна с малым числом замеров долю только увеличивают,
+ * поэтому после сброса нагрузки допуск восстанавливается. Всё состояние меняется без блокировок.
+ */
+public class AdmissionControl {
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+    private static final double DECREASE = 2;
+    private static final double INCREASE = 0.1;
+    private static final double MIN_ADMITTED = 0.05;
+    private static final int MIN_SAMPLES = 20;
+
+    private final long thresholdNanos;
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<Window> window;
+    private volatile double admitted = 1;
+    private volatile long lastP99Nanos;
+
+    private record Window(long endNanos, AtomicLongArray counts) {
+    }
+
+    public AdmissionControl(long p99ThresholdMs, long windowMs, MeterRegistry registry) {
+        this(p99ThresholdMs * 1_000_000, windowMs * 1_000_000, System::nanoTime);
+        Gauge.builder("filmorate.admission.ratio", this, AdmissionControl::admittedRatio)
+                .register(registry);
+        Gauge.builder("filmorate.admission.p99", this, control -> control.lastP99Nanos() / 1e6)
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    AdmissionControl(long thresholdNanos, long windowNanos, LongSupplier clock) {
+        this.thresholdNanos = thresholdNanos;
+        this.windowNanos = windowNanos;
+        this.clock = clock;
+        this.window = new AtomicReference<>(new Window(clock.getAsLong() + windowNanos, new AtomicLongArray(BUCKETS)));
+    }
+
+    /**
+     * Допустить ли запрос: при перегрузке отклоняется случайная доля запросов.
+     */
+    public boolean admit() {
+        current();
+        double ratio = admitted;
+        return ratio >= 1 || ThreadLocalRandom.current().nextDouble() < ratio;
+    }
+
+    public void record(long latencyNanos) {
+        current().counts().incrementAndGet(bucket(latencyNanos));
+    }
+
+    public double admittedRatio() {
+        return admitted;
+    }
+
+    public long lastP99Nanos() {
+        return lastP99Nanos;
+    }
+
+    /**
+     * Текущее окно; просроченное заменяет один поток, он же пересчитывает долю допуска.
+     */
+    private Window current() {
+        Window current = window.get();
+        long now = clock.getAsLong();
+        if (now - current.endNanos() < 0) {
+            return current;
+        }
+        Window next = new Window(now + windowNanos, new AtomicLongArray(BUCKETS));
+        if (window.compareAndSet(current, next)) {
+            adjust(current.counts());
+            return next;
+        }
+        return window.get();
+    }
+
+    private void adjust(AtomicLongArray counts) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total < MIN_SAMPLES) {
+            admitted = Math.min(1, admitted + INCREASE);
+            return;
+        }
+        long rank = (long) Math.ceil(total * 0.99);
+        long seen = 0;
+        int index = 0;
+        while (index < BUCKETS - 1) {
+            seen += counts.get(index);
+            if (seen >= rank) {
+                break;
+            }
+            index++;
+        }
+        long p99 = upperBound(index);
+        lastP99Nanos = p99;
+        admitted = p99 > thresholdNanos
+                ? Math.max(MIN_ADMITTED, admitted / DECREASE)
+                : Math.min(1, admitted + INCREASE);
+    }
+
+    static int bucket(long nanos) {
+        long value = Math.max(1, nanos);
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = exponent < 2 ? 0 : (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        int exponent = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        if (exponent < 2) {
+            return 1L << (exponent + 1);
+        }
+        long step = 1L << (exponent - 2);
+        return (1L << exponent) + (sub + 1) * step;
+    }
+}
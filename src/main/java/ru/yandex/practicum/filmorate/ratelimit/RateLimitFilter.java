@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.exception.ErrorResponse;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты и допуск запросов к API фильмов и пользователей. Клиент определяется
+ * по адресу; заголовок {@code clientHeader} учитывается только у запросов с адресов
+ * {@code trustedProxies} (шлюза перед приложением), иначе любой клиент выбирал бы себе корзину сам.
+ * Запрос сверх лимита клиента и запрос, не допущенный {@link AdmissionControl},
+ * получают 429 с {@code Retry-After}. Время обработки допущенных запросов идёт в {@link AdmissionControl};
+ * асинхронные ответы (потоковые выгрузки, долгий опрос) не замеряются.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final RateLimiter limiter;
+    private final AdmissionControl admission;
+    private final String clientHeader;
+    private final Set<String> trustedProxies;
+
+    /**
+     * @param limiter   null — без ограничения частоты, только допуск
+     * @param admission null — без адаптивного допуска
+     */
+    public RateLimitFilter(RateLimiter limiter, AdmissionControl admission, String clientHeader,
+                           Set<String> trustedProxies) {
+        this.limiter = limiter;
+        this.admission = admission;
+        this.clientHeader = clientHeader;
+        this.trustedProxies = Set.copyOf(trustedProxies);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RateLimiter.Client client = limiter == null ? null : limiter.client(clientId(request));
+        if (client != null) {
+            long wait = client.acquire(request.getMethod(), request.getRequestURI());
+            if (wait > 0) {
+                client.count(RateLimiter.Outcome.LIMITED);
+                reject(response, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999)),
+                        "Превышен лимит запросов для клиента " + client.id());
+                return;
+            }
+        }
+        if (admission != null && !admission.admit()) {
+            if (client != null) {
+                client.count(RateLimiter.Outcome.SHED);
+            }
+            reject(response, 1, "Сервер перегружен, повторите запрос позже");
+            return;
+        }
+        if (client != null) {
+            client.count(RateLimiter.Outcome.ALLOWED);
+        }
+        long start = System.nanoTime();
+        chain.doFilter(request, response);
+        if (admission != null && !request.isAsyncStarted()) {
+            admission.record(System.nanoTime() - start);
+        }
+    }
+
+    private String clientId(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (!trustedProxies.contains(address)) {
+            return address;
+        }
+        String clientId = request.getHeader(clientHeader);
+        return clientId == null || clientId.isBlank() ? address : clientId;
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterSeconds, String message) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        Json.MAPPER.writeValue(response.getOutputStream(), new ErrorResponse(message));
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ограничение частоты запросов. Запись правила: {@code [клиент@][МЕТОД ]/путь=скорость/ёмкость}
+ * или {@code клиент@*=скорость/ёмкость} для всех запросов клиента; путь — шаблон Spring
+ * ({@code /films/{id}}), скорость — запросов в секунду. Правило для конечной точки даёт каждому
+ * клиенту отдельную корзину на эту точку, правило для всего клиента — одну корзину на все точки.
+ *
+ * @param client null — любой клиент
+ * @param method null — любой метод
+ * @param path   null — любой путь
+ */
+record RateLimitRule(String name, String client, String method, PathPattern path, double rate, int burst) {
+    private static final PathPatternParser PARSER = new PathPatternParser();
+
+    /**
+     * Порядок проверки: клиент и точка, весь клиент, точка; правило по умолчанию — отдельно.
+     */
+    static final Comparator<RateLimitRule> PRECEDENCE = Comparator.comparingInt(RateLimitRule::specificity).reversed();
+
+    boolean matches(String clientId, String requestMethod, PathContainer requestPath) {
+        return (client == null || client.equals(clientId))
+                && (method == null || method.equals(requestMethod))
+                && (path == null || path.matches(requestPath));
+    }
+
+    private int specificity() {
+        boolean endpoint = method != null || path != null;
+        return client != null ? (endpoint ? 3 : 2) : (endpoint ? 1 : 0);
+    }
+
+    /**
+     * Правила через запятую, отсортированные по {@link #PRECEDENCE}.
+     */
+    static List<RateLimitRule> parseAll(String rules) {
+        List<RateLimitRule> parsed = new ArrayList<>();
+        for (String rule : rules.split(",")) {
+            if (!rule.isBlank()) {
+                parsed.add(parse(rule.trim()));
+            }
+        }
+        parsed.sort(PRECEDENCE);
+        return parsed;
+    }
+
+    static RateLimitRule parse(String rule) {
+        int eq = rule.lastIndexOf('=');
+        int slash = rule.lastIndexOf('/');
+        if (eq < 0 || slash < eq) {
+            throw invalid(rule);
+        }
+        String key = rule.substring(0, eq).trim();
+        double rate;
+        int burst;
+        try {
+            rate = Double.parseDouble(rule.substring(eq + 1, slash).trim());
+            burst = Integer.parseInt(rule.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            throw invalid(rule);
+        }
+        if (rate <= 0 || burst <= 0) {
+            throw invalid(rule);
+        }
+        String client = null;
+        int at = key.indexOf('@');
+        if (at >= 0) {
+            client = key.substring(0, at).trim();
+            key = key.substring(at + 1).trim();
+        }
+        String method = null;
+        PathPattern path = null;
+        if (!"*".equals(key)) {
+            int space = key.indexOf(' ');
+            if (space >= 0) {
+                method = key.substring(0, space).trim().toUpperCase();
+                key = key.substring(space + 1).trim();
+            }
+            if (!key.startsWith("/")) {
+                throw invalid(rule);
+            }
+            path = PARSER.parse(key);
+        }
+        return new RateLimitRule(rule, client, method, path, rate, burst);
+    }
+
+    private static IllegalArgumentException invalid(String rule) {
+        return new IllegalArgumentException("filmorate.ratelimit: правило \"" + rule
+                + "\", ожидается [клиент@][МЕТОД ]/путь=скорость/ёмкость или клиент@*=скорость/ёмкость");
+    }
+}
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.server.PathContainer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Корзины токенов по клиентам. Запрос проверяется по первому подходящему правилу
+ * (см. {@link RateLimitRule#PRECEDENCE}) или по правилу по умолчанию. Корзины создаются
+ * при первом обращении и без блокировок. Когда клиентов больше {@code maxClients}, клиенты
+ * с полными корзинами удаляются, а если таких нет — новые клиенты делят общее состояние
+ * {@value #OVERFLOW_CLIENT}, чтобы память и число метрик оставались ограниченными.
+ * У каждого клиента есть счётчик {@code filmorate.ratelimit.requests} с исходом запроса.
+ */
+public class RateLimiter {
+    static final String OVERFLOW_CLIENT = "other";
+    private static final long EVICTION_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final List<RateLimitRule> rules;
+    private final RateLimitRule defaultRule;
+    private final int maxClients;
+    private final LongSupplier clock;
+    private final MeterRegistry registry;
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+    private final AtomicLong nextEviction;
+
+    public RateLimiter(String rules, String defaultLimit, int maxClients, MeterRegistry registry) {
+        this(RateLimitRule.parseAll(rules), RateLimitRule.parse("*=" + defaultLimit), maxClients, System::nanoTime,
+                registry);
+    }
+
+    RateLimiter(List<RateLimitRule> rules, RateLimitRule defaultRule, int maxClients, LongSupplier clock,
+                MeterRegistry registry) {
+        this.rules = rules;
+        this.defaultRule = defaultRule;
+        this.maxClients = maxClients;
+        this.clock = clock;
+        this.registry = registry;
+        this.nextEviction = new AtomicLong(clock.getAsLong());
+    }
+
+    public enum Outcome {
+        ALLOWED, LIMITED, SHED
+    }
+
+    public Client client(String id) {
+        Client client = clients.get(id);
+        if (client != null) {
+            return client;
+        }
+        if (clients.size() >= maxClients) {
+            evictIdle();
+            if (clients.size() >= maxClients) {
+                return clients.computeIfAbsent(OVERFLOW_CLIENT, Client::new);
+            }
+        }
+        return clients.computeIfAbsent(id, Client::new);
+    }
+
+    /**
+     * Не чаще раза в секунду: поток запросов от новых клиентов не должен каждый раз обходить всех.
+     */
+    private void evictIdle() {
+        long now = clock.getAsLong();
+        long next = nextEviction.get();
+        if (now - next < 0 || !nextEviction.compareAndSet(next, now + EVICTION_INTERVAL_NANOS)) {
+            return;
+        }
+        clients.values().removeIf(client -> {
+            if (!client.isIdle(now)) {
+                return false;
+            }
+            client.unregister();
+            return true;
+        });
+    }
+
+    /**
+     * Состояние одного клиента: корзина на каждое правило (последняя — по умолчанию) и счётчики.
+     */
+    public final class Client {
+        private final String id;
+        private final AtomicReferenceArray<TokenBucket> buckets = new AtomicReferenceArray<>(rules.size() + 1);
+        private final Counter[] counters = new Counter[Outcome.values().length];
+
+        private Client(String id) {
+            this.id = id;
+            for (Outcome outcome : Outcome.values()) {
+                counters[outcome.ordinal()] = Counter.builder("filmorate.ratelimit.requests")
+                        .tag("client", id)
+                        .tag("outcome", outcome.name().toLowerCase())
+                        .register(registry);
+            }
+        }
+
+        /**
+         * Берёт токен для запроса: 0, если запрос разрешён, иначе наносекунды до следующего токена.
+         */
+        public long acquire(String method, String path) {
+            PathContainer requestPath = PathContainer.parsePath(path);
+            int index = rules.size();
+            RateLimitRule rule = defaultRule;
+            for (int i = 0; i < rules.size(); i++) {
+                if (rules.get(i).matches(id, method, requestPath)) {
+                    index = i;
+                    rule = rules.get(i);
+                    break;
+                }
+            }
+            TokenBucket bucket = buckets.get(index);
+            if (bucket == null) {
+                buckets.compareAndSet(index, null, new TokenBucket(rule.rate(), rule.burst()));
+                bucket = buckets.get(index);
+            }
+            return bucket.tryAcquire(clock.getAsLong());
+        }
+
+        public void count(Outcome outcome) {
+            counters[outcome.ordinal()].increment();
+        }
+
+        public String id() {
+            return id;
+        }
+
+        private boolean isIdle(long now) {
+            for (int i = 0; i < buckets.length(); i++) {
+                TokenBucket bucket = buckets.get(i);
+                if (bucket != null && !bucket.isFull(now)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void unregister() {
+            for (Counter counter : counters) {
+                registry.remove(counter);
+            }
+        }
+    }
+}
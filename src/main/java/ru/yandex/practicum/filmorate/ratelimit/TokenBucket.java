@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Корзина токенов без блокировок. Вместо числа токенов и времени пополнения хранится одно число —
+ * момент, когда корзина снова станет полной: каждый запрос сдвигает его на время пополнения
+ * одного токена, а запрос, который сдвинул бы его дальше ёмкости корзины, отклоняется.
+ * Это то же поведение, что у классической корзины, но состояние меняется одним CAS.
+ */
+final class TokenBucket {
+    private final long refillNanos;
+    private final long capacityNanos;
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE / 2);
+
+    /**
+     * @param rate  токенов в секунду
+     * @param burst ёмкость корзины
+     */
+    TokenBucket(double rate, int burst) {
+        this.refillNanos = Math.max(1, (long) (1_000_000_000L / rate));
+        this.capacityNanos = refillNanos * burst;
+    }
+
+    /**
+     * Берёт токен: 0, если он был, иначе сколько наносекунд ждать следующего.
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + refillNanos;
+            long wait = next - nowNanos - capacityNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Корзина полна: её можно удалить, новая будет в том же состоянии.
+     */
+    boolean isFull(long nowNanos) {
+        return fullAt.get() <= nowNanos;
+    }
+}
@@ -0,0 +1,296 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.Json;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Реплика: подключается к {@link ReplicationSource} и применяет события по порядку в одном потоке.
+ * Номер последнего применённого события служит токеном read-your-writes: запрос с номером,
+ * полученным от ведущего узла после записи, ждёт, пока реплика его догонит.
+ * Отставание считается в событиях (по номеру из heartbeat) и в миллисекундах —
+ * сколько реплика непрерывно не догоняет ведущий узел. При обрыве соединения
+ * реплика переподключается и продолжает с последнего применённого события.
+ * Версии сущностей сравниваются только в пределах эпохи: снимок новой эпохи (ведущий узел
+ * перезапускался) заменяет данные реплики целиком, включая удаление того, чего в нём нет.
+ */
+@Slf4j
+public class ReplicaClient implements Closeable {
+    private static final long RECONNECT_MS = 1_000;
+
+    private final String host;
+    private final int port;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition applied = lock.newCondition();
+    private final Thread applier;
+    private volatile Socket socket;
+    private volatile boolean running = true;
+    private volatile boolean connected;
+    private volatile long epoch;
+    private volatile long appliedSeq;
+    private volatile long primarySeq;
+    private volatile long behindSinceNanos;
+    // состояние принимаемого снимка новой эпохи; читается и пишется только потоком применения
+    private LongHashSet snapshotFilms;
+    private LongHashSet snapshotUsers;
+
+    public ReplicaClient(String primary, FilmStorage filmStorage, UserStorage userStorage,
+                         MeterRegistry registry) {
+        int separator = primary.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Адрес ведущего узла должен быть вида host:port, получено " + primary);
+        }
+        this.host = primary.substring(0, separator);
+        this.port = Integer.parseInt(primary.substring(separator + 1));
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        Gauge.builder("filmorate.replication.lag.events", this, ReplicaClient::lagEvents)
+                .register(registry);
+        Gauge.builder("filmorate.replication.lag", this, ReplicaClient::lagMillis)
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("filmorate.replication.connected", this, client -> client.connected ? 1 : 0)
+                .register(registry);
+        applier = new Thread(this::run, "replica-applier");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    public long appliedSeq() {
+        return appliedSeq;
+    }
+
+    public long primarySeq() {
+        return primarySeq;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public long lagEvents() {
+        return Math.max(0, primarySeq - appliedSeq);
+    }
+
+    public long lagMillis() {
+        long since = behindSinceNanos;
+        return since == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+    }
+
+    /**
+     * Ждёт, пока будет применено событие {@code seq}, не дольше {@code timeoutMs}.
+     */
+    public boolean awaitApplied(long seq, long timeoutMs) throws InterruptedException {
+        if (appliedSeq >= seq) {
+            return true;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (appliedSeq < seq) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = applied.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+        applier.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try (Socket current = new Socket(host, port)) {
+                socket = current;
+                current.setTcpNoDelay(true);
+                // heartbeat приходит каждые HEARTBEAT_MS: долгая тишина — признак потерянного соединения
+                current.setSoTimeout((int) (ReplicationSource.HEARTBEAT_MS * 10));
+                OutputStream out = current.getOutputStream();
+                Json.MAPPER.writeValue(out, ReplicationMessage.subscribe(epoch, epoch == 0 ? -1 : appliedSeq));
+                out.write('\n');
+                out.flush();
+                connected = true;
+                log.info("Replica connected to {}:{} from {}", host, port, appliedSeq);
+                BufferedReader in = new BufferedReader(new InputStreamReader(current.getInputStream(),
+                        StandardCharsets.UTF_8));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    apply(Json.MAPPER.readTree(line));
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Replication connection to {}:{} lost: {}", host, port, e.getMessage());
+                }
+            } finally {
+                connected = false;
+                socket = null;
+            }
+            sleepBeforeReconnect();
+        }
+    }
+
+    private void apply(JsonNode message) throws IOException {
+        switch (message.path("type").asText()) {
+            case "snapshot" -> {
+                long snapshotEpoch = message.path("epoch").asLong();
+                log.info("Receiving snapshot at {} (epoch {})", message.path("seq").asLong(), snapshotEpoch);
+                boolean newEpoch = snapshotEpoch != epoch;
+                snapshotFilms = newEpoch ? new LongHashSet() : null;
+                snapshotUsers = newEpoch ? new LongHashSet() : null;
+            }
+            case "user" -> {
+                User user = Json.MAPPER.treeToValue(message.get("user"), User.class);
+                if (snapshotUsers != null) {
+                    snapshotUsers.add(user.getId());
+                    userStorage.replace(user);
+                } else {
+                    userStorage.replicate(user);
+                }
+                userStorage.replaceFriends(user.getId(), ids(message.get("ids")));
+            }
+            case "film" -> {
+                Film film = Json.MAPPER.treeToValue(message.get("film"), Film.class);
+                if (snapshotFilms != null) {
+                    snapshotFilms.add(film.getId());
+                    filmStorage.replace(film);
+                } else {
+                    filmStorage.replicate(film);
+                }
+                filmStorage.replaceLikes(film.getId(), ids(message.get("ids")));
+            }
+            case "snapshot-end" -> {
+                if (snapshotFilms != null) {
+                    evictMissing();
+                }
+                epoch = message.path("epoch").asLong();
+                advance(message.path("seq").asLong(), message.path("seq").asLong(), true);
+            }
+            case "event" -> {
+                JsonNode event = message.get("event");
+                applyEvent(event);
+                advance(event.path("seq").asLong(), event.path("seq").asLong(), false);
+            }
+            case "heartbeat" -> advance(appliedSeq, message.path("seq").asLong(), false);
+            default -> throw new IOException("Неизвестное сообщение репликации: " + message);
+        }
+    }
+
+    private void applyEvent(JsonNode event) throws IOException {
+        long id = event.path("id").asLong();
+        JsonNode data = event.get("data");
+        String entity = event.path("entity").asText();
+        switch (event.path("operation").asText()) {
+            case "create", "update" -> {
+                if ("film".equals(entity)) {
+                    filmStorage.replicate(Json.MAPPER.treeToValue(data, Film.class));
+                } else {
+                    userStorage.replicate(Json.MAPPER.treeToValue(data, User.class));
+                }
+            }
+            case "like" -> filmStorage.addLike(id, data.asLong());
+            case "unlike" -> filmStorage.removeLike(id, data.asLong());
+            // вторая сторона дружбы придёт отдельным событием, повторная связь ничего не меняет
+            case "friend" -> userStorage.addFriend(id, data.asLong());
+            case "unfriend" -> userStorage.removeFriend(id, data.asLong());
+            default -> throw new IOException("Неизвестное событие репликации: " + event);
+        }
+    }
+
+    /**
+     * Удаляет сущности, которых не было в снимке новой эпохи: у ведущего узла их больше нет.
+     */
+    private void evictMissing() {
+        int films = 0;
+        for (Film film : filmStorage.findAll()) {
+            if (!snapshotFilms.contains(film.getId())) {
+                filmStorage.evict(film.getId());
+                films++;
+            }
+        }
+        int users = 0;
+        for (User user : userStorage.findAll()) {
+            if (!snapshotUsers.contains(user.getId())) {
+                userStorage.evict(user.getId());
+                users++;
+            }
+        }
+        snapshotFilms = null;
+        snapshotUsers = null;
+        if (films > 0 || users > 0) {
+            log.info("Evicted {} films and {} users missing from the new epoch snapshot", films, users);
+        }
+    }
+
+    /**
+     * Сдвигает номер применённого события (после снимка — и назад, если ведущий узел перезапускался)
+     * и будит ждущие запросы.
+     */
+    private void advance(long seq, long primary, boolean reset) {
+        primarySeq = reset ? primary : Math.max(primarySeq, primary);
+        if (reset || seq > appliedSeq) {
+            lock.lock();
+            try {
+                appliedSeq = seq;
+                applied.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (appliedSeq >= primarySeq) {
+            behindSinceNanos = 0;
+        } else if (behindSinceNanos == 0) {
+            behindSinceNanos = System.nanoTime();
+        }
+    }
+
+    private static long[] ids(JsonNode array) {
+        long[] ids = new long[array == null ? 0 : array.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = array.get(i).asLong();
+        }
+        return ids;
+    }
+
+    private void sleepBeforeReconnect() {
+        if (!running) {
+            return;
+        }
+        try {
+            Thread.sleep(RECONNECT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.storage.ChangeFeed;
+
+@RestController
+@RequestMapping("/replication")
+public class ReplicationController {
+
+    private final ChangeFeed changeFeed;
+    private final ReplicationSource source;
+    private final ReplicaClient replica;
+
+    public ReplicationController(ChangeFeed changeFeed, ObjectProvider<ReplicationSource> source,
+                                 ObjectProvider<ReplicaClient> replica) {
+        this.changeFeed = changeFeed;
+        this.source = source.getIfAvailable();
+        this.replica = replica.getIfAvailable();
+    }
+
+    @GetMapping
+    public ReplicationStatus status() {
+        if (replica != null) {
+            return new ReplicationStatus("replica", replica.appliedSeq(), replica.primarySeq(), replica.lagEvents(),
+                    replica.lagMillis(), replica.isConnected(), null);
+        }
+        if (source != null) {
+            return new ReplicationStatus("primary", changeFeed.lastSeq(), null, null, null, null, source.replicaCount());
+        }
+        return new ReplicationStatus("standalone", changeFeed.lastSeq(), null, null, null, null, null);
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.exception.ErrorResponse;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.function.LongSupplier;
+
+/**
+ * Токены read-your-writes. Ведущий узел возвращает в {@value #SEQ_HEADER} номер ленты изменений,
+ * который покрывает запись этого запроса (читается в момент начала ответа, то есть после записи).
+ * Клиент передаёт его реплике в {@value #MIN_SEQ_HEADER}, и реплика отвечает не раньше,
+ * чем применит это событие, либо 503 по истечении ожидания. Реплика принимает только чтение.
+ */
+public class ReplicationFilter extends OncePerRequestFilter {
+    public static final String SEQ_HEADER = "X-Filmorate-Seq";
+    public static final String MIN_SEQ_HEADER = "X-Filmorate-Min-Seq";
+
+    private final LongSupplier currentSeq;
+    private final ReplicaClient replica;
+    private final long maxWaitMs;
+
+    private ReplicationFilter(LongSupplier currentSeq, ReplicaClient replica, long maxWaitMs) {
+        this.currentSeq = currentSeq;
+        this.replica = replica;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    public static ReplicationFilter primary(LongSupplier lastSeq) {
+        return new ReplicationFilter(lastSeq, null, 0);
+    }
+
+    public static ReplicationFilter replica(ReplicaClient replica, long maxWaitMs) {
+        return new ReplicationFilter(replica::appliedSeq, replica, maxWaitMs);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (replica == null) {
+            SeqResponse wrapped = new SeqResponse(response);
+            chain.doFilter(request, wrapped);
+            wrapped.addSeqHeader();
+            return;
+        }
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            response.setHeader("Allow", "GET, HEAD");
+            reject(response, HttpStatus.METHOD_NOT_ALLOWED, "Реплика только для чтения, запись — на ведущий узел");
+            return;
+        }
+        String minSeq = request.getHeader(MIN_SEQ_HEADER);
+        if (minSeq != null && !awaitApplied(minSeq)) {
+            response.setHeader("Retry-After", "1");
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Реплика не догнала событие " + minSeq
+                    + " за " + maxWaitMs + " мс, применено " + replica.appliedSeq());
+            return;
+        }
+        // данные ответа не старше номера, прочитанного до обработки
+        response.setHeader(SEQ_HEADER, String.valueOf(currentSeq.getAsLong()));
+        chain.doFilter(request, response);
+    }
+
+    private boolean awaitApplied(String minSeq) throws IOException {
+        long seq;
+        try {
+            seq = Long.parseLong(minSeq.trim());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        try {
+            return replica.awaitApplied(seq, maxWaitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        Json.MAPPER.writeValue(response.getOutputStream(), new ErrorResponse(message));
+    }
+
+    /**
+     * Ставит заголовок с номером при первом обращении к телу ответа, пока он не отправлен.
+     */
+    private class SeqResponse extends HttpServletResponseWrapper {
+        private boolean headerSet;
+
+        SeqResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addSeqHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addSeqHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addSeqHeader();
+            super.flushBuffer();
+        }
+
+        void addSeqHeader() {
+            if (!headerSet && !isCommitted()) {
+                headerSet = true;
+                setHeader(SEQ_HEADER, String.valueOf(currentSeq.getAsLong()));
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Строка протокола репликации (NDJSON). Заполнены только поля своего типа:
+ * <ul>
+ *     <li>{@code subscribe} (реплика → ведущий): {@code epoch}, {@code seq} — последнее применённое событие;</li>
+ *     <li>{@code snapshot} / {@code snapshot-end}: {@code epoch}, {@code seq}, с которого продолжится поток;</li>
+ *     <li>{@code film} / {@code user}: сущность снимка и {@code ids} — её лайки или друзья;</li>
+ *     <li>{@code event}: событие ленты изменений;</li>
+ *     <li>{@code heartbeat}: {@code seq} — последний номер на ведущем узле.</li>
+ * </ul>
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record ReplicationMessage(String type, Long epoch, Long seq, ChangeEvent event, Film film, User user, long[] ids) {
+
+    static ReplicationMessage subscribe(long epoch, long seq) {
+        return new ReplicationMessage("subscribe", epoch, seq, null, null, null, null);
+    }
+
+    static ReplicationMessage snapshot(String type, long epoch, long seq) {
+        return new ReplicationMessage(type, epoch, seq, null, null, null, null);
+    }
+
+    static ReplicationMessage film(Film film, long[] likes) {
+        return new ReplicationMessage("film", null, null, null, film, null, likes);
+    }
+
+    static ReplicationMessage user(User user, long[] friends) {
+        return new ReplicationMessage("user", null, null, null, null, user, friends);
+    }
+
+    static ReplicationMessage event(ChangeEvent event) {
+        return new ReplicationMessage("event", null, null, event, null, null, null);
+    }
+
+    static ReplicationMessage heartbeat(long seq) {
+        return new ReplicationMessage("heartbeat", null, seq, null, null, null, null);
+    }
+}
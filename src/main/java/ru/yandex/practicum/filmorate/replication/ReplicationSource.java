@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.ChangesExpiredException;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ChangeFeed;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Ведущий узел репликации: раздаёт {@link ChangeFeed} репликам через TCP-сокет на loopback.
+ * Лента уже упорядочена и содержит все изменения хранилищ, поэтому отдельного журнала репликации нет.
+ * Реплика, которая подключается впервые, отстала больше чем на ёмкость ленты или помнит
+ * другую эпоху (ведущий перезапускался), получает снимок: номер ленты берётся до обхода данных,
+ * после снимка поток продолжается с этого номера. События, уже отражённые в снимке,
+ * применяются повторно без вреда: сущности сравниваются по версии, лайки и друзья идемпотентны.
+ * На каждую реплику — свой поток; в простое отправляется heartbeat с номером последнего события.
+ */
+@Slf4j
+public class ReplicationSource implements Closeable {
+    static final long HEARTBEAT_MS = 500;
+    private static final int BATCH_SIZE = 1000;
+    private static final byte NEWLINE = '\n';
+
+    private final ServerSocket server;
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final ChangeFeed changeFeed;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final Set<Socket> replicas = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    public ReplicationSource(int port, ChangeFeed changeFeed, FilmStorage filmStorage, UserStorage userStorage,
+                             MeterRegistry registry) throws IOException {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.changeFeed = changeFeed;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        Gauge.builder("filmorate.replication.replicas", replicas, Set::size)
+                .register(registry);
+        Thread acceptor = new Thread(this::acceptLoop, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Replication source listening on port {}", port());
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    public int replicaCount() {
+        return replicas.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        server.close();
+        for (Socket replica : replicas) {
+            replica.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                Thread sender = new Thread(() -> serve(socket), "replication-" + socket.getPort());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Replication accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        replicas.add(socket);
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            JsonNode subscribe = Json.MAPPER.readTree(in.readLine());
+            long cursor = subscribe.path("epoch").asLong() == epoch ? subscribe.path("seq").asLong() : -1;
+            log.info("Replica {} subscribed from {}", socket.getRemoteSocketAddress(), cursor);
+            if (cursor < 0) {
+                cursor = sendSnapshot(out);
+            }
+            while (running) {
+                CompletableFuture<Void> nextChange = changeFeed.nextChange();
+                List<ChangeEvent> events;
+                try {
+                    events = changeFeed.read(cursor, BATCH_SIZE);
+                } catch (ChangesExpiredException e) {
+                    log.info("Replica {} fell behind the change feed, resending snapshot", socket.getRemoteSocketAddress());
+                    cursor = sendSnapshot(out);
+                    continue;
+                }
+                for (ChangeEvent event : events) {
+                    write(out, ReplicationMessage.event(event));
+                    cursor = event.getSeq();
+                }
+                if (events.isEmpty() && !awaitChange(nextChange)) {
+                    write(out, ReplicationMessage.heartbeat(changeFeed.lastSeq()));
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (running) {
+                log.info("Replica {} disconnected: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } finally {
+            replicas.remove(socket);
+        }
+    }
+
+    /**
+     * Отправляет все данные и возвращает номер ленты, с которого продолжать поток.
+     */
+    private long sendSnapshot(OutputStream out) throws IOException {
+        long seq = changeFeed.lastSeq();
+        write(out, ReplicationMessage.snapshot("snapshot", epoch, seq));
+        for (User user : userStorage.getAll()) {
+            write(out, ReplicationMessage.user(user, userStorage.friendIds(user.getId())));
+        }
+        for (Film film : filmStorage.getAll()) {
+            write(out, ReplicationMessage.film(film, filmStorage.likeIds(film.getId())));
+        }
+        write(out, ReplicationMessage.snapshot("snapshot-end", epoch, seq));
+        out.flush();
+        return seq;
+    }
+
+    private boolean awaitChange(CompletableFuture<Void> nextChange) throws InterruptedIOException {
+        try {
+            nextChange.get(HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Прервана отправка реплике");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void write(OutputStream out, ReplicationMessage message) throws IOException {
+        Json.MAPPER.writeValue(out, message);
+        out.write(NEWLINE);
+    }
+}
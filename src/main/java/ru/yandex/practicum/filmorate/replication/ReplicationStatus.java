@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Состояние репликации узла: для ведущего — номер ленты и число подключённых реплик,
+ * для реплики — применённый номер, номер ведущего узла и отставание.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReplicationStatus(String role, long seq, Long primarySeq, Long lagEvents, Long lagMs,
+                                Boolean connected, Integer replicas) {
+}
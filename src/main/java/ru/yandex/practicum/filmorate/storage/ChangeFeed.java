@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.exception.ChangesExpiredException;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Лента изменений хранилищ: каждая запись получает сквозной номер и кладётся в кольцевой буфер
+ * фиксированного размера. Публикация не блокируется (вызывается под блокировкой записи),
+ * старые события вытесняются новыми. Потребитель читает события после известного ему номера
+ * и, если отстал больше чем на ёмкость буфера, получает {@link ChangesExpiredException}:
+ * тогда нужно заново прочитать данные целиком и продолжить с {@link #lastSeq()}, взятого до чтения.
+ */
+public class ChangeFeed {
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final int mask;
+    private final AtomicLong lastSeq = new AtomicLong();
+    // ожидание, выданное читателям и ещё не завершённое; null — никто не ждёт
+    private final AtomicReference<CompletableFuture<Void>> signal = new AtomicReference<>();
+
+    public ChangeFeed(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    public void publish(String entity, String operation, long id, Object data) {
+        long seq = lastSeq.incrementAndGet();
+        ChangeEvent event = new ChangeEvent(seq, entity, operation, id, data);
+        int index = (int) (seq & mask);
+        ChangeEvent current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.getSeq() > seq) {
+                // писатель отстал на целый круг: слот уже занят более новым событием
+                break;
+            }
+        } while (!slots.compareAndSet(index, current, event));
+        // чтение перед обменом: без ждущих публикация не пишет в общую ячейку
+        if (signal.get() != null) {
+            CompletableFuture<Void> waiting = signal.getAndSet(null);
+            if (waiting != null) {
+                waiting.complete(null);
+            }
+        }
+    }
+
+    /**
+     * До {@code limit} событий с номером больше {@code since} по порядку. Чтение останавливается
+     * на первом номере, который уже выдан, но ещё не записан в буфер.
+     */
+    public List<ChangeEvent> read(long since, int limit) {
+        long last = lastSeq.get();
+        if (since > last) {
+            // номера начинаются заново после перезапуска
+            throw new ChangesExpiredException("Номер " + since + " больше последнего выданного " + last);
+        }
+        if (last - since > slots.length()) {
+            throw new ChangesExpiredException("События после " + since + " уже вытеснены, доступны начиная с "
+                    + (last - slots.length() + 1));
+        }
+        List<ChangeEvent> events = new ArrayList<>((int) Math.min(limit, Math.max(0, last - since)));
+        for (long seq = since + 1; seq <= last && events.size() < limit; seq++) {
+            ChangeEvent event = slots.get((int) (seq & mask));
+            if (event == null || event.getSeq() < seq) {
+                break;
+            }
+            if (event.getSeq() > seq) {
+                throw new ChangesExpiredException("События после " + since + " уже вытеснены");
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Завершается при следующей публикации. Получать до чтения, иначе событие между
+     * чтением и ожиданием можно пропустить. Продолжения должны выполняться асинхронно:
+     * завершение происходит в потоке писателя. Выданное ожидание остаётся в ячейке,
+     * пока его не заберёт и не завершит публикация, поэтому пробуждение не теряется.
+     * Читатель получает зависимую копию: её можно завершить по сроку, не задевая остальных.
+     */
+    public CompletableFuture<Void> nextChange() {
+        while (true) {
+            CompletableFuture<Void> waiting = signal.get();
+            if (waiting != null && !waiting.isDone()) {
+                return waiting.copy();
+            }
+            // завершённое ожидание в ячейке не должно будить следующих читателей сразу
+            CompletableFuture<Void> created = new CompletableFuture<>();
+            if (signal.compareAndSet(waiting, created)) {
+                return created.copy();
+            }
+        }
+    }
+
+    public long lastSeq() {
+        return lastSeq.get();
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.PackedRecord;
+
+import static ru.yandex.practicum.filmorate.util.PackedRecord.utf8;
+
+/**
+ * Фильм одним массивом байт: [версия][дата релиза][длительность][название][описание].
+ */
+public class CompactFilmCodec implements EntityCodec<Film> {
+
+    @Override
+    public Object encode(Film film) {
+        byte[] name = utf8(film.getName());
+        byte[] description = utf8(film.getDescription());
+        return new PackedRecord.Writer(4, name, description)
+                .putLong(film.getVersion())
+                .putDate(film.getReleaseDate())
+                .putInt(film.getDuration())
+                .putString(name)
+                .putString(description)
+                .toBytes();
+    }
+
+    @Override
+    public Film decode(long id, Object packed) {
+        PackedRecord.Reader reader = new PackedRecord.Reader((byte[]) packed);
+        Film film = new Film();
+        film.setId(id);
+        film.setVersion(reader.getLong());
+        film.setReleaseDate(reader.getDate());
+        film.setDuration(reader.getInt());
+        film.setName(reader.getString());
+        film.setDescription(reader.getString());
+        return film;
+    }
+}
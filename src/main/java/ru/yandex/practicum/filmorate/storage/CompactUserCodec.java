@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.PackedRecord;
+
+import static ru.yandex.practicum.filmorate.util.PackedRecord.utf8;
+
+/**
+ * Пользователь одним массивом байт: [версия][день рождения][email][логин][имя].
+ */
+public class CompactUserCodec implements EntityCodec<User> {
+
+    @Override
+    public Object encode(User user) {
+        byte[] email = utf8(user.getEmail());
+        byte[] login = utf8(user.getLogin());
+        byte[] name = utf8(user.getName());
+        return new PackedRecord.Writer(3, email, login, name)
+                .putLong(user.getVersion())
+                .putDate(user.getBirthday())
+                .putString(email)
+                .putString(login)
+                .putString(name)
+                .toBytes();
+    }
+
+    @Override
+    public User decode(long id, Object packed) {
+        PackedRecord.Reader reader = new PackedRecord.Reader((byte[]) packed);
+        User user = new User();
+        user.setId(id);
+        user.setVersion(reader.getLong());
+        user.setBirthday(reader.getDate());
+        user.setEmail(reader.getString());
+        user.setLogin(reader.getString());
+        user.setName(reader.getString());
+        return user;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Представление сущности внутри хранилища. Идентификатор хранится ключом карты,
+ * поэтому в упакованную запись не входит и передаётся при распаковке.
+ * Распаковка каждый раз создаёт новый объект, а упаковка не сохраняет ссылку на переданный:
+ * изменение полученной или сохранённой сущности не меняет данных хранилища.
+ */
+public interface EntityCodec<T> {
+
+    Object encode(T entity);
+
+    T decode(long id, Object packed);
+
+    /**
+     * Хранит объекты без преобразования, но копиями: при записи и при каждом чтении.
+     * Без копий вызывающий код, изменив объект из {@code findById} до {@code update},
+     * поменял бы и прежнюю версию, по которой снимаются ключи уникальности и индексов.
+     */
+    static <T> EntityCodec<T> objects(UnaryOperator<T> copy) {
+        return new EntityCodec<>() {
+            @Override
+            public Object encode(T entity) {
+                return copy.apply(entity);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T decode(long id, Object packed) {
+                return copy.apply((T) packed);
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Рейтинг фильмов с лайками: по убыванию числа лайков, при равенстве — по id.
+ * Писатели меняют упорядоченный индекс под общей блокировкой и, если изменение задело вершину,
+ * публикуют её новый неизменяемый массив id. Читатели берут опубликованный массив без блокировок,
+ * поэтому топ-N стоит O(N) и не ждёт ни других читателей, ни лайков.
+ * Вершина длиной до {@link #MAX_PUBLISHED} растёт по первому запросу большего размера;
+ * более длинные запросы собираются под блокировкой писателей.
+ */
+public class FilmPopularityIndex {
+    static final int MAX_PUBLISHED = 1000;
+
+    private static final Comparator<Rank> ORDER = Comparator.comparingLong(Rank::likes).reversed()
+            .thenComparingLong(Rank::filmId);
+
+    // под lock
+    private final NavigableSet<Rank> ranks = new TreeSet<>(ORDER);
+    private final Map<Long, Rank> byFilm = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Top top = new Top(SortedLongArrays.EMPTY, 0, null);
+
+    public int size() {
+        return byFilm.size();
+    }
+
+    /**
+     * Приводит позицию фильма к числу лайков, прочитанному через {@code likes} под блокировкой рейтинга.
+     * Вызывать после каждого изменения лайков, вне compute по фильму: параллельные вызовы
+     * для одного фильма могут прийти в любом порядке, но последний из них увидит итоговое число.
+     */
+    public void refresh(long filmId, LongToIntFunction likes) {
+        lock.lock();
+        try {
+            int count = likes.applyAsInt(filmId);
+            Rank previous = byFilm.get(filmId);
+            if (previous == null ? count == 0 : previous.likes() == count) {
+                return;
+            }
+            if (previous != null) {
+                ranks.remove(previous);
+                byFilm.remove(filmId);
+            }
+            Rank current = count == 0 ? null : new Rank(count, filmId);
+            if (current != null) {
+                ranks.add(current);
+                byFilm.put(filmId, current);
+            }
+            Top published = top;
+            if (published.affectedBy(previous) || published.affectedBy(current)) {
+                top = collect(published.capacity());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * До {@code count} id фильмов с лайками в порядке рейтинга. Массив общий, изменять его нельзя.
+     */
+    public long[] top(int count) {
+        Top published = top;
+        if (count > published.capacity() && !published.complete()) {
+            lock.lock();
+            try {
+                if (count > MAX_PUBLISHED) {
+                    return collect(count).ids();
+                }
+                published = top;
+                if (count > published.capacity() && !published.complete()) {
+                    published = collect(count);
+                    top = published;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        long[] ids = published.ids();
+        return ids.length <= count ? ids : Arrays.copyOf(ids, count);
+    }
+
+    private Top collect(int capacity) {
+        long[] ids = new long[Math.min(capacity, ranks.size())];
+        Rank last = null;
+        int count = 0;
+        for (Rank rank : ranks) {
+            if (count == ids.length) {
+                break;
+            }
+            ids[count++] = rank.filmId();
+            last = rank;
+        }
+        return new Top(ids, capacity, last);
+    }
+
+    private record Rank(long likes, long filmId) {
+    }
+
+    /**
+     * Опубликованная вершина рейтинга: первые {@code capacity} фильмов (или все, если их меньше),
+     * {@code last} — позиция последнего из них.
+     */
+    private record Top(long[] ids, int capacity, Rank last) {
+        boolean complete() {
+            return ids.length < capacity;
+        }
+
+        boolean affectedBy(Rank rank) {
+            return rank != null && capacity > 0 && (complete() || ORDER.compare(rank, last) <= 0);
+        }
+    }
+}
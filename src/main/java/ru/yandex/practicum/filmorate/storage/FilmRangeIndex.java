@@ -0,0 +1,321 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+/**
+ * Упорядоченные вторичные индексы по дате релиза и продолжительности фильма.
+ * Рядом с записями каждый индекс держит счётчики записей по корзинам значений ширины 1, 16, 256, …,
+ * поэтому число записей в любом диапазоне оценивается сложением нескольких десятков корзин
+ * независимо от его размера. Для запроса с обоими диапазонами ведущим становится тот,
+ * в который попадает меньше записей.
+ */
+public class FilmRangeIndex {
+    // до стольких записей на значение ведущего диапазона его дешевле просмотреть, чем открыть курсор на значение
+    static final int SCAN_PER_VALUE = 16;
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::value)
+            .thenComparingLong(Entry::filmId);
+
+    private final Column byReleaseDate = new Column();
+    private final Column byDuration = new Column();
+
+    public void update(Film previous, Film current) {
+        long id = current.getId();
+        if (previous != null) {
+            if (previous.getReleaseDate() != null && !previous.getReleaseDate().equals(current.getReleaseDate())) {
+                byReleaseDate.remove(previous.getReleaseDate().toEpochDay(), id);
+            }
+            if (previous.getDuration() != current.getDuration()) {
+                byDuration.remove(previous.getDuration(), id);
+            }
+        }
+        if (current.getReleaseDate() != null) {
+            byReleaseDate.add(current.getReleaseDate().toEpochDay(), id);
+        }
+        byDuration.add(current.getDuration(), id);
+    }
+
+    public void remove(Film film) {
+        if (film.getReleaseDate() != null) {
+            byReleaseDate.remove(film.getReleaseDate().toEpochDay(), film.getId());
+        }
+        byDuration.remove(film.getDuration(), film.getId());
+    }
+
+    /**
+     * До {@code limit} id фильмов больше {@code afterId} в порядке id из самого селективного из заданных
+     * диапазонов (границы включительно) или null, если ни один диапазон не задан. Остальные условия
+     * проверяет {@code accept} вызывающего; он вызывается по порядку id и только пока страница не набрана.
+     * <p>
+     * Пусть в ведущем диапазоне M записей с d различными значениями, а проверено k кандидатов.
+     * Если записей не больше {@link #SCAN_PER_VALUE} на значение, диапазон просматривается целиком
+     * с кучей из наименьших id: O(M·log k) за раунд, раундов O(log(k/limit)), потому что каждый следующий
+     * берёт вдвое больше кандидатов. Иначе внутри каждого значения индекс уже упорядочен по id, и отрезки
+     * значений сливаются курсорами: O(d·log n) на их открытие и O(k·log d) на слияние.
+     * Страница стоит около O(min(M, d·log n)) плюс оценка диапазонов по корзинам.
+     */
+    public long[] findCandidates(LocalDate releasedFrom, LocalDate releasedTo, Integer minDuration, Integer maxDuration,
+                                 long afterId, int limit, LongPredicate accept) {
+        Range dates = releasedFrom == null && releasedTo == null ? null : byReleaseDate.range(
+                releasedFrom == null ? Long.MIN_VALUE : releasedFrom.toEpochDay(),
+                releasedTo == null ? Long.MAX_VALUE : releasedTo.toEpochDay());
+        Range durations = minDuration == null && maxDuration == null ? null : byDuration.range(
+                minDuration == null ? Long.MIN_VALUE : minDuration,
+                maxDuration == null ? Long.MAX_VALUE : maxDuration);
+        if (dates == null && durations == null) {
+            return null;
+        }
+        Range leading = dates == null ? durations
+                : durations == null || dates.size() <= durations.size() ? dates : durations;
+        if (leading.size() <= leading.values() * SCAN_PER_VALUE) {
+            return scan(leading.entries(), afterId, limit, accept);
+        }
+        return merge(leading.entries(), afterId, limit, accept);
+    }
+
+    /**
+     * Просмотр всего диапазона раундами: в каждом отбираются наименьшие id после последнего кандидата,
+     * сортируются и проверяются по порядку; следующий раунд берёт вдвое больше кандидатов.
+     */
+    private static long[] scan(NavigableSet<Entry> entries, long afterId, int limit, LongPredicate accept) {
+        long[] ids = new long[Math.min(limit, 16)];
+        int count = 0;
+        long after = afterId;
+        int batch = limit;
+        while (count < limit) {
+            long[] candidates = smallestIds(entries, after, batch);
+            for (int i = 0; i < candidates.length && count < limit; i++) {
+                long id = candidates[i];
+                // во время записи фильм может попасться дважды: под старым и под новым значением
+                if (id == after || !accept.test(id)) {
+                    after = id;
+                    continue;
+                }
+                after = id;
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, (int) Math.min((long) limit, ids.length * 2L));
+                }
+                ids[count++] = id;
+            }
+            if (candidates.length < batch) {
+                break;
+            }
+            batch = (int) Math.min(Integer.MAX_VALUE - 8L, batch * 2L);
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * До {@code k} наименьших id больше {@code afterId} по возрастанию; отбираются кучей с наибольшим в корне.
+     */
+    private static long[] smallestIds(NavigableSet<Entry> entries, long afterId, int k) {
+        long[] heap = new long[Math.min(k, 16)];
+        int size = 0;
+        for (Entry entry : entries) {
+            long id = entry.filmId();
+            if (id <= afterId) {
+                continue;
+            }
+            if (size < k) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, (int) Math.min((long) k, heap.length * 2L));
+                }
+                int child = size++;
+                while (child > 0 && heap[(child - 1) / 2] < id) {
+                    heap[child] = heap[(child - 1) / 2];
+                    child = (child - 1) / 2;
+                }
+                heap[child] = id;
+            } else if (id < heap[0]) {
+                int parent = 0;
+                while (2 * parent + 1 < size) {
+                    int child = 2 * parent + 1;
+                    if (child + 1 < size && heap[child + 1] > heap[child]) {
+                        child++;
+                    }
+                    if (heap[child] <= id) {
+                        break;
+                    }
+                    heap[parent] = heap[child];
+                    parent = child;
+                }
+                heap[parent] = id;
+            }
+        }
+        long[] result = Arrays.copyOf(heap, size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Слияние курсоров значений диапазона по id с остановкой на {@code limit}.
+     */
+    private static long[] merge(NavigableSet<Entry> entries, long afterId, int limit, LongPredicate accept) {
+        PriorityQueue<Cursor> cursors = cursors(entries, afterId);
+        long[] ids = new long[Math.min(limit, 16)];
+        int count = 0;
+        while (count < limit && !cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            long id = cursor.head;
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+            if (accept.test(id)) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, (int) Math.min((long) limit, ids.length * 2L));
+                }
+                ids[count++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * По курсору на каждое значение диапазона, начиная с первого id после {@code afterId};
+     * между значениями переходит поиском, не читая их записи.
+     */
+    private static PriorityQueue<Cursor> cursors(NavigableSet<Entry> entries, long afterId) {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparingLong(cursor -> cursor.head));
+        Entry first = entries.isEmpty() ? null : entries.first();
+        while (first != null) {
+            long value = first.value();
+            Iterator<Entry> iterator = entries.subSet(new Entry(value, afterId), false,
+                    new Entry(value, Long.MAX_VALUE), true).iterator();
+            Cursor cursor = new Cursor(iterator);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+            first = value == Long.MAX_VALUE ? null : entries.ceiling(new Entry(value + 1, Long.MIN_VALUE));
+        }
+        return cursors;
+    }
+
+    private record Entry(long value, long filmId) {
+    }
+
+    /**
+     * Записи диапазона, оценка их числа и число значений между первой и последней записью
+     * (верхняя граница числа различных значений).
+     */
+    private record Range(NavigableSet<Entry> entries, long size, long values) {
+    }
+
+    /**
+     * Записи одного индекса и счётчики записей по корзинам: на уровне {@code i} корзина покрывает
+     * {@code FANOUT^i} подряд идущих значений. Счётчики меняются только вместе с самими записями,
+     * под нагрузкой оценка может на мгновение расходиться с ними на несколько записей.
+     */
+    private static final class Column {
+        static final int FANOUT = 16;
+        static final int LEVELS = 6;
+
+        private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+        private final List<ConcurrentNavigableMap<Long, AtomicLong>> counts = new ArrayList<>(LEVELS);
+
+        private Column() {
+            for (int level = 0; level < LEVELS; level++) {
+                counts.add(new ConcurrentSkipListMap<>());
+            }
+        }
+
+        void add(long value, long filmId) {
+            if (entries.add(new Entry(value, filmId))) {
+                count(value, 1);
+            }
+        }
+
+        void remove(long value, long filmId) {
+            if (entries.remove(new Entry(value, filmId))) {
+                count(value, -1);
+            }
+        }
+
+        /**
+         * Записи со значениями от {@code from} до {@code to}; границы оценки сужаются до крайних записей.
+         */
+        Range range(long from, long to) {
+            Entry first = from > to ? null : entries.ceiling(new Entry(from, Long.MIN_VALUE));
+            Entry last = from > to ? null : entries.floor(new Entry(to, Long.MAX_VALUE));
+            if (first == null || last == null || first.value() > last.value()) {
+                return new Range(Collections.emptyNavigableSet(), 0, 0);
+            }
+            NavigableSet<Entry> range = entries.subSet(new Entry(first.value(), Long.MIN_VALUE), true,
+                    new Entry(last.value(), Long.MAX_VALUE), true);
+            return new Range(range, size(first.value(), last.value()), last.value() - first.value() + 1);
+        }
+
+        private void count(long value, int delta) {
+            long bucket = value;
+            for (ConcurrentNavigableMap<Long, AtomicLong> level : counts) {
+                level.computeIfAbsent(bucket, key -> new AtomicLong()).addAndGet(delta);
+                bucket = Math.floorDiv(bucket, FANOUT);
+            }
+        }
+
+        /**
+         * Число записей со значениями от {@code from} до {@code to}: на каждом уровне складываются
+         * только неполные края, целые корзины уходят уровнем выше.
+         */
+        private long size(long from, long to) {
+            long total = 0;
+            long low = from;
+            long high = to;
+            for (int level = 0; ; level++) {
+                long firstParent = -Math.floorDiv(-low, FANOUT);
+                long lastParent = Math.floorDiv(high + 1, FANOUT) - 1;
+                if (level == LEVELS - 1 || firstParent > lastParent) {
+                    return total + sum(level, low, high);
+                }
+                total += sum(level, low, firstParent * FANOUT - 1) + sum(level, (lastParent + 1) * FANOUT, high);
+                low = firstParent;
+                high = lastParent;
+            }
+        }
+
+        private long sum(int level, long from, long to) {
+            if (from > to) {
+                return 0;
+            }
+            long total = 0;
+            for (AtomicLong count : counts.get(level).subMap(from, true, to, true).values()) {
+                total += count.get();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Id одного значения индекса по возрастанию; {@code head} — текущий.
+     */
+    private static final class Cursor {
+        private final Iterator<Entry> iterator;
+        private long head;
+
+        private Cursor(Iterator<Entry> iterator) {
+            this.iterator = iterator;
+        }
+
+        private boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            head = iterator.next().filmId();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+/**
+ * Инвертированный индекс по названию и описанию фильмов.
+ * Термин хранится один раз как ключ карты, список фильмов по нему — отсортированный
+ * массив id, который читается без блокировок. Новые id больше существующих, поэтому
+ * обычно дописываются в конец массива без копирования.
+ * Последнее слово запроса ищется по префиксу (автодополнение), остальные — точно.
+ * Списки всех терминов с этим префиксом сливаются по возрастанию id только до {@code limit}
+ * совпадений: ни объединение, ни сортировка целиком не строятся, и термины не отбрасываются.
+ * Подготовка слияния линейна по числу таких терминов, поэтому префикс короче
+ * {@link #MIN_PREFIX_LENGTH} символов не раскрывается: по нему ищется только целое слово.
+ */
+public class FilmSearchIndex {
+    // под одно-двухбуквенный префикс на большом каталоге попадают десятки тысяч терминов
+    static final int MIN_PREFIX_LENGTH = 3;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Map<String, Posting> postings = new ConcurrentHashMap<>();
+    private final NavigableSet<String> terms = new ConcurrentSkipListSet<>();
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    public void update(Film previous, Film current) {
+        Set<String> oldTerms = previous == null ? Set.of() : terms(previous);
+        Set<String> newTerms = terms(current);
+        long id = current.getId();
+        for (String term : oldTerms) {
+            if (!newTerms.contains(term)) {
+                postings.computeIfPresent(term, (t, posting) -> {
+                    Posting updated = posting.without(id);
+                    if (updated.size() == 0) {
+                        terms.remove(t);
+                        return null;
+                    }
+                    return updated;
+                });
+            }
+        }
+        for (String term : newTerms) {
+            if (!oldTerms.contains(term)) {
+                postings.compute(term, (t, posting) -> {
+                    if (posting == null) {
+                        terms.add(t);
+                        return new Posting(new long[]{id}, 1);
+                    }
+                    return posting.with(id);
+                });
+            }
+        }
+    }
+
+    public void remove(Film film) {
+        long id = film.getId();
+        for (String term : terms(film)) {
+            postings.computeIfPresent(term, (t, posting) -> {
+                Posting updated = posting.without(id);
+                if (updated.size() == 0) {
+                    terms.remove(t);
+                    return null;
+                }
+                return updated;
+            });
+        }
+    }
+
+    public long[] search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return SortedLongArrays.EMPTY;
+        }
+        long[] result = null;
+        for (int i = 0; i < words.size() - 1; i++) {
+            Posting posting = postings.get(words.get(i));
+            if (posting == null) {
+                return SortedLongArrays.EMPTY;
+            }
+            result = result == null
+                    ? posting.toArray()
+                    : SortedLongArrays.intersect(result, result.length, posting.ids(), posting.size());
+            if (result.length == 0) {
+                return result;
+            }
+        }
+        return findByPrefix(words.get(words.size() - 1), result, limit);
+    }
+
+    /**
+     * Первые {@code limit} id из объединения списков терминов с префиксом {@code prefix}
+     * (для префикса короче {@link #MIN_PREFIX_LENGTH} — только самого термина {@code prefix}),
+     * входящие в {@code filter} (null — без фильтра). Слияние T списков через кучу по текущему id:
+     * куча строится за O(T), каждый выданный или пропущенный id стоит O(log T).
+     * При фильтре головы списков перескакивают бинарным поиском сразу к следующему id фильтра.
+     */
+    private long[] findByPrefix(String prefix, long[] filter, int limit) {
+        Collection<String> matching = prefix.length() < MIN_PREFIX_LENGTH
+                ? List.of(prefix)
+                : terms.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+        List<PostingCursor> cursors = new ArrayList<>();
+        for (String term : matching) {
+            Posting posting = postings.get(term);
+            if (posting != null && posting.size() > 0) {
+                cursors.add(new PostingCursor(posting));
+            }
+        }
+        PriorityQueue<PostingCursor> heads = new PriorityQueue<>(cursors);
+        long[] result = new long[Math.min(limit, 16)];
+        int count = 0;
+        int filterPosition = 0;
+        while (count < limit && !heads.isEmpty()) {
+            long candidate = heads.peek().current();
+            if (filter != null) {
+                filterPosition = SortedLongArrays.lowerBound(filter, filterPosition, candidate);
+                if (filterPosition == filter.length) {
+                    break;
+                }
+                if (filter[filterPosition] != candidate) {
+                    advanceAll(heads, filter[filterPosition]);
+                    continue;
+                }
+            }
+            if (count == result.length) {
+                result = Arrays.copyOf(result, Math.min(limit, count * 2));
+            }
+            result[count++] = candidate;
+            advanceAll(heads, candidate + 1);
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Сдвигает все списки, голова которых меньше {@code target}, к первому id не меньше него.
+     */
+    private static void advanceAll(PriorityQueue<PostingCursor> heads, long target) {
+        while (!heads.isEmpty() && heads.peek().current() < target) {
+            PostingCursor cursor = heads.poll();
+            if (cursor.seek(target)) {
+                heads.add(cursor);
+            }
+        }
+    }
+
+    private static Set<String> terms(Film film) {
+        Set<String> terms = new HashSet<>(tokenize(film.getName()));
+        terms.addAll(tokenize(film.getDescription()));
+        return terms;
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(SEPARATORS.split(text.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Неизменяемое представление первых {@code size} элементов массива.
+     * Дописывание в конец пишет только в ячейку за пределами всех выданных представлений,
+     * поэтому массив можно разделять между старой и новой версией.
+     */
+    private record Posting(long[] ids, int size) {
+
+        Posting with(long id) {
+            if (ids[size - 1] < id) {
+                long[] target = size < ids.length ? ids : Arrays.copyOf(ids, size * 2);
+                target[size] = id;
+                return new Posting(target, size + 1);
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return this;
+            }
+            int position = -index - 1;
+            long[] copy = new long[size * 2];
+            System.arraycopy(ids, 0, copy, 0, position);
+            copy[position] = id;
+            System.arraycopy(ids, position, copy, position + 1, size - position);
+            return new Posting(copy, size + 1);
+        }
+
+        Posting without(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return this;
+            }
+            long[] copy = new long[size - 1];
+            System.arraycopy(ids, 0, copy, 0, index);
+            System.arraycopy(ids, index + 1, copy, index, size - index - 1);
+            return new Posting(copy, size - 1);
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+    }
+
+    /**
+     * Позиция в неизменяемом списке; читает только его первые {@code size} элементов.
+     */
+    private static final class PostingCursor implements Comparable<PostingCursor> {
+        private final Posting posting;
+        private int position;
+
+        PostingCursor(Posting posting) {
+            this.posting = posting;
+        }
+
+        long current() {
+            return posting.ids()[position];
+        }
+
+        @Override
+        public int compareTo(PostingCursor other) {
+            return Long.compare(current(), other.current());
+        }
+
+        /**
+         * Переходит к первому id не меньше {@code target}; false, если список кончился.
+         */
+        boolean seek(long target) {
+            position = SortedLongArrays.lowerBound(posting.ids(), position, posting.size(), target);
+            return position < posting.size();
+        }
+    }
+}
@@ -1,8 +1,273 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Хранилище фильмов. Лайки хранятся в примитивных множествах по фильму,
+ * рейтинг популярности — в {@link FilmPopularityIndex}, который обновляется при каждом лайке,
+ * поэтому топ-N читается за O(N) без блокировок и без сортировки всего каталога.
+ * Полнотекстовый поиск и выборки по диапазонам обслуживают {@link FilmSearchIndex}
+ * и {@link FilmRangeIndex}, обновляемые при каждой записи.
+ * Лайки сохраняются в отдельный журнал связей (см. {@link #attachLikesJournal}).
+ */
 public class FilmStorage extends InMemoryStorage<Film> {
+    private final Map<Long, LongHashSet> likes = new ConcurrentHashMap<>();
+    private final FilmPopularityIndex popularity = new FilmPopularityIndex();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final FilmRangeIndex rangeIndex = new FilmRangeIndex();
+    private volatile LikeListener likeListener;
+    private volatile StorageJournal<Link> likesJournal;
+
+    public FilmStorage() {
+        this(EntityCodec.objects(Film::copy));
+    }
+
+    public FilmStorage(EntityCodec<Film> codec) {
+        super(codec);
+    }
+
+    @Override
+    public void registerMetrics(MeterRegistry registry) {
+        super.registerMetrics(registry);
+        Gauge.builder("filmorate.storage.index.size", searchIndex, FilmSearchIndex::termCount)
+                .tag("storage", storageName)
+                .tag("index", "search")
+                .register(registry);
+        Gauge.builder("filmorate.storage.index.size", popularity, FilmPopularityIndex::size)
+                .tag("storage", storageName)
+                .tag("index", "popularity")
+                .register(registry);
+    }
+
+    public void setLikeListener(LikeListener likeListener) {
+        this.likeListener = likeListener;
+    }
+
+    /**
+     * Восстанавливает лайки из журнала и дальше дописывает в него каждое изменение.
+     * Вызывать после {@link #attachJournal}, до приёма запросов.
+     */
+    public void attachLikesJournal(StorageJournal<Link> journal) {
+        journal.replay(link -> {
+            if (link.linked()) {
+                applyLike(link.from(), link.to());
+            } else {
+                applyUnlike(link.from(), link.to());
+            }
+        });
+        journal.start(this::likeLinks);
+        this.likesJournal = journal;
+    }
+
+    @Override
+    public void closeJournal() {
+        super.closeJournal();
+        StorageJournal<Link> current = likesJournal;
+        likesJournal = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    public boolean addLike(long filmId, long userId) {
+        return applyLike(filmId, userId);
+    }
+
+    public boolean removeLike(long filmId, long userId) {
+        return applyUnlike(filmId, userId);
+    }
+
+    private boolean applyLike(long filmId, long userId) {
+        boolean[] changed = {false};
+        AtomicReference<CompletableFuture<Void>> written = new AtomicReference<>();
+        likes.compute(filmId, (id, users) -> {
+            if (users == null) {
+                users = new LongHashSet();
+            }
+            if (users.add(userId)) {
+                notifyListener(filmId, userId, true);
+                publishChange("like", filmId, userId);
+                appendLink(written, new Link(filmId, userId, true));
+                changed[0] = true;
+            }
+            return users;
+        });
+        updateRank(filmId, changed[0]);
+        awaitJournal(written.get());
+        awaitListener(changed[0]);
+        return changed[0];
+    }
+
+    private boolean applyUnlike(long filmId, long userId) {
+        boolean[] changed = {false};
+        AtomicReference<CompletableFuture<Void>> written = new AtomicReference<>();
+        likes.computeIfPresent(filmId, (id, users) -> {
+            if (users.remove(userId)) {
+                notifyListener(filmId, userId, false);
+                publishChange("unlike", filmId, userId);
+                appendLink(written, new Link(filmId, userId, false));
+                changed[0] = true;
+            }
+            return users;
+        });
+        updateRank(filmId, changed[0]);
+        awaitJournal(written.get());
+        awaitListener(changed[0]);
+        return changed[0];
+    }
+
+    public int countLikes(long filmId) {
+        LongHashSet users = likes.get(filmId);
+        return users == null ? 0 : users.size();
+    }
+
+    /**
+     * Отсортированные id пользователей, лайкнувших фильм.
+     */
+    public long[] likeIds(long filmId) {
+        long[][] ids = {SortedLongArrays.EMPTY};
+        likes.computeIfPresent(filmId, (id, users) -> {
+            ids[0] = users.toArray();
+            return users;
+        });
+        Arrays.sort(ids[0]);
+        return ids[0];
+    }
+
+    /**
+     * Приводит лайки фильма к заданному набору через обычные добавления и удаления,
+     * чтобы рейтинг и слушатель лайков увидели каждое изменение.
+     */
+    public void replaceLikes(long filmId, long[] userIds) {
+        long[] current = likeIds(filmId);
+        for (long userId : current) {
+            if (!SortedLongArrays.contains(userIds, userId)) {
+                removeLike(filmId, userId);
+            }
+        }
+        for (long userId : userIds) {
+            if (!SortedLongArrays.contains(current, userId)) {
+                addLike(filmId, userId);
+            }
+        }
+    }
+
+    /**
+     * Фильмы с лайками в порядке рейтинга, а если их меньше {@code count} — следом фильмы без лайков
+     * в порядке id. Фильм, лайкнутый после снятия рейтинга, попадает в хвост, но не пропадает
+     * и не встречается дважды.
+     */
+    public List<Film> findPopular(int count) {
+        long[] ranked = popularity.top(count);
+        List<Film> result = new ArrayList<>(ranked.length);
+        for (long id : ranked) {
+            Film film = findById(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        if (ranked.length < count) {
+            LongHashSet listed = new LongHashSet(ranked.length);
+            for (long id : ranked) {
+                listed.add(id);
+            }
+            for (Film film : getAll()) {
+                if (result.size() >= count) {
+                    break;
+                }
+                if (!listed.contains(film.getId())) {
+                    result.add(film);
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<Film> search(String query, int limit) {
+        long[] ids = searchIndex.search(query, limit);
+        List<Film> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Film film = findById(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * До {@code limit} фильмов с id больше {@code afterId} в порядке id, попавших во все заданные диапазоны.
+     */
+    public List<Film> findByRanges(LocalDate releasedFrom, LocalDate releasedTo, Integer minDuration,
+                                   Integer maxDuration, long afterId, int limit) {
+        List<Film> result = new ArrayList<>();
+        long[] ids = rangeIndex.findCandidates(releasedFrom, releasedTo, minDuration, maxDuration, afterId, limit,
+                id -> {
+                    Film film = findById(id);
+                    if (film == null || !matches(film, releasedFrom, releasedTo, minDuration, maxDuration)) {
+                        return false;
+                    }
+                    result.add(film);
+                    return true;
+                });
+        return ids == null ? findPage(afterId, limit) : result;
+    }
+
+    @Override
+    protected void afterWrite(Film previous, Film current) {
+        if (isRestoring()) {
+            // индексы поиска и диапазонов строятся одним проходом в afterRestore
+            return;
+        }
+        // индексы обновляются, только если изменились их ключи
+        if (previous == null || !Objects.equals(previous.getName(), current.getName())
+                || !Objects.equals(previous.getDescription(), current.getDescription())) {
+            searchIndex.update(previous, current);
+        }
+        if (previous == null || !Objects.equals(previous.getReleaseDate(), current.getReleaseDate())
+                || previous.getDuration() != current.getDuration()) {
+            rangeIndex.update(previous, current);
+        }
+    }
+
+    /**
+     * Индексы строятся одним проходом по срезу в порядке id: вставка в середину
+     * списка поискового индекса копирует его, и при параллельной загрузке снимка
+     * восстановление становилось квадратичным. Только локальные данные: у узла кластера
+     * {@code findAll} опрашивает соседей, которые при старте могут быть ещё недоступны.
+     */
+    @Override
+    protected void afterRestore() {
+        for (Film film : getAll()) {
+            searchIndex.update(null, film);
+            rangeIndex.update(null, film);
+        }
+    }
+
+    @Override
+    protected void afterEvict(Film previous) {
+        long filmId = previous.getId();
+        // лайки снимаются обычным путём, чтобы их увидели рекомендации и журнал лайков
+        replaceLikes(filmId, SortedLongArrays.EMPTY);
+        likes.remove(filmId);
+        searchIndex.remove(previous);
+        rangeIndex.remove(previous);
+    }
+
     @Override
     protected void setId(Film film, Long id) {
         film.setId(id);
@@ -12,4 +277,79 @@ public class FilmStorage extends InMemoryStorage<Film> {
     protected Long getId(Film film) {
         return film.getId();
     }
-}
\ No newline at end of file
+
+    @Override
+    protected long getVersion(Film film) {
+        return film.getVersion();
+    }
+
+    @Override
+    protected void setVersion(Film film, long version) {
+        film.setVersion(version);
+    }
+
+    @Override
+    protected Object getUniqueKey(Film film) {
+        return film.getName();
+    }
+
+    @Override
+    protected String getDuplicateMessage() {
+        return "Фильм с таким названием уже существует";
+    }
+
+    private static boolean matches(Film film, LocalDate releasedFrom, LocalDate releasedTo,
+                                   Integer minDuration, Integer maxDuration) {
+        LocalDate releaseDate = film.getReleaseDate();
+        if ((releasedFrom != null || releasedTo != null) && releaseDate == null) {
+            return false;
+        }
+        return (releasedFrom == null || !releaseDate.isBefore(releasedFrom))
+                && (releasedTo == null || !releaseDate.isAfter(releasedTo))
+                && (minDuration == null || film.getDuration() >= minDuration)
+                && (maxDuration == null || film.getDuration() <= maxDuration);
+    }
+
+    /**
+     * Вызывается внутри compute по фильму, поэтому записи журнала идут в порядке изменений.
+     */
+    private void appendLink(AtomicReference<CompletableFuture<Void>> written, Link link) {
+        StorageJournal<Link> journal = likesJournal;
+        if (journal != null) {
+            written.set(journal.append(link));
+        }
+    }
+
+    /**
+     * Все действующие лайки для снимка журнала; лайки одного фильма читаются согласованно.
+     */
+    private Iterable<Link> likeLinks() {
+        return () -> likes.keySet().stream()
+                .flatMap(filmId -> Arrays.stream(likeIds(filmId)).mapToObj(userId -> new Link(filmId, userId, true)))
+                .iterator();
+    }
+
+    private void notifyListener(long filmId, long userId, boolean liked) {
+        LikeListener listener = likeListener;
+        if (listener != null) {
+            listener.onLikeChanged(filmId, userId, liked);
+        }
+    }
+
+    private void awaitListener(boolean changed) {
+        LikeListener listener = likeListener;
+        if (changed && listener != null) {
+            listener.awaitCapacity();
+        }
+    }
+
+    /**
+     * Вне compute по фильму: рейтинг берёт свою блокировку, а ожидание её внутри compute
+     * держало бы корзину карты лайков и закрепляло виртуальный поток на носителе.
+     */
+    private void updateRank(long filmId, boolean changed) {
+        if (changed) {
+            popularity.refresh(filmId, this::countLikes);
+        }
+    }
+}
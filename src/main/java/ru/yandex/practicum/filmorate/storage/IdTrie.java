@@ -0,0 +1,228 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Неизменяемое отображение id → значение: префиксное дерево по 5 бит id с ветвлением 32.
+ * Запись копирует только путь от корня до листа (для миллиона id — четыре массива по 32 ссылки),
+ * остальные узлы общие с прежней версией, поэтому каждая версия дерева — целый снимок данных,
+ * который не меняется и не требует блокировок при чтении. Обход идёт по возрастанию id.
+ * Id должны быть неотрицательными.
+ */
+final class IdTrie {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    static final IdTrie EMPTY = new IdTrie(new Object[WIDTH], 0, 0);
+
+    private final Object[] root;
+    // сдвиг id для уровня корня; у листьев сдвиг 0
+    private final int shift;
+    private final int size;
+
+    private IdTrie(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Object get(long id) {
+        if (!fits(id, shift)) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[digit(id, level)];
+            if (node == null) {
+                return null;
+            }
+        }
+        return node[digit(id, 0)];
+    }
+
+    /**
+     * Новая версия дерева, в которой {@code id} соответствует {@code value}; эта не меняется.
+     */
+    IdTrie with(long id, Object value) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Отрицательный id: " + id);
+        }
+        Object[] newRoot = root;
+        int newShift = shift;
+        while (!fits(id, newShift)) {
+            // дерево растёт вверх: прежний корень становится первым потомком нового
+            Object[] parent = new Object[WIDTH];
+            parent[0] = newRoot;
+            newRoot = parent;
+            newShift += BITS;
+        }
+        int newSize = get(id) == null ? size + 1 : size;
+        return new IdTrie(set(newRoot, newShift, id, value), newShift, newSize);
+    }
+
+    /**
+     * Новая версия дерева без {@code id}; опустевшие узлы остаются на месте.
+     */
+    IdTrie without(long id) {
+        if (get(id) == null) {
+            return this;
+        }
+        return new IdTrie(set(root, shift, id, null), shift, size - 1);
+    }
+
+    /**
+     * Новая версия дерева с изменениями пачки, применёнными по порядку ({@code null} в {@code values} — удаление).
+     * Узел на путях пачки копируется один раз, а не на каждое изменение: копии ещё не опубликованы,
+     * поэтому их можно дописывать на месте. Эта версия не меняется.
+     */
+    IdTrie withAll(long[] ids, Object[] values, int count) {
+        if (count == 0) {
+            return this;
+        }
+        long maxId = 0;
+        for (int i = 0; i < count; i++) {
+            if (ids[i] < 0) {
+                throw new IllegalArgumentException("Отрицательный id: " + ids[i]);
+            }
+            maxId = Math.max(maxId, ids[i]);
+        }
+        Set<Object[]> copies = Collections.newSetFromMap(new IdentityHashMap<>());
+        Object[] newRoot = root.clone();
+        copies.add(newRoot);
+        int newShift = shift;
+        while (!fits(maxId, newShift)) {
+            Object[] parent = new Object[WIDTH];
+            parent[0] = newRoot;
+            copies.add(parent);
+            newRoot = parent;
+            newShift += BITS;
+        }
+        int newSize = size;
+        for (int i = 0; i < count; i++) {
+            long id = ids[i];
+            Object[] node = newRoot;
+            for (int level = newShift; level > 0; level -= BITS) {
+                int index = digit(id, level);
+                Object[] child = (Object[]) node[index];
+                if (child == null || !copies.contains(child)) {
+                    child = child == null ? new Object[WIDTH] : child.clone();
+                    copies.add(child);
+                    node[index] = child;
+                }
+                node = child;
+            }
+            int index = digit(id, 0);
+            Object previous = node[index];
+            node[index] = values[i];
+            newSize += (values[i] != null ? 1 : 0) - (previous != null ? 1 : 0);
+        }
+        return new IdTrie(newRoot, newShift, newSize);
+    }
+
+    /**
+     * Обход записей с id больше {@code afterId}.
+     */
+    Cursor cursor(long afterId) {
+        return new Cursor(afterId);
+    }
+
+    private static Object[] set(Object[] node, int level, long id, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int index = digit(id, level);
+        copy[index] = level == 0 ? value : set((Object[]) copy[index], level - BITS, id, value);
+        return copy;
+    }
+
+    private static boolean fits(long id, int shift) {
+        return id >= 0 && (id >>> shift) >>> BITS == 0;
+    }
+
+    private static int digit(long id, int level) {
+        return (int) (id >>> level) & MASK;
+    }
+
+    /**
+     * Курсор по возрастанию id: стек узлов от корня до листа и позиция в каждом из них.
+     */
+    final class Cursor {
+        private final Object[][] nodes;
+        private final int[] positions;
+        private int depth;
+        // пока курсор не сдвинулся, спуск идёт по пути первого id, а не с нулевой позиции
+        private boolean onStartPath = true;
+        private long id;
+        private Object value;
+
+        private Cursor(long afterId) {
+            int levels = shift / BITS + 1;
+            nodes = new Object[levels][];
+            positions = new int[levels];
+            long first = afterId < 0 ? 0 : afterId + 1;
+            if (!fits(first, shift)) {
+                depth = -1;
+                return;
+            }
+            nodes[0] = root;
+            for (int d = 0; d < levels; d++) {
+                positions[d] = digit(first, shift - d * BITS);
+            }
+        }
+
+        /**
+         * Переходит к следующей записи; false, если записей больше нет.
+         */
+        boolean next() {
+            int leaf = nodes.length - 1;
+            while (depth >= 0) {
+                int position = positions[depth];
+                if (position == WIDTH) {
+                    depth--;
+                    if (depth >= 0) {
+                        positions[depth]++;
+                    }
+                    continue;
+                }
+                Object child = nodes[depth][position];
+                if (child == null || depth == leaf) {
+                    positions[depth]++;
+                    onStartPath = false;
+                    if (child != null) {
+                        id = idAt(position);
+                        value = child;
+                        return true;
+                    }
+                    continue;
+                }
+                depth++;
+                nodes[depth] = (Object[]) child;
+                if (!onStartPath) {
+                    positions[depth] = 0;
+                }
+            }
+            return false;
+        }
+
+        long id() {
+            return id;
+        }
+
+        Object value() {
+            return value;
+        }
+
+        private long idAt(int leafPosition) {
+            long result = leafPosition;
+            for (int d = 0; d < nodes.length - 1; d++) {
+                result |= (long) positions[d] << (shift - d * BITS);
+            }
+            return result;
+        }
+    }
+}
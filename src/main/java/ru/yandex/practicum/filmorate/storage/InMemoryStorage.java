@@ -1,51 +1,762 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
+import java.util.function.UnaryOperator;
 
+/**
+ * Потокобезопасное хранилище в памяти.
+ * Записи идут через {@link ConcurrentHashMap} без глобальной блокировки,
+ * идентификаторы выдаются атомарным счётчиком, поэтому не дублируются.
+ * Уникальный ключ сущности (см. {@link #getUniqueKey}) хранится во вторичном индексе,
+ * проверка на дубликат и вставка выполняются одним атомарным шагом за O(1);
+ * если запись после этого не удалась, занятый ею ключ освобождается.
+ * Выборки читают неизменяемый снимок {@link IdTrie}, поэтому обход любой длины видит данные на один
+ * момент и не блокирует писателей. Снимок упорядочен по id и читается страницами по курсору.
+ * Записи публикуются в нём пачками (групповая публикация, как групповая запись журнала):
+ * внутри compute по id писатель только ставит запись в очередь, а первый из ожидающих под общей
+ * блокировкой применяет всю очередь одной новой версией дерева, где каждый узел копируется раз на пачку.
+ * Писатель возвращается, когда его запись видна в снимке.
+ * Если подключён {@link StorageJournal}, каждая запись дописывается в журнал на диске
+ * в порядке публикации, после попадания в снимок.
+ * Значения хранятся в представлении {@link EntityCodec}: по умолчанию сами объекты,
+ * в компактном режиме — упакованные записи, из которых объект собирается при чтении.
+ * С {@link #enableJsonFragments()} вместе со значением хранится JSON той же версии сущности:
+ * списки отдаются склейкой готовых фрагментов, а журнал пишет те же байты.
+ */
 public abstract class InMemoryStorage<T> {
-    protected final Map<Long, T> storage = new HashMap<>();
-    private long currentId = 0;
+    private static final long ANY_VERSION = -1;
+    private static final int MAX_PUBLISH_BATCH = 1024;
+
+    private final Map<Long, Object> storage = new ConcurrentHashMap<>();
+    protected final Map<Object, Long> uniqueIndex = new ConcurrentHashMap<>();
+    // последняя опубликованная версия снимка: значения storage без ещё стоящих в очереди записей
+    private volatile IdTrie snapshot = IdTrie.EMPTY;
+    // записи в порядке выполнения, ожидающие снимка и журнала; для одного id — в порядке записей
+    private final Queue<Publication> publications = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private final AtomicLong currentId = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private volatile StorageJournal<T> journal;
+    private volatile ChangeFeed changeFeed;
+    private volatile boolean jsonFragments;
+    private volatile boolean restoring;
+    private String entityName;
+    protected final String storageName = getClass().getSimpleName();
+    private volatile StorageMetrics metrics = StorageMetrics.DETACHED;
+    private final EntityCodec<T> codec;
+
+    protected InMemoryStorage(EntityCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Регистрирует таймеры и размеры хранилища в {@code registry} с тегом {@code storage} — именем класса.
+     * Вызывается только для хранилищ-бинов с реестром их контекста: такой экземпляр один на класс,
+     * а временные хранилища (тесты, бенчмарки) с теми же тегами получили бы чужие метры
+     * и копились бы в реестре.
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        metrics = new StorageMetrics(storageName, registry);
+        Gauge.builder("filmorate.storage.size", storage, Map::size)
+                .tag("storage", storageName)
+                .register(registry);
+        Gauge.builder("filmorate.storage.index.size", uniqueIndex, Map::size)
+                .tag("storage", storageName)
+                .tag("index", "unique")
+                .register(registry);
+    }
+
+    public void attachJournal(StorageJournal<T> journal) {
+        restoring = true;
+        try {
+            journal.replay(this::restore);
+        } finally {
+            restoring = false;
+        }
+        afterRestore();
+        journal.start(this::currentSnapshot);
+        this.journal = journal;
+    }
 
+    /**
+     * Публикует каждое создание и изменение в ленту под именем {@code entityName}.
+     * Восстановление из журнала в ленту не попадает.
+     */
+    public void attachChangeFeed(ChangeFeed changeFeed, String entityName) {
+        this.entityName = entityName;
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Включает JSON-фрагменты; вызывать до первой записи или восстановления.
+     */
+    public void enableJsonFragments() {
+        this.jsonFragments = true;
+    }
+
+    public void closeJournal() {
+        StorageJournal<T> current = journal;
+        journal = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Все сущности на момент вызова в порядке id; коллекция не меняется при последующих записях.
+     */
     public Collection<T> findAll() {
-        return storage.values();
+        long start = System.nanoTime();
+        Collection<T> all = currentSnapshot();
+        StorageMetrics.record(metrics.findAll, start);
+        return all;
+    }
+
+    public List<T> findPage(long afterId, int limit) {
+        long start = System.nanoTime();
+        List<T> page = currentSnapshot().findPage(afterId, limit);
+        StorageMetrics.record(metrics.findPage, start);
+        return page;
+    }
+
+    /**
+     * Срез для чтения в несколько шагов (потоковая выдача, выгрузка): следующие страницы
+     * берутся из того же момента, что и первая.
+     */
+    public StorageSnapshot<T> snapshot() {
+        return currentSnapshot();
     }
 
     public T findById(Long id) {
-        return storage.get(id);
+        long start = System.nanoTime();
+        Object stored = id == null ? null : storage.get(id);
+        T entity = stored == null ? null : unpack(id, stored);
+        StorageMetrics.record(metrics.findById, start);
+        return entity;
     }
 
     public T save(T entity) {
-        Long id = getNextId();
-        setId(entity, id);
-        storage.put(id, entity);
-        return entity;
+        return saveWithId(entity, null);
+    }
+
+    /**
+     * Сохраняет сущность под заранее выданным {@link #getNextId()} идентификатором
+     * (или под новым, если {@code presetId == null}).
+     */
+    protected T saveWithId(T entity, Long presetId) {
+        long start = System.nanoTime();
+        try {
+            awaitJournal(doSave(entity, presetId));
+            return entity;
+        } finally {
+            StorageMetrics.record(metrics.save, start);
+        }
+    }
+
+    /**
+     * Сохраняет новые сущности в порядке списка, поэтому id выдаются в том же порядке.
+     * Запись в журнал ожидается один раз на весь список, а не на каждую сущность.
+     * Отклонённая сущность (например, дубликат) передаётся в {@code onReject} со своим номером
+     * в списке и не прерывает сохранение остальных.
+     */
+    public void saveAll(List<T> entities, ObjIntConsumer<RuntimeException> onReject) {
+        List<CompletableFuture<Void>> written = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            long start = System.nanoTime();
+            try {
+                CompletableFuture<Void> future = doSave(entities.get(i), null);
+                if (future != null) {
+                    written.add(future);
+                }
+            } catch (RuntimeException e) {
+                onReject.accept(e, i);
+            } finally {
+                StorageMetrics.record(metrics.save, start);
+            }
+        }
+        written.forEach(InMemoryStorage::awaitJournal);
     }
 
     public T update(T entity) {
+        long start = System.nanoTime();
+        try {
+            return doUpdate(entity, ANY_VERSION, null);
+        } finally {
+            StorageMetrics.record(metrics.update, start);
+        }
+    }
+
+    /**
+     * Обновляет сущности в порядке списка; запись в журнал ожидается один раз на весь список.
+     * Отклонённая сущность (нет такого id, дубликат) передаётся в {@code onReject} со своим номером
+     * в списке и не прерывает обновление остальных.
+     */
+    public void updateAll(List<T> entities, ObjIntConsumer<RuntimeException> onReject) {
+        List<CompletableFuture<Void>> written = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            long start = System.nanoTime();
+            try {
+                doUpdate(entities.get(i), ANY_VERSION, written);
+            } catch (RuntimeException e) {
+                onReject.accept(e, i);
+            } finally {
+                StorageMetrics.record(metrics.update, start);
+            }
+        }
+        written.forEach(InMemoryStorage::awaitJournal);
+    }
+
+    /**
+     * Частичное обновление с оптимистичной блокировкой: {@code change} применяется к текущему
+     * состоянию вне блокировок, а результат записывается, только если версия сущности за это время
+     * не изменилась; иначе попытка повторяется на свежих данных. Если задана {@code expectedVersion}
+     * и она не совпадает с текущей, бросается {@link VersionConflictException}.
+     * {@code change} не должна изменять переданный объект — только вернуть новый.
+     */
+    public T patch(long id, Long expectedVersion, UnaryOperator<T> change) {
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                Object stored = storage.get(id);
+                if (stored == null) {
+                    throw new NoSuchElementException("Entity with id = " + id + " not found.");
+                }
+                T current = unpack(id, stored);
+                long currentVersion = getVersion(current);
+                if (expectedVersion != null && expectedVersion != currentVersion) {
+                    throw new VersionConflictException("Запись с id = " + id + " уже изменена: текущая версия "
+                            + currentVersion + ", ожидалась " + expectedVersion);
+                }
+                T updated = change.apply(current);
+                setId(updated, id);
+                if (doUpdate(updated, currentVersion, null) != null) {
+                    return updated;
+                }
+            }
+        } finally {
+            StorageMetrics.record(metrics.update, start);
+        }
+    }
+
+    /**
+     * Возвращает ожидание записи в журнал (null без журнала).
+     */
+    private CompletableFuture<Void> doSave(T entity, Long presetId) {
+        Object key = getUniqueKey(entity);
+        Long id = key == null ? idOrNext(presetId) : uniqueIndex.compute(key, (k, ownerId) -> {
+            if (ownerId != null) {
+                throw new DuplicatedDataException(getDuplicateMessage());
+            }
+            return idOrNext(presetId);
+        });
+        Publication publication;
+        try {
+            setId(entity, id);
+            setVersion(entity, 1);
+            byte[] json = encodeFragment(entity);
+            Object stored = pack(entity, json);
+            publication = new Publication(id, stored, journalPayload(entity, json));
+            storage.compute(id, (k, previous) -> {
+                // внутри compute, чтобы изменение того же id не попало в индексы наследников, ленту,
+                // снимок и журнал раньше создания
+                afterWrite(null, entity);
+                publishChange("create", id, entity);
+                publications.add(publication);
+                return stored;
+            });
+        } catch (RuntimeException e) {
+            // сущность не сохранена: ключ не должен остаться занятым навсегда
+            if (key != null) {
+                uniqueIndex.remove(key, id);
+            }
+            throw e;
+        }
+        return publish(publication);
+    }
+
+    /**
+     * Заменяет сущность и увеличивает её версию. Возвращает null, если задана
+     * {@code expectedVersion} и текущая версия с ней не совпала (запись не выполняется).
+     * Если передан {@code pending}, ожидание записи в журнал добавляется туда, а не выполняется здесь.
+     */
+    private T doUpdate(T entity, long expectedVersion, List<CompletableFuture<Void>> pending) {
         Long id = getId(entity);
-        if (!storage.containsKey(id)) {
-            throw new NoSuchElementException("Entity with id = " + id + " not found.");
+        if (id == null) {
+            throw new NoSuchElementException("Entity with id = null not found.");
+        }
+        AtomicReference<Publication> publication = new AtomicReference<>();
+        boolean[] stale = {false};
+        storage.compute(id, (k, existingStored) -> {
+            if (existingStored == null) {
+                throw new NoSuchElementException("Entity with id = " + id + " not found.");
+            }
+            T existing = unpack(id, existingStored);
+            if (expectedVersion != ANY_VERSION && getVersion(existing) != expectedVersion) {
+                stale[0] = true;
+                return existingStored;
+            }
+            Object oldKey = getUniqueKey(existing);
+            Object newKey = getUniqueKey(entity);
+            boolean keyChanged = !Objects.equals(oldKey, newKey);
+            boolean reserved = false;
+            if (keyChanged && newKey != null) {
+                Long ownerId = uniqueIndex.putIfAbsent(newKey, id);
+                if (ownerId != null && !ownerId.equals(id)) {
+                    throw new DuplicatedDataException(getDuplicateMessage());
+                }
+                reserved = ownerId == null;
+            }
+            Object stored;
+            try {
+                setVersion(entity, getVersion(existing) + 1);
+                byte[] json = encodeFragment(entity);
+                stored = pack(entity, json);
+                afterWrite(existing, entity);
+                // внутри compute, чтобы события, версии снимка и журнал одной сущности шли в порядке записей
+                publishChange("update", id, entity);
+                publication.set(new Publication(id, stored, journalPayload(entity, json)));
+                publications.add(publication.get());
+            } catch (RuntimeException e) {
+                // запись не состоялась: новый ключ освобождается, старый остаётся за сущностью
+                if (reserved) {
+                    uniqueIndex.remove(newKey, id);
+                }
+                throw e;
+            }
+            // старый ключ отпускается только после успешной записи
+            if (keyChanged && oldKey != null) {
+                uniqueIndex.remove(oldKey, id);
+            }
+            return stored;
+        });
+        if (stale[0]) {
+            return null;
+        }
+        CompletableFuture<Void> written = publish(publication.get());
+        if (pending == null) {
+            awaitJournal(written);
+        } else if (written != null) {
+            pending.add(written);
         }
-        storage.put(id, entity);
         return entity;
     }
 
+    /**
+     * Заполняет {@code ids} и {@code packed} записями с id больше {@code afterId} в порядке id,
+     * значения — в представлении {@code format}; возвращает число записей. Если хранилище
+     * само хранит сущности в этом представлении, значения отдаются как есть, без распаковки.
+     * Обходит только данные этого экземпляра.
+     */
+    public int findPackedPage(long afterId, EntityCodec<T> format, long[] ids, Object[] packed) {
+        return currentSnapshot().findPackedPage(afterId, format, ids, packed);
+    }
+
+    /**
+     * Все сущности JSON-массивом в порядке id.
+     */
+    public byte[] findAllJson() {
+        return findPageJson(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Страница {@link #findPage} JSON-массивом: из готовых фрагментов, без распаковки сущностей.
+     */
+    public byte[] findPageJson(long afterId, int limit) {
+        long start = System.nanoTime();
+        byte[] json = currentSnapshot().findPageJson(afterId, limit);
+        StorageMetrics.record(metrics.findPage, start);
+        return json;
+    }
+
+    /**
+     * Сущности JSON-массивом в переданном порядке. Для сущности, чья версия совпадает
+     * с сохранённым фрагментом, берётся фрагмент, остальные кодируются на месте.
+     */
+    public byte[] toJson(Collection<T> entities) {
+        List<byte[]> parts = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            Long id = getId(entity);
+            Object stored = id == null ? null : storage.get(id);
+            boolean sameVersion = stored instanceof JsonFragments.Fragment fragment
+                    && fragment.version() == getVersion(entity);
+            parts.add(sameVersion ? ((JsonFragments.Fragment) stored).json() : JsonFragments.encode(entity));
+        }
+        return JsonFragments.array(parts);
+    }
+
     public boolean existsById(Long id) {
-        return storage.containsKey(id);
+        return id != null && storage.containsKey(id);
     }
 
     public Collection<T> getAll() {
-        return storage.values();
+        return currentSnapshot();
+    }
+
+    /**
+     * Номер версии данных: растёт после каждой записи, когда она уже видна читателям.
+     * Значение, прочитанное до выборки, не новее самих данных.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Читается ли {@link #version()} без обращения к другим узлам. Если нет, кэш ответов по версии
+     * не окупается: одна проверка версии стоит опроса всего кластера.
+     */
+    public boolean isVersionLocal() {
+        return true;
+    }
+
+    public Long idOf(T entity) {
+        return getId(entity);
+    }
+
+    /**
+     * Применяет копию сущности с ведущего узла, если она новее хранимой.
+     * Вызывается из одного потока репликации; в журнал и ленту не попадает.
+     */
+    public void replicate(T entity) {
+        Long id = getId(entity);
+        Object stored = storage.get(id);
+        if (stored == null || getVersion(unpack(id, stored)) < getVersion(entity)) {
+            restore(entity);
+        }
+    }
+
+    /**
+     * Применяет сущность из снимка ведущего узла без сравнения версий: после перезапуска
+     * ведущего узла (новая эпоха) версии начинаются заново и с хранимыми не сравнимы.
+     * Вызывается из одного потока репликации; в журнал и ленту не попадает.
+     */
+    public void replace(T entity) {
+        restore(entity);
+    }
+
+    /**
+     * Удаляет сущность, которой нет в снимке ведущего узла новой эпохи.
+     * Вызывается из одного потока репликации; в журнал и ленту не попадает.
+     */
+    public void evict(long id) {
+        Object previousStored = storage.remove(id);
+        if (previousStored == null) {
+            return;
+        }
+        publishUnjournaled(id, null);
+        T previous = unpack(id, previousStored);
+        if (getUniqueKey(previous) != null) {
+            uniqueIndex.remove(getUniqueKey(previous), id);
+        }
+        afterEvict(previous);
+    }
+
+    /**
+     * Записывает сущность как есть; вызывается без параллельных записей того же id
+     * (восстановление при старте, поток репликации).
+     */
+    protected void restore(T entity) {
+        Long id = getId(entity);
+        Object stored = pack(entity, encodeFragment(entity));
+        Object previousStored = storage.put(id, stored);
+        publishUnjournaled(id, stored);
+        T previous = previousStored == null ? null : unpack(id, previousStored);
+        if (previous != null && getUniqueKey(previous) != null) {
+            uniqueIndex.remove(getUniqueKey(previous), id);
+        }
+        if (getUniqueKey(entity) != null) {
+            uniqueIndex.put(getUniqueKey(entity), id);
+        }
+        currentId.accumulateAndGet(id, Math::max);
+        afterWrite(previous, entity);
+    }
+
+    /**
+     * Вызывается после каждой записи сущности (previous == null для новой),
+     * чтобы наследники могли поддерживать свои индексы. Для одного id вызовы упорядочены.
+     */
+    protected void afterWrite(T previous, T current) {
+    }
+
+    /**
+     * Вызывается после {@link #evict}, чтобы наследники убрали сущность из своих индексов.
+     */
+    protected void afterEvict(T previous) {
+    }
+
+    /**
+     * true, пока данные восстанавливаются из журнала: сегменты снимка идут параллельно
+     * и не по порядку id, поэтому наследник может отложить свои индексы до {@link #afterRestore()}.
+     */
+    protected boolean isRestoring() {
+        return restoring;
+    }
+
+    /**
+     * Вызывается после восстановления из журнала, до приёма новых записей.
+     */
+    protected void afterRestore() {
+    }
+
+    /**
+     * Публикует изменение в ленту, если она подключена. Для одного id вызывать в порядке записей.
+     */
+    protected void publishChange(String operation, long id, Object data) {
+        ChangeFeed feed = changeFeed;
+        if (feed != null) {
+            feed.publish(entityName, operation, id, data);
+        }
+    }
+
+    private byte[] encodeFragment(T entity) {
+        return jsonFragments ? JsonFragments.encode(entity) : null;
+    }
+
+    /**
+     * Значение для storage и снимка: представление {@link EntityCodec}, с JSON-фрагментом, если он есть.
+     */
+    private Object pack(T entity, byte[] json) {
+        Object packed = codec.encode(entity);
+        return json == null ? packed : new JsonFragments.Fragment(packed, getVersion(entity), json);
+    }
+
+    private T unpack(long id, Object stored) {
+        return codec.decode(id, stored instanceof JsonFragments.Fragment fragment ? fragment.packed() : stored);
+    }
+
+    /**
+     * Дожидается, пока запись из очереди станет видна в снимке, и возвращает ожидание её записи
+     * в журнал (null без журнала). Очередь публикует тот, кто первым возьмёт блокировку;
+     * остальные находят свои записи уже опубликованными и только отпускают её.
+     */
+    private CompletableFuture<Void> publish(Publication publication) {
+        if (!publication.done) {
+            publishLock.lock();
+            try {
+                while (!publication.done) {
+                    publishBatch();
+                }
+            } finally {
+                publishLock.unlock();
+            }
+        }
+        return publication.written;
+    }
+
+    /**
+     * Публикация вне compute для записей без журнала; вызывается без параллельных записей того же id.
+     */
+    private void publishUnjournaled(long id, Object stored) {
+        Publication publication = new Publication(id, stored, null);
+        publications.add(publication);
+        publish(publication);
+    }
+
+    /**
+     * Под {@link #publishLock}: одна новая версия снимка на пачку из очереди, затем версия данных
+     * и журнал. В журнал записи попадают после снимка, поэтому при переносе журнала все его записи
+     * уже в снимке.
+     */
+    private void publishBatch() {
+        Publication first = publications.poll();
+        // без параллельных писателей пачка из одной записи: обычная копия пути без сборки массивов
+        List<Publication> batch = publications.isEmpty() ? List.of(first) : new ArrayList<>();
+        RuntimeException failure = null;
+        try {
+            if (batch.size() == 1) {
+                IdTrie trie = snapshot;
+                snapshot = first.stored == null ? trie.without(first.id) : trie.with(first.id, first.stored);
+            } else {
+                batch.add(first);
+                Publication next;
+                while (batch.size() < MAX_PUBLISH_BATCH && (next = publications.poll()) != null) {
+                    batch.add(next);
+                }
+                long[] ids = new long[batch.size()];
+                Object[] values = new Object[batch.size()];
+                for (int i = 0; i < batch.size(); i++) {
+                    ids[i] = batch.get(i).id;
+                    values[i] = batch.get(i).stored;
+                }
+                snapshot = snapshot.withAll(ids, values, batch.size());
+            }
+            version.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        for (Publication publication : batch) {
+            publication.written = failure != null ? CompletableFuture.failedFuture(failure)
+                    : appendToJournal(publication.payload);
+            publication.done = true;
+        }
+    }
+
+    private TrieSnapshot currentSnapshot() {
+        return new TrieSnapshot(snapshot);
+    }
+
+    /**
+     * Байты записи для журнала: JSON-фрагмент или, если фрагменты выключены, JSON сущности; null без журнала.
+     */
+    private byte[] journalPayload(T entity, byte[] json) {
+        if (journal == null) {
+            return null;
+        }
+        return json != null ? json : JsonFragments.encode(entity);
+    }
+
+    private CompletableFuture<Void> appendToJournal(byte[] payload) {
+        StorageJournal<T> current = journal;
+        if (current == null || payload == null) {
+            return null;
+        }
+        try {
+            return current.appendEncoded(payload);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    protected static void awaitJournal(CompletableFuture<Void> written) {
+        if (written != null) {
+            written.join();
+        }
     }
 
     protected Long getNextId() {
-        return ++currentId;
+        return currentId.incrementAndGet();
+    }
+
+    private Long idOrNext(Long presetId) {
+        return presetId != null ? presetId : getNextId();
     }
 
     protected abstract void setId(T entity, Long id);
 
     protected abstract Long getId(T entity);
+
+    protected abstract long getVersion(T entity);
+
+    protected abstract void setVersion(T entity, long version);
+
+    protected abstract Object getUniqueKey(T entity);
+
+    protected abstract String getDuplicateMessage();
+
+    /**
+     * Запись в очереди публикации: новое значение id ({@code stored == null} — удаление)
+     * и байты для журнала. {@code written} заполняется до {@code done}.
+     */
+    private static final class Publication {
+        private final long id;
+        private final Object stored;
+        private final byte[] payload;
+        private CompletableFuture<Void> written;
+        private volatile boolean done;
+
+        private Publication(long id, Object stored, byte[] payload) {
+            this.id = id;
+            this.stored = stored;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Одна версия {@link IdTrie}: коллекция всех сущностей в порядке id, распаковываемых
+     * по мере обхода, и постраничное чтение той же версии.
+     */
+    private class TrieSnapshot extends AbstractCollection<T> implements StorageSnapshot<T> {
+        private final IdTrie trie;
+
+        TrieSnapshot(IdTrie trie) {
+            this.trie = trie;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            IdTrie.Cursor cursor = trie.cursor(-1);
+            return new Iterator<>() {
+                private boolean advanced;
+                private boolean found;
+
+                @Override
+                public boolean hasNext() {
+                    if (!advanced) {
+                        found = cursor.next();
+                        advanced = true;
+                    }
+                    return found;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    advanced = false;
+                    return unpack(cursor.id(), cursor.value());
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return trie.size();
+        }
+
+        @Override
+        public List<T> findPage(long afterId, int limit) {
+            List<T> page = new ArrayList<>(Math.min(limit, trie.size()));
+            IdTrie.Cursor cursor = trie.cursor(afterId);
+            while (page.size() < limit && cursor.next()) {
+                page.add(unpack(cursor.id(), cursor.value()));
+            }
+            return page;
+        }
+
+        @Override
+        public int findPackedPage(long afterId, EntityCodec<T> format, long[] ids, Object[] packed) {
+            boolean asStored = format.getClass() == codec.getClass();
+            IdTrie.Cursor cursor = trie.cursor(afterId);
+            int count = 0;
+            while (count < ids.length && cursor.next()) {
+                Object value = cursor.value() instanceof JsonFragments.Fragment fragment
+                        ? fragment.packed()
+                        : cursor.value();
+                ids[count] = cursor.id();
+                packed[count++] = asStored ? value : format.encode(codec.decode(cursor.id(), value));
+            }
+            return count;
+        }
+
+        byte[] findPageJson(long afterId, int limit) {
+            List<byte[]> parts = new ArrayList<>(Math.min(limit, trie.size()));
+            IdTrie.Cursor cursor = trie.cursor(afterId);
+            while (parts.size() < limit && cursor.next()) {
+                parts.add(cursor.value() instanceof JsonFragments.Fragment fragment
+                        ? fragment.json()
+                        : JsonFragments.encode(unpack(cursor.id(), cursor.value())));
+            }
+            return JsonFragments.array(parts);
+        }
+    }
 }
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.util.List;
+
+/**
+ * JSON сущностей, закодированный один раз на версию: фрагмент хранится вместе с записью
+ * сущности, а ответы-списки склеиваются из готовых фрагментов без сериализации.
+ * Формат совпадает с ответами API (даты — строками по {@code @JsonFormat}).
+ */
+final class JsonFragments {
+    private static final ObjectWriter WRITER = Json.MAPPER.writer();
+    private static final byte[] EMPTY_ARRAY = {'[', ']'};
+
+    /**
+     * Значение хранилища вместе с JSON той же версии сущности.
+     */
+    record Fragment(Object packed, long version, byte[] json) {
+    }
+
+    private JsonFragments() {
+    }
+
+    static byte[] encode(Object entity) {
+        try {
+            return WRITER.writeValueAsBytes(entity);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать " + entity.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * JSON-массив из фрагментов: размер считается заранее, байты копируются один раз.
+     */
+    static byte[] array(List<byte[]> parts) {
+        if (parts.isEmpty()) {
+            return EMPTY_ARRAY.clone();
+        }
+        int size = 1 + parts.size();
+        for (byte[] part : parts) {
+            size += part.length;
+        }
+        byte[] result = new byte[size];
+        result[0] = '[';
+        int position = 1;
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) {
+                result[position++] = ',';
+            }
+            byte[] part = parts.get(i);
+            System.arraycopy(part, 0, result, position, part.length);
+            position += part.length;
+        }
+        result[position] = ']';
+        return result;
+    }
+}
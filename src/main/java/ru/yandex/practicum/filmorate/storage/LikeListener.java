@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage;
+
+public interface LikeListener {
+    /**
+     * Вызывается внутри блокировки лайков фильма, поэтому не должен блокироваться.
+     */
+    void onLikeChanged(long filmId, long userId, boolean liked);
+
+    /**
+     * Вызывается после выхода из блокировки; здесь слушатель может притормозить писателя.
+     */
+    default void awaitCapacity() {
+    }
+}
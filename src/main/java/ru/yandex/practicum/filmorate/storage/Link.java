@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Запись журнала связей (лайк фильма, сторона дружбы): {@code from} связан с {@code to}
+ * или, если {@code linked == false}, связь снята. Снимок журнала содержит только действующие связи.
+ */
+public record Link(long from, long to, boolean linked) {
+}
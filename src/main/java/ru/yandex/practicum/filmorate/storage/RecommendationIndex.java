@@ -0,0 +1,329 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Предрассчитанные пересечения лайков между пользователями для рекомендаций.
+ * Изменения лайков попадают в очередь и применяются одним фоновым потоком:
+ * лайк фильма f пользователем u увеличивает пересечение u с каждым, кто уже лайкнул f.
+ * В пересечениях по фильму участвуют только первые {@code maxLikersPerFilm} лайкнувших: иначе
+ * каждый лайк популярного фильма стоил бы обхода всех его поклонников, а построение — квадрата
+ * их числа. Популярный фильм мало говорит о сходстве вкусов, поэтому остальные его лайки
+ * на рекомендации не влияют; места тех, кто снял лайк, остальными не заполняются.
+ * Для каждого пользователя вместе с пересечениями поддерживается множество тех, с кем пересечение
+ * наибольшее, поэтому запрос рекомендаций читает готовый список и не перебирает пересечения.
+ * Данные отстают от лайков не больше чем на {@code maxStalenessMs} плюс время обработки пачки.
+ * Постановка в очередь никогда не блокируется (она идёт под блокировкой лайков фильма
+ * и не должна занимать поток-носитель виртуального потока); размер очереди ограничивается
+ * в {@link #awaitCapacity()}, который писатель вызывает уже вне блокировки.
+ */
+@Slf4j
+public class RecommendationIndex implements LikeListener, Closeable {
+    public static final int DEFAULT_MAX_LIKERS_PER_FILM = 1000;
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Queue<LikeEvent> queue = new ConcurrentLinkedQueue<>();
+    private final int queueCapacity;
+    private final long maxStalenessMs;
+    private final int maxLikersPerFilm;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+
+    // читаются из потоков запросов: лайки пользователя и те, с кем у него наибольшее пересечение
+    private final Map<Long, long[]> userLikes = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> closestUsers = new ConcurrentHashMap<>();
+    // принадлежат только фоновому потоку: учтённые в пересечениях лайкнувшие фильм и сами пересечения
+    private final Map<Long, LongHashSet> countedLikers = new HashMap<>();
+    private final Map<Long, Overlaps> overlaps = new HashMap<>();
+    // изменения текущей пачки: лайки попадают в userLikes одним копированием на пользователя,
+    // списки ближайших публикуются только для пользователей, у которых они изменились
+    private final Map<Long, LikeChanges> pendingLikes = new HashMap<>();
+    private LongHashSet changedClosest = new LongHashSet();
+
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public RecommendationIndex(int queueCapacity, long maxStalenessMs) {
+        this(queueCapacity, maxStalenessMs, DEFAULT_MAX_LIKERS_PER_FILM);
+    }
+
+    public RecommendationIndex(int queueCapacity, long maxStalenessMs, int maxLikersPerFilm) {
+        if (maxLikersPerFilm <= 0) {
+            throw new IllegalArgumentException("maxLikersPerFilm должен быть положительным, получено " + maxLikersPerFilm);
+        }
+        this.queueCapacity = queueCapacity;
+        this.maxStalenessMs = maxStalenessMs;
+        this.maxLikersPerFilm = maxLikersPerFilm;
+        this.worker = new Thread(this::workLoop, "recommendation-index");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void onLikeChanged(long filmId, long userId, boolean liked) {
+        queue.add(new LikeEvent(filmId, userId, liked));
+        submitted.incrementAndGet();
+        LockSupport.unpark(worker);
+    }
+
+    @Override
+    public void awaitCapacity() {
+        while (submitted.get() - applied.get() > queueCapacity && running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Фильмы, которые лайкнули пользователи с наибольшим пересечением лайков,
+     * но ещё не лайкнул сам пользователь. Результат отсортирован по id.
+     */
+    public long[] recommend(long userId) {
+        long[] closest = closestUsers.get(userId);
+        if (closest == null) {
+            return SortedLongArrays.EMPTY;
+        }
+        long[] own = userLikes.getOrDefault(userId, SortedLongArrays.EMPTY);
+        LongHashSet found = new LongHashSet();
+        for (long other : closest) {
+            for (long filmId : userLikes.getOrDefault(other, SortedLongArrays.EMPTY)) {
+                if (!SortedLongArrays.contains(own, filmId)) {
+                    found.add(filmId);
+                }
+            }
+        }
+        long[] result = found.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Ждёт, пока будут применены все изменения, поставленные в очередь до вызова.
+     */
+    public void awaitApplied() {
+        long target = submitted.get();
+        while (applied.get() < target && running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void workLoop() {
+        List<LikeEvent> batch = new ArrayList<>(MAX_BATCH);
+        while (running) {
+            try {
+                LikeEvent event;
+                while (batch.size() < MAX_BATCH && (event = queue.poll()) != null) {
+                    batch.add(event);
+                }
+                if (batch.isEmpty()) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                try {
+                    batch.forEach(this::apply);
+                } finally {
+                    publish();
+                }
+                applied.addAndGet(batch.size());
+                batch.clear();
+                if (maxStalenessMs > 0 && queue.isEmpty()) {
+                    // копим следующую пачку, не превышая допустимое отставание
+                    Thread.sleep(maxStalenessMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка обновления рекомендаций", e);
+                applied.addAndGet(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Не больше {@code maxLikersPerFilm} изменений пересечений на событие. Хранилище сообщает
+     * только о действительных изменениях лайков, поэтому повторов в очереди нет и полный список
+     * лайкнувших здесь не нужен: место в учёте определяется размером учтённых.
+     */
+    private void apply(LikeEvent e) {
+        LikeChanges changes = pendingLikes.computeIfAbsent(e.userId(), id -> new LikeChanges());
+        LongHashSet counted;
+        if (e.liked()) {
+            changes.like(e.filmId());
+            counted = countedLikers.computeIfAbsent(e.filmId(), id -> new LongHashSet());
+            if (counted.size() >= maxLikersPerFilm || !counted.add(e.userId())) {
+                return;
+            }
+        } else {
+            changes.unlike(e.filmId());
+            counted = countedLikers.get(e.filmId());
+            if (counted == null || !counted.remove(e.userId())) {
+                return;
+            }
+            if (counted.isEmpty()) {
+                countedLikers.remove(e.filmId());
+            }
+        }
+        counted.forEach(other -> {
+            if (other != e.userId()) {
+                changeOverlap(e.userId(), other, e.liked());
+                changeOverlap(other, e.userId(), e.liked());
+            }
+        });
+    }
+
+    private void publish() {
+        pendingLikes.forEach((userId, changes) -> userLikes.compute(userId,
+                (id, films) -> changes.applyTo(films == null ? SortedLongArrays.EMPTY : films)));
+        pendingLikes.clear();
+        changedClosest.forEach(userId -> {
+            Overlaps similar = overlaps.get(userId);
+            if (similar == null || similar.isEmpty()) {
+                overlaps.remove(userId);
+                closestUsers.remove(userId);
+            } else {
+                closestUsers.put(userId, similar.closest());
+            }
+        });
+        changedClosest = new LongHashSet();
+    }
+
+    private void changeOverlap(long userId, long otherId, boolean increase) {
+        Overlaps similar = overlaps.computeIfAbsent(userId, id -> new Overlaps());
+        if (increase ? similar.increment(otherId) : similar.decrement(otherId)) {
+            changedClosest.add(userId);
+        }
+    }
+
+    private record LikeEvent(long filmId, long userId, boolean liked) {
+    }
+
+    /**
+     * Пересечения одного пользователя с остальными и те, с кем пересечение наибольшее.
+     * Множество ближайших обновляется при каждом изменении; обход всех пересечений нужен,
+     * только когда уменьшилось пересечение последнего из ближайших.
+     */
+    private static final class Overlaps {
+        private final LongIntHashMap counts = new LongIntHashMap();
+        private LongHashSet closest = new LongHashSet();
+        private int best;
+
+        boolean isEmpty() {
+            return counts.isEmpty();
+        }
+
+        long[] closest() {
+            return closest.toArray();
+        }
+
+        /**
+         * @return изменилось ли множество ближайших
+         */
+        boolean increment(long otherId) {
+            int overlap = counts.add(otherId, 1);
+            if (overlap > best) {
+                best = overlap;
+                closest = new LongHashSet();
+                closest.add(otherId);
+                return true;
+            }
+            return overlap == best && closest.add(otherId);
+        }
+
+        /**
+         * @return изменилось ли множество ближайших
+         */
+        boolean decrement(long otherId) {
+            int overlap = counts.add(otherId, -1);
+            if (overlap + 1 != best) {
+                return false;
+            }
+            closest.remove(otherId);
+            if (closest.isEmpty()) {
+                rebuild();
+            }
+            return true;
+        }
+
+        private void rebuild() {
+            best = 0;
+            closest = new LongHashSet();
+            counts.forEach((otherId, overlap) -> {
+                if (overlap > best) {
+                    best = overlap;
+                    closest = new LongHashSet();
+                }
+                if (overlap == best) {
+                    closest.add(otherId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Чистый итог лайков одного пользователя за пачку: лайк и его снятие в одной пачке взаимно гасятся.
+     */
+    private static final class LikeChanges {
+        private final LongHashSet added = new LongHashSet();
+        private final LongHashSet removed = new LongHashSet();
+
+        void like(long filmId) {
+            if (!removed.remove(filmId)) {
+                added.add(filmId);
+            }
+        }
+
+        void unlike(long filmId) {
+            if (!added.remove(filmId)) {
+                removed.add(filmId);
+            }
+        }
+
+        /**
+         * Новый отсортированный массив лайков: одно слияние вместо вставки каждого фильма с копированием.
+         */
+        long[] applyTo(long[] films) {
+            long[] extra = added.toArray();
+            Arrays.sort(extra);
+            long[] result = new long[films.length + extra.length];
+            int size = 0;
+            int next = 0;
+            for (long filmId : films) {
+                if (removed.contains(filmId)) {
+                    continue;
+                }
+                while (next < extra.length && extra[next] < filmId) {
+                    result[size++] = extra[next++];
+                }
+                result[size++] = filmId;
+            }
+            while (next < extra.length) {
+                result[size++] = extra[next++];
+            }
+            return size == result.length ? result : Arrays.copyOf(result, size);
+        }
+    }
+}
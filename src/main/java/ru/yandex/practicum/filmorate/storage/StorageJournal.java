@@ -0,0 +1,370 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений хранилища: append-only write-ahead log и периодические снимки.
+ * Каждая запись — кадр [длина][crc32][json]. Записи копятся в очереди и сбрасываются
+ * на диск одним fsync на пачку (group commit). Снимок пишется в отдельном потоке, чтобы не задерживать
+ * пачки: перед ним журнал откладывается в {@code wal.old}, новые записи идут в свежий {@code wal.log},
+ * а после снимка отложенный журнал удаляется.
+ * При старте состояние восстанавливается из снимка, отложенного журнала и хвоста журнала.
+ * Снимок разбит на сегменты, которые читаются и декодируются параллельно.
+ */
+@Slf4j
+public class StorageJournal<T> implements Closeable {
+    static final String WAL_FILE = "wal.log";
+    static final String WAL_OLD_FILE = "wal.old";
+    static final String SNAPSHOT_DIR = "snapshot";
+    private static final String SNAPSHOT_TMP_DIR = "snapshot.tmp";
+    private static final String SNAPSHOT_OLD_DIR = "snapshot.old";
+    private static final int DEFAULT_SEGMENT_SIZE = 100_000;
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final int MAX_BATCH = 1024;
+
+    private final Path directory;
+    private final Class<T> type;
+    private final long snapshotInterval;
+    private final int loadParallelism;
+    private final int segmentSize;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+
+    private FileChannel wal;
+    private Supplier<? extends Iterable<T>> snapshotSource;
+    private volatile Thread writer;
+    private volatile Thread snapshotter;
+    private volatile boolean running;
+    private long recordsSinceSnapshot;
+
+    public StorageJournal(Path directory, Class<T> type, long snapshotInterval) {
+        this(directory, type, snapshotInterval, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StorageJournal(Path directory, Class<T> type, long snapshotInterval, int loadParallelism) {
+        this(directory, type, snapshotInterval, loadParallelism, DEFAULT_SEGMENT_SIZE);
+    }
+
+    StorageJournal(Path directory, Class<T> type, long snapshotInterval, int loadParallelism, int segmentSize) {
+        this.directory = directory;
+        this.type = type;
+        this.snapshotInterval = snapshotInterval;
+        this.loadParallelism = Math.max(1, loadParallelism);
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Восстанавливает данные: сегменты снимка передаются в consumer параллельно
+     * (consumer должен быть потокобезопасным), затем хвост журнала — строго по порядку.
+     */
+    public void replay(Consumer<T> consumer) {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            long fromSnapshot = readSnapshot(consumer);
+            long fromWal = readFrames(directory.resolve(WAL_OLD_FILE), consumer)
+                    + readFrames(directory.resolve(WAL_FILE), consumer);
+            log.info("Journal {} restored in {} ms: {} records from snapshot, {} from wal", directory,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), fromSnapshot, fromWal);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось восстановить данные из " + directory, e);
+        }
+    }
+
+    public void start(Supplier<? extends Iterable<T>> snapshotSource) {
+        this.snapshotSource = snapshotSource;
+        try {
+            openWal();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал в " + directory, e);
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "storage-journal-" + type.getSimpleName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public CompletableFuture<Void> append(T entity) {
+        try {
+            return appendEncoded(Json.MAPPER.writeValueAsBytes(entity));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Дописывает уже сериализованную в JSON сущность.
+     */
+    public CompletableFuture<Void> appendEncoded(byte[] json) {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        queue.add(new PendingRecord(json, written));
+        return written;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Thread current = writer;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.join();
+            Thread snapshot = snapshotter;
+            if (snapshot != null) {
+                snapshot.join();
+            }
+            wal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть журнал {}", directory, e);
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+                recordsSinceSnapshot += batch.size();
+                if (snapshotInterval > 0 && recordsSinceSnapshot >= snapshotInterval) {
+                    startSnapshot();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                // ожидающие пачки получают ошибку, а поток журнала продолжает принимать записи
+                batch.forEach(record -> record.written().completeExceptionally(e));
+                log.error("Ошибка записи журнала {}", directory, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Откладывает текущий журнал и запускает снимок в отдельном потоке; пока предыдущий снимок
+     * не закончен, новый не начинается, и записи продолжают копиться в журнале.
+     */
+    private void startSnapshot() throws IOException {
+        Thread previous = snapshotter;
+        if (previous != null && previous.isAlive()) {
+            return;
+        }
+        rotateWal();
+        recordsSinceSnapshot = 0;
+        Thread snapshot = new Thread(() -> {
+            try {
+                writeSnapshot();
+            } catch (IOException | RuntimeException e) {
+                // отложенный журнал остаётся и присоединит к себе следующий
+                log.error("Не удалось записать снимок журнала {}", directory, e);
+            }
+        }, "storage-snapshot-" + type.getSimpleName());
+        snapshot.setDaemon(true);
+        snapshotter = snapshot;
+        snapshot.start();
+    }
+
+    /**
+     * Все записи журнала к этому моменту уже применены к хранилищу, поэтому попадут в снимок,
+     * который начнётся после переноса; если прошлый снимок не удался, журнал дописывается к отложенному.
+     */
+    private void rotateWal() throws IOException {
+        Path current = directory.resolve(WAL_FILE);
+        Path old = directory.resolve(WAL_OLD_FILE);
+        wal.close();
+        try {
+            if (Files.exists(old)) {
+                try (FileChannel source = FileChannel.open(current, StandardOpenOption.READ);
+                     FileChannel target = FileChannel.open(old, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    long position = 0;
+                    while (position < source.size()) {
+                        position += source.transferTo(position, source.size() - position, target);
+                    }
+                    target.force(false);
+                }
+                Files.delete(current);
+            } else {
+                Files.move(current, old, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            openWal();
+        }
+    }
+
+    private void openWal() throws IOException {
+        wal = FileChannel.open(directory.resolve(WAL_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void writeBatch(List<PendingRecord> batch) throws IOException {
+        try {
+            for (PendingRecord record : batch) {
+                writeFrame(wal, record.payload());
+            }
+            wal.force(false);
+        } catch (IOException e) {
+            batch.forEach(record -> record.written().completeExceptionally(e));
+            throw e;
+        }
+        batch.forEach(record -> record.written().complete(null));
+    }
+
+    private long readSnapshot(Consumer<T> consumer) throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_DIR);
+        if (!Files.isDirectory(snapshot)) {
+            // сбой между переименованиями: старый снимок вместе с журналом ещё согласован
+            snapshot = directory.resolve(SNAPSHOT_OLD_DIR);
+        }
+        if (!Files.isDirectory(snapshot)) {
+            return 0;
+        }
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(snapshot)) {
+            segments = files.sorted().toList();
+        }
+        ForkJoinPool pool = new ForkJoinPool(loadParallelism);
+        try {
+            return pool.submit(() -> segments.parallelStream()
+                    .mapToLong(segment -> {
+                        try {
+                            return readFrames(segment, consumer);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .sum()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Загрузка снимка прервана", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Не удалось загрузить снимок " + snapshot, e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        Path tmp = directory.resolve(SNAPSHOT_TMP_DIR);
+        deleteDirectory(tmp);
+        Files.createDirectories(tmp);
+        Iterator<T> entities = snapshotSource.get().iterator();
+        int segment = 0;
+        while (entities.hasNext()) {
+            Path file = tmp.resolve(String.format("segment-%06d.bin", segment++));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                for (int i = 0; i < segmentSize && entities.hasNext(); i++) {
+                    writeFrame(channel, Json.MAPPER.writeValueAsBytes(entities.next()));
+                }
+                channel.force(true);
+            }
+        }
+        Path current = directory.resolve(SNAPSHOT_DIR);
+        Path old = directory.resolve(SNAPSHOT_OLD_DIR);
+        deleteDirectory(old);
+        if (Files.isDirectory(current)) {
+            Files.move(current, old, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(tmp, current, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(directory.resolve(WAL_OLD_FILE));
+        deleteDirectory(old);
+        log.debug("Journal {} snapshot written: {} segments", directory, segment);
+    }
+
+    private void deleteDirectory(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private void writeFrame(FileChannel channel, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private long readFrames(Path file, Consumer<T> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            long position = 0;
+            while (true) {
+                header.clear();
+                if (channel.read(header, position) < HEADER_SIZE) {
+                    break;
+                }
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length < 0 || position + HEADER_SIZE + length > channel.size()) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                while (payload.hasRemaining()) {
+                    channel.read(payload, position + HEADER_SIZE + payload.position());
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                consumer.accept(Json.MAPPER.readValue(payload.array(), type));
+                position += HEADER_SIZE + length;
+                count++;
+            }
+            if (position < channel.size()) {
+                log.warn("Journal {}: обрезан повреждённый хвост с позиции {}", file, position);
+                channel.truncate(position);
+            }
+        }
+        return count;
+    }
+
+    private record PendingRecord(byte[] payload, CompletableFuture<Void> written) {
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймеры операций хранилища. Создаются один раз при регистрации хранилища,
+ * поэтому запись замера не ищет метр по тегам и не создаёт объектов.
+ * У незарегистрированного хранилища и без подключённого реестра (например, в тестах)
+ * запись ничего не делает.
+ */
+class StorageMetrics {
+    private static final String OPERATION_TIMER = "filmorate.storage.operation";
+
+    // реестр без подключённых реестров: его таймеры ничего не записывают
+    static final StorageMetrics DETACHED = new StorageMetrics("detached", new CompositeMeterRegistry());
+
+    final Timer save;
+    final Timer update;
+    final Timer findById;
+    final Timer findAll;
+    final Timer findPage;
+
+    StorageMetrics(String storageName, MeterRegistry registry) {
+        save = timer(storageName, "save", registry);
+        update = timer(storageName, "update", registry);
+        findById = timer(storageName, "findById", registry);
+        findAll = timer(storageName, "findAll", registry);
+        findPage = timer(storageName, "findPage", registry);
+    }
+
+    static void record(Timer timer, long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer timer(String storageName, String operation, MeterRegistry registry) {
+        return Timer.builder(OPERATION_TIMER)
+                .tag("storage", storageName)
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
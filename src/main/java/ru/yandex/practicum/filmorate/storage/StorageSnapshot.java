@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.List;
+
+/**
+ * Срез хранилища на один момент: все страницы, прочитанные через него, согласованы между собой,
+ * сколько бы ни длился обход, а писатели его не ждут.
+ */
+public interface StorageSnapshot<T> {
+
+    /**
+     * До {@code limit} сущностей с id больше {@code afterId} в порядке id.
+     */
+    List<T> findPage(long afterId, int limit);
+
+    /**
+     * Страница записей в представлении {@code format}, см. {@link InMemoryStorage#findPackedPage}.
+     */
+    int findPackedPage(long afterId, EntityCodec<T> format, long[] ids, Object[] packed);
+}
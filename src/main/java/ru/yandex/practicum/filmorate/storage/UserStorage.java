@@ -1,8 +1,177 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Хранилище пользователей. Друзья каждого пользователя хранятся отсортированным
+ * массивом long, который заменяется целиком при изменении (copy-on-write):
+ * чтение идёт без блокировок, общие друзья считаются слиянием двух массивов.
+ * Каждая сторона дружбы сохраняется в журнал связей (см. {@link #attachFriendsJournal}).
+ */
 public class UserStorage extends InMemoryStorage<User> {
+    private final Map<Long, long[]> friends = new ConcurrentHashMap<>();
+    private volatile StorageJournal<Link> friendsJournal;
+
+    public UserStorage() {
+        this(EntityCodec.objects(User::copy));
+    }
+
+    public UserStorage(EntityCodec<User> codec) {
+        super(codec);
+    }
+
+    /**
+     * Восстанавливает дружбу из журнала и дальше дописывает в него каждое изменение.
+     * Вызывать после {@link #attachJournal}, до приёма запросов.
+     */
+    public void attachFriendsJournal(StorageJournal<Link> journal) {
+        journal.replay(link -> {
+            if (link.linked()) {
+                applyLink(link.from(), link.to());
+            } else {
+                applyUnlink(link.from(), link.to());
+            }
+        });
+        journal.start(this::friendLinks);
+        this.friendsJournal = journal;
+    }
+
+    @Override
+    public void closeJournal() {
+        super.closeJournal();
+        StorageJournal<Link> current = friendsJournal;
+        friendsJournal = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    public void addFriend(long userId, long friendId) {
+        linkFriend(userId, friendId);
+        linkFriend(friendId, userId);
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        unlinkFriend(userId, friendId);
+        unlinkFriend(friendId, userId);
+    }
+
+    public List<User> findFriends(long userId) {
+        return findAllByIds(friendIds(userId));
+    }
+
+    public List<User> findCommonFriends(long userId, long otherId) {
+        return findAllByIds(SortedLongArrays.intersect(friendIds(userId), friendIds(otherId)));
+    }
+
+    /**
+     * Одна сторона дружбы: {@code friendId} в списке друзей {@code userId}.
+     */
+    protected void linkFriend(long userId, long friendId) {
+        applyLink(userId, friendId);
+    }
+
+    protected void unlinkFriend(long userId, long friendId) {
+        applyUnlink(userId, friendId);
+    }
+
+    @Override
+    protected void afterEvict(User previous) {
+        // у оставшихся пользователей эта сторона дружбы заменится их записями из того же снимка
+        replaceFriends(previous.getId(), SortedLongArrays.EMPTY);
+        friends.remove(previous.getId());
+    }
+
+    /**
+     * Приводит одну сторону дружбы к заданному отсортированному набору id.
+     */
+    public void replaceFriends(long userId, long[] friendIds) {
+        long[] current = friendIds(userId);
+        for (long friendId : current) {
+            if (!SortedLongArrays.contains(friendIds, friendId)) {
+                unlinkFriend(userId, friendId);
+            }
+        }
+        for (long friendId : friendIds) {
+            if (!SortedLongArrays.contains(current, friendId)) {
+                linkFriend(userId, friendId);
+            }
+        }
+    }
+
+    /**
+     * Отсортированные id друзей; массив не изменяется.
+     */
+    public long[] friendIds(long userId) {
+        return friends.getOrDefault(userId, SortedLongArrays.EMPTY);
+    }
+
+    private void applyLink(long userId, long friendId) {
+        AtomicReference<CompletableFuture<Void>> written = new AtomicReference<>();
+        friends.compute(userId, (id, ids) -> {
+            long[] updated = SortedLongArrays.insert(ids == null ? SortedLongArrays.EMPTY : ids, friendId);
+            if (updated != ids) {
+                publishChange("friend", userId, friendId);
+                appendLink(written, new Link(userId, friendId, true));
+            }
+            return updated;
+        });
+        awaitJournal(written.get());
+    }
+
+    private void applyUnlink(long userId, long friendId) {
+        AtomicReference<CompletableFuture<Void>> written = new AtomicReference<>();
+        friends.computeIfPresent(userId, (id, ids) -> {
+            long[] updated = SortedLongArrays.remove(ids, friendId);
+            if (updated != ids) {
+                publishChange("unfriend", userId, friendId);
+                appendLink(written, new Link(userId, friendId, false));
+            }
+            return updated;
+        });
+        awaitJournal(written.get());
+    }
+
+    /**
+     * Вызывается внутри compute по пользователю, поэтому записи журнала идут в порядке изменений.
+     */
+    private void appendLink(AtomicReference<CompletableFuture<Void>> written, Link link) {
+        StorageJournal<Link> journal = friendsJournal;
+        if (journal != null) {
+            written.set(journal.append(link));
+        }
+    }
+
+    /**
+     * Все действующие стороны дружбы для снимка журнала.
+     */
+    private Iterable<Link> friendLinks() {
+        return () -> friends.entrySet().stream()
+                .flatMap(entry -> Arrays.stream(entry.getValue())
+                        .mapToObj(friendId -> new Link(entry.getKey(), friendId, true)))
+                .iterator();
+    }
+
+    protected List<User> findAllByIds(long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = findById(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
     @Override
     protected void setId(User user, Long id) {
         user.setId(id);
@@ -12,4 +181,24 @@ public class UserStorage extends InMemoryStorage<User> {
     protected Long getId(User user) {
         return user.getId();
     }
+
+    @Override
+    protected long getVersion(User user) {
+        return user.getVersion();
+    }
+
+    @Override
+    protected void setVersion(User user, long version) {
+        user.setVersion(version);
+    }
+
+    @Override
+    protected Object getUniqueKey(User user) {
+        return user.getEmail();
+    }
+
+    @Override
+    protected String getDuplicateMessage() {
+        return "Этот имейл уже используется";
+    }
 }
\ No newline at end of file
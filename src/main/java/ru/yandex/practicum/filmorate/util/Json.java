@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Единственный ObjectMapper приложения: им же Spring MVC пишет и читает тела запросов
+ * (см. {@code JacksonConfig}), поэтому ответы API, фрагменты, журнал, репликация и запросы
+ * узлов кластера кодируются одинаково. Настройки — умолчания Spring Boot (модули java.time и Jdk8,
+ * неизвестные поля пропускаются, даты строками); запись в поток не закрывает его, чтобы в один
+ * поток ответа или сокет можно было писать много значений. После создания не меняется.
+ */
+public final class Json {
+    public static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private Json() {
+    }
+}
@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.util;
+
+/**
+ * Счётчики по ключам long на открытой адресации с линейным пробированием.
+ * Не упаковывает ни ключ, ни значение, в отличие от {@code Map<Long, Integer>}.
+ * Отсутствующий ключ читается как 0, счётчик, дошедший до 0, удаляется.
+ * Не потокобезопасно: синхронизация — на стороне владельца.
+ */
+public class LongIntHashMap {
+    private static final int MIN_CAPACITY = 4;
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean containsEmptyKey;
+    private int emptyKeyValue;
+
+    public LongIntHashMap() {
+        keys = new long[MIN_CAPACITY];
+        values = new int[MIN_CAPACITY];
+        mask = MIN_CAPACITY - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(long key) {
+        if (key == EMPTY) {
+            return emptyKeyValue;
+        }
+        for (int i = slot(key); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Прибавляет {@code delta} к счётчику ключа и возвращает новое значение.
+     */
+    public int add(long key, int delta) {
+        if (key == EMPTY) {
+            int updated = emptyKeyValue + delta;
+            if (containsEmptyKey != (updated != 0)) {
+                containsEmptyKey = updated != 0;
+                size += containsEmptyKey ? 1 : -1;
+            }
+            emptyKeyValue = updated;
+            return updated;
+        }
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                int updated = values[i] + delta;
+                if (updated == 0) {
+                    shiftBack(i);
+                    size--;
+                } else {
+                    values[i] = updated;
+                }
+                return updated;
+            }
+            i = (i + 1) & mask;
+        }
+        if (delta == 0) {
+            return 0;
+        }
+        keys[i] = key;
+        values[i] = delta;
+        size++;
+        if (size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return delta;
+    }
+
+    public void forEach(EntryConsumer action) {
+        if (containsEmptyKey) {
+            action.accept(EMPTY, emptyKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // удаление без «надгробий»: сдвигаем назад элементы цепочки пробирования
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            long key = keys[i];
+            if (key == EMPTY) {
+                break;
+            }
+            int home = slot(key);
+            boolean movable = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+            if (movable) {
+                keys[gap] = key;
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = slot(oldKeys[j]);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Плоская запись в одном массиве байт: int-поля и строки в UTF-8 с длиной-префиксом.
+ * Даты хранятся номером дня эпохи, отсутствующие значения — отдельными маркерами.
+ * Массив занимает 16 байт заголовка плюс данные вместо отдельного объекта на каждое поле.
+ */
+public final class PackedRecord {
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+    private static final int NULL_STRING = -1;
+
+    private PackedRecord() {
+    }
+
+    public static final class Writer {
+        private final byte[] bytes;
+        private int position;
+
+        /**
+         * @param ints    число int-полей (включая даты; long занимает два)
+         * @param strings строки записи в порядке записи, чтобы сразу выделить точный размер
+         */
+        public Writer(int ints, byte[]... strings) {
+            int size = ints * Integer.BYTES;
+            for (byte[] string : strings) {
+                size += Integer.BYTES + (string == null ? 0 : string.length);
+            }
+            bytes = new byte[size];
+        }
+
+        public Writer putInt(int value) {
+            bytes[position++] = (byte) (value >>> 24);
+            bytes[position++] = (byte) (value >>> 16);
+            bytes[position++] = (byte) (value >>> 8);
+            bytes[position++] = (byte) value;
+            return this;
+        }
+
+        public Writer putLong(long value) {
+            return putInt((int) (value >>> 32)).putInt((int) value);
+        }
+
+        public Writer putDate(LocalDate date) {
+            return putInt(date == null ? NULL_DATE : Math.toIntExact(date.toEpochDay()));
+        }
+
+        public Writer putString(byte[] utf8) {
+            if (utf8 == null) {
+                return putInt(NULL_STRING);
+            }
+            putInt(utf8.length);
+            System.arraycopy(utf8, 0, bytes, position, utf8.length);
+            position += utf8.length;
+            return this;
+        }
+
+        public byte[] toBytes() {
+            return bytes;
+        }
+    }
+
+    public static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        public Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public int getInt() {
+            int value = (bytes[position] & 0xFF) << 24 | (bytes[position + 1] & 0xFF) << 16
+                    | (bytes[position + 2] & 0xFF) << 8 | bytes[position + 3] & 0xFF;
+            position += Integer.BYTES;
+            return value;
+        }
+
+        public long getLong() {
+            return (long) getInt() << 32 | getInt() & 0xFFFFFFFFL;
+        }
+
+        public LocalDate getDate() {
+            int day = getInt();
+            return day == NULL_DATE ? null : LocalDate.ofEpochDay(day);
+        }
+
+        public String getString() {
+            int length = getInt();
+            if (length == NULL_STRING) {
+                return null;
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+
+    public static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными массивами long без дубликатов.
+ * Массивы не изменяются: вставка и удаление возвращают новый массив,
+ * поэтому их можно безопасно читать из разных потоков без блокировок.
+ */
+public final class SortedLongArrays {
+    public static final long[] EMPTY = new long[0];
+
+    private SortedLongArrays() {
+    }
+
+    public static long[] insert(long[] array, long value) {
+        int index = Arrays.binarySearch(array, value);
+        if (index >= 0) {
+            return array;
+        }
+        int position = -index - 1;
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    public static long[] remove(long[] array, long value) {
+        int index = Arrays.binarySearch(array, value);
+        if (index < 0) {
+            return array;
+        }
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    public static boolean contains(long[] array, long value) {
+        return Arrays.binarySearch(array, value) >= 0;
+    }
+
+    /**
+     * Позиция первого элемента не меньше {@code value} среди элементов с {@code from} до {@code to};
+     * {@code to}, если таких нет.
+     */
+    public static int lowerBound(long[] array, int from, int to, long value) {
+        int index = Arrays.binarySearch(array, from, to, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    public static int lowerBound(long[] array, int from, long value) {
+        return lowerBound(array, from, array.length, value);
+    }
+
+    /**
+     * Пересечение слиянием за O(n + m); если один массив намного меньше другого,
+     * используется двоичный поиск его элементов в большем — O(n log m).
+     */
+    public static long[] intersect(long[] first, long[] second) {
+        return intersect(first, first.length, second, second.length);
+    }
+
+    /**
+     * То же, что {@link #intersect(long[], long[])}, но учитывает только первые
+     * {@code firstLength} и {@code secondLength} элементов массивов.
+     */
+    public static long[] intersect(long[] first, int firstLength, long[] second, int secondLength) {
+        boolean firstSmaller = firstLength <= secondLength;
+        long[] small = firstSmaller ? first : second;
+        long[] large = firstSmaller ? second : first;
+        int smallLength = firstSmaller ? firstLength : secondLength;
+        int largeLength = firstSmaller ? secondLength : firstLength;
+        long[] result = new long[smallLength];
+        int size = 0;
+        if ((long) smallLength * 32 < largeLength) {
+            for (int i = 0; i < smallLength; i++) {
+                if (Arrays.binarySearch(large, 0, largeLength, small[i]) >= 0) {
+                    result[size++] = small[i];
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < smallLength && j < largeLength) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[size++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+}
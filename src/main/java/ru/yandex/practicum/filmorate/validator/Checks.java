@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.validator;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Проверки строк посимвольным проходом, без регулярных выражений и выделения памяти.
+ */
+public final class Checks {
+    private static volatile Today today = new Today(LocalDate.now());
+
+    private Checks() {
+    }
+
+    /**
+     * Текущая дата как номер дня; пересчитывается раз в сутки, а не на каждую проверку.
+     */
+    public static long today() {
+        Today current = today;
+        if (System.currentTimeMillis() >= current.validUntilMillis()) {
+            current = new Today(LocalDate.now());
+            today = current;
+        }
+        return current.epochDay();
+    }
+
+    public static boolean notBlank(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    public static boolean hasNoWhitespace(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Адрес вида {@code local@domain}: ровно одна {@code @}, без пробелов,
+     * домен из непустых частей через точку.
+     */
+    public static boolean isEmail(String value) {
+        int at = value.indexOf('@');
+        if (at <= 0 || at != value.lastIndexOf('@') || at == value.length() - 1 || !hasNoWhitespace(value)) {
+            return false;
+        }
+        char previous = '.';
+        for (int i = at + 1; i < value.length(); i++) {
+            char current = value.charAt(i);
+            if (current == '.' && previous == '.') {
+                return false;
+            }
+            previous = current;
+        }
+        return previous != '.';
+    }
+
+    private record Today(long epochDay, long validUntilMillis) {
+        Today(LocalDate date) {
+            this(date.toEpochDay(), date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+}
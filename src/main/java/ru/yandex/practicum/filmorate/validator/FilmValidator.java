@@ -1,21 +1,52 @@
 package ru.yandex.practicum.filmorate.validator;
 
-import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
 
 import java.time.LocalDate;
+import java.util.Map;
 
 public class FilmValidator implements Validator<Film> {
-    public FilmValidator() {
+    private static final LocalDate FIRST_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+    private static final int MAX_DESCRIPTION_LENGTH = 200;
+
+    private static final String NAME_MESSAGE = "Название фильма не может быть пустым";
+    private static final String DESCRIPTION_MESSAGE = "Описание фильма не может превышать 200 символов";
+    private static final String RELEASE_DATE_MESSAGE = "Дата релиза — не раньше 28 декабря 1895 года";
+    private static final String DURATION_MESSAGE = "Продолжительность фильма должна быть положительным числом";
+
+    private static final ValidationPipeline<Film> FILM = ValidationPipeline.<Film>builder()
+            .rule("name", film -> Checks.notBlank(film.getName()), NAME_MESSAGE)
+            .rule("description", film -> isValidDescription(film.getDescription()), DESCRIPTION_MESSAGE)
+            .rule("releaseDate", film -> isValidReleaseDate(film.getReleaseDate()), RELEASE_DATE_MESSAGE)
+            .rule("duration", film -> film.getDuration() >= 0, DURATION_MESSAGE)
+            .build();
+
+    // в изменении проверяются только заданные поля
+    private static final ValidationPipeline<FilmPatch> PATCH = ValidationPipeline.<FilmPatch>builder()
+            .rule("name", patch -> patch.getName() == null || Checks.notBlank(patch.getName()), NAME_MESSAGE)
+            .rule("description", patch -> isValidDescription(patch.getDescription()), DESCRIPTION_MESSAGE)
+            .rule("releaseDate", patch -> isValidReleaseDate(patch.getReleaseDate()), RELEASE_DATE_MESSAGE)
+            .rule("duration", patch -> patch.getDuration() == null || patch.getDuration() >= 0, DURATION_MESSAGE)
+            .build();
+
+    // правила статические, экземпляр без состояния: общий для контроллера и загрузки каталога
+    public static final FilmValidator INSTANCE = new FilmValidator();
+
+    @Override
+    public Map<String, String> violations(Film film) {
+        return FILM.violations(film);
+    }
+
+    public void validate(FilmPatch patch) {
+        PATCH.validate(patch);
+    }
+
+    private static boolean isValidDescription(String description) {
+        return description == null || description.length() <= MAX_DESCRIPTION_LENGTH;
     }
 
-    public void validate(Film film) {
-        if (film.getDescription().length() > 200) {
-            throw new ValidationException("Описание фильма не может превышать 200 символов");
-        } else if (film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
-            throw new ValidationException("Дата релиза — не раньше 28 декабря 1895 года");
-        } else if (film.getDuration() < 0) {
-            throw new ValidationException("Продолжительность фильма должна быть положительным числом");
-        }
+    private static boolean isValidReleaseDate(LocalDate releaseDate) {
+        return releaseDate == null || !releaseDate.isBefore(FIRST_RELEASE_DATE);
     }
 }
@@ -1,17 +1,50 @@
 package ru.yandex.practicum.filmorate.validator;
 
-import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserPatch;
 
 import java.time.LocalDate;
+import java.util.Map;
 
 public class UserValidator implements Validator<User> {
 
+    private static final String EMAIL_BLANK_MESSAGE = "Имейл не может быть пустым";
+    private static final String EMAIL_MESSAGE = "Некорректный имейл";
+    private static final String LOGIN_BLANK_MESSAGE = "Логин не может быть пустым";
+    private static final String LOGIN_MESSAGE = "Логин не может содержать пробелы";
+    private static final String BIRTHDAY_MESSAGE = "Дата рождения не может быть в будущем";
+
+    private static final ValidationPipeline<User> USER = ValidationPipeline.<User>builder()
+            .rule("email", user -> Checks.notBlank(user.getEmail()), EMAIL_BLANK_MESSAGE)
+            .rule("email", user -> Checks.isEmail(user.getEmail()), EMAIL_MESSAGE)
+            .rule("login", user -> Checks.notBlank(user.getLogin()), LOGIN_BLANK_MESSAGE)
+            .rule("login", user -> Checks.hasNoWhitespace(user.getLogin()), LOGIN_MESSAGE)
+            .rule("birthday", user -> isValidBirthday(user.getBirthday()), BIRTHDAY_MESSAGE)
+            .build();
+
+    // в изменении проверяются только заданные поля
+    private static final ValidationPipeline<UserPatch> PATCH = ValidationPipeline.<UserPatch>builder()
+            .rule("email", patch -> patch.getEmail() == null || Checks.notBlank(patch.getEmail()), EMAIL_BLANK_MESSAGE)
+            .rule("email", patch -> patch.getEmail() == null || Checks.isEmail(patch.getEmail()), EMAIL_MESSAGE)
+            .rule("login", patch -> patch.getLogin() == null || Checks.notBlank(patch.getLogin()), LOGIN_BLANK_MESSAGE)
+            .rule("login", patch -> patch.getLogin() == null || Checks.hasNoWhitespace(patch.getLogin()),
+                    LOGIN_MESSAGE)
+            .rule("birthday", patch -> isValidBirthday(patch.getBirthday()), BIRTHDAY_MESSAGE)
+            .build();
+
+    // правила статические, экземпляр без состояния: общий для контроллера и загрузки каталога
+    public static final UserValidator INSTANCE = new UserValidator();
+
     @Override
-    public void validate(User user) {
-        LocalDate birthdate = user.getBirthday();
-        if (birthdate.isAfter(LocalDate.now())) {
-            throw new ValidationException("Дата рождения не может быть в будущем");
-        }
+    public Map<String, String> violations(User user) {
+        return USER.violations(user);
+    }
+
+    public void validate(UserPatch patch) {
+        PATCH.validate(patch);
+    }
+
+    private static boolean isValidBirthday(LocalDate birthday) {
+        return birthday == null || birthday.toEpochDay() <= Checks.today();
     }
-}
\ No newline at end of file
+}
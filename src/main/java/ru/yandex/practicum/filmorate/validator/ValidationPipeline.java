@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.validator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Набор правил, собранный один раз: проверка — проход по массивам без рефлексии.
+ * Пока правила выполняются, память не выделяется; карта нарушений создаётся на первом из них.
+ * Правила одного поля идут подряд, после первого нарушения остальные правила поля пропускаются.
+ */
+public final class ValidationPipeline<T> implements Validator<T> {
+    private final String[] fields;
+    private final Predicate<T>[] checks;
+    private final String[] messages;
+
+    @SuppressWarnings("unchecked")
+    private ValidationPipeline(List<String> fields, List<Predicate<T>> checks, List<String> messages) {
+        this.fields = fields.toArray(new String[0]);
+        this.checks = checks.toArray(new Predicate[0]);
+        this.messages = messages.toArray(new String[0]);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    @Override
+    public Map<String, String> violations(T input) {
+        Map<String, String> violations = null;
+        String failedField = null;
+        for (int i = 0; i < checks.length; i++) {
+            if (fields[i].equals(failedField)) {
+                continue;
+            }
+            if (!checks[i].test(input)) {
+                if (violations == null) {
+                    violations = new LinkedHashMap<>();
+                }
+                violations.put(fields[i], messages[i]);
+                failedField = fields[i];
+            }
+        }
+        return violations == null ? Map.of() : violations;
+    }
+
+    public static final class Builder<T> {
+        private final List<String> fields = new ArrayList<>();
+        private final List<Predicate<T>> checks = new ArrayList<>();
+        private final List<String> messages = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Правило поля {@code field}: {@code check} должна быть истинной для корректного объекта.
+         */
+        public Builder<T> rule(String field, Predicate<T> check, String message) {
+            if (!fields.isEmpty() && fields.contains(field) && !fields.get(fields.size() - 1).equals(field)) {
+                throw new IllegalArgumentException("Правила поля " + field + " должны идти подряд");
+            }
+            fields.add(field);
+            checks.add(check);
+            messages.add(message);
+            return this;
+        }
+
+        public ValidationPipeline<T> build() {
+            return new ValidationPipeline<>(fields, checks, messages);
+        }
+    }
+}
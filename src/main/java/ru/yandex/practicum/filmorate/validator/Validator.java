@@ -1,5 +1,20 @@
 package ru.yandex.practicum.filmorate.validator;
 
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.Map;
+
 public interface Validator<T> {
-    void validate(T input);
+
+    /**
+     * Все нарушения по полям; для корректного объекта — пустая карта, без выделения памяти.
+     */
+    Map<String, String> violations(T input);
+
+    default void validate(T input) {
+        Map<String, String> violations = violations(input);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations);
+        }
+    }
 }
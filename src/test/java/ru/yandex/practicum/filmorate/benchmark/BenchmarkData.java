@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static Film film(long number) {
+        Film film = new Film();
+        film.setName("Film " + number);
+        film.setDescription("Description of film number " + number);
+        film.setReleaseDate(LocalDate.of(1900 + (int) (number % 120), 1 + (int) (number % 12), 1));
+        film.setDuration(60 + (int) (number % 120));
+        return film;
+    }
+
+    static User user(long number) {
+        User user = new User();
+        user.setEmail("user" + number + "@example.com");
+        user.setLogin("user" + number);
+        user.setName("User " + number);
+        user.setBirthday(LocalDate.of(1950 + (int) (number % 50), 1 + (int) (number % 12), 1));
+        return user;
+    }
+}
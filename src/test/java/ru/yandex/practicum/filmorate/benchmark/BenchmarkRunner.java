@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Запускает все бенчмарки для каждого числа потоков из {@code -Dbench.threads} (по умолчанию 1,4,16,64)
+ * и сохраняет результаты в JSON: {@code target/jmh/result-t<потоки>.json}.
+ * Аргументы командной строки и {@code -Dbench.args} передаются JMH как есть,
+ * например {@code -Dbench.args="StorageBenchmark -p size=10000000"}.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String extraArgs = System.getProperty("bench.args", "").trim();
+        CommandLineOptions commandLine = new CommandLineOptions(extraArgs.isEmpty()
+                ? args
+                : Stream.concat(Arrays.stream(args), Arrays.stream(extraArgs.split("\\s+"))).toArray(String[]::new));
+        Path output = Path.of(System.getProperty("bench.output", "target/jmh"));
+        Files.createDirectories(output);
+        for (String threads : System.getProperty("bench.threads", "1,4,16,64").split(",")) {
+            int count = Integer.parseInt(threads.trim());
+            new Runner(new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(count)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(output.resolve("result-t" + count + ".json").toString())
+                    .build())
+                    .run();
+        }
+    }
+}
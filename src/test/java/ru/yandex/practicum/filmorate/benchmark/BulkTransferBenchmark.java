@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.bulk.BulkController;
+import ru.yandex.practicum.filmorate.bulk.TransferReport;
+import ru.yandex.practicum.filmorate.controller.BatchExecutor;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.CompactFilmCodec;
+import ru.yandex.practicum.filmorate.storage.EntityCodec;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.validator.FilmValidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Загрузка и выгрузка {@code films} фильмов без HTTP: потоковый импорт в NDJSON и двоичном
+ * формате против разбора JSON-массива и {@link BatchExecutor}, как в {@code POST /films/batch}.
+ * Одна операция — весь каталог, для импорта — в пустое хранилище.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkTransferBenchmark {
+
+    @Param({"100000"})
+    private int films;
+
+    @Param({"objects", "compact"})
+    private String layout;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private final ObjectMapper mapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final FilmValidator validator = FilmValidator.INSTANCE;
+    private byte[] jsonArray;
+    private byte[] ndjson;
+    private byte[] binary;
+    private BulkController source;
+    private FilmStorage target;
+    private BulkController targetController;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        List<Film> catalog = LongStream.range(0, films).mapToObj(BenchmarkData::film).toList();
+        jsonArray = mapper.writeValueAsBytes(catalog);
+        FilmStorage storage = new FilmStorage(codec());
+        catalog.forEach(storage::save);
+        source = new BulkController(storage, new UserStorage(), parallelism, new SimpleMeterRegistry());
+        ndjson = export("ndjson", new ByteArrayOutputStream()).toByteArray();
+        binary = export("binary", new ByteArrayOutputStream()).toByteArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTarget() {
+        target = new FilmStorage(codec());
+        targetController = new BulkController(target, new UserStorage(), parallelism, new SimpleMeterRegistry());
+    }
+
+    private EntityCodec<Film> codec() {
+        return "compact".equals(layout) ? new CompactFilmCodec() : EntityCodec.objects(Film::copy);
+    }
+
+    private <S extends OutputStream> S export(String format, S out) throws IOException {
+        source.exportAll("films", format).getBody().writeTo(out);
+        return out;
+    }
+
+    @Benchmark
+    public List<BatchItemResult> importBatchApi() throws IOException {
+        List<Film> parsed = mapper.readValue(jsonArray, new TypeReference<>() {
+        });
+        return BatchExecutor.execute(parsed, validator, target::saveAll, Film::getId);
+    }
+
+    @Benchmark
+    public TransferReport importNdjson() throws IOException {
+        return targetController.importAll("films", "ndjson", new ByteArrayInputStream(ndjson));
+    }
+
+    @Benchmark
+    public TransferReport importBinary() throws IOException {
+        return targetController.importAll("films", "binary", new ByteArrayInputStream(binary));
+    }
+
+    @Benchmark
+    public OutputStream exportNdjson() throws IOException {
+        return export("ndjson", OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public OutputStream exportBinary() throws IOException {
+        return export("binary", OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие друзья двух пользователей с {@code friends} друзьями у каждого (около половины общих).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonFriendsBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int friends;
+
+    private UserStorage storage;
+    private long[] first;
+    private long[] second;
+
+    @Setup
+    public void prepare() {
+        storage = new UserStorage();
+        int users = friends * 4 + 2;
+        for (int i = 0; i < users; i++) {
+            storage.save(BenchmarkData.user(i));
+        }
+        Random random = new Random(42);
+        first = SortedLongArrays.EMPTY;
+        second = SortedLongArrays.EMPTY;
+        while (first.length < friends) {
+            long friend = 3 + random.nextInt(users - 2);
+            first = SortedLongArrays.insert(first, friend);
+            storage.addFriend(1, friend);
+        }
+        for (long friend : first) {
+            if (second.length < friends / 2) {
+                second = SortedLongArrays.insert(second, friend);
+                storage.addFriend(2, friend);
+            }
+        }
+        while (second.length < friends) {
+            long friend = 3 + random.nextInt(users - 2);
+            second = SortedLongArrays.insert(second, friend);
+            storage.addFriend(2, friend);
+        }
+    }
+
+    @Benchmark
+    public long[] intersect() {
+        return SortedLongArrays.intersect(first, second);
+    }
+
+    @Benchmark
+    public List<User> findCommonFriends() {
+        return storage.findCommonFriends(1, 2);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.CompactFilmCodec;
+import ru.yandex.practicum.filmorate.storage.CompactUserCodec;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Занятая куча на одну сущность для раскладок objects и compact.
+ * Результат — вспомогательный счётчик {@code bytesPerEntity}; для фильмов в него входят
+ * и индексы FilmStorage (поиск, диапазоны, популярность), которые от раскладки не зависят.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:+UseSerialGC"})
+public class FootprintBenchmark {
+
+    @Param({"objects", "compact"})
+    private String layout;
+
+    @Param({"film", "user"})
+    private String entity;
+
+    @Param({"1000000"})
+    private int size;
+
+    private InMemoryStorage<?> storage;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long bytesPerEntity;
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        storage = null;
+        usedHeap();
+    }
+
+    @Benchmark
+    public Object fill(Footprint footprint) {
+        long before = usedHeap();
+        boolean compact = "compact".equals(layout);
+        if ("film".equals(entity)) {
+            FilmStorage films = compact ? new FilmStorage(new CompactFilmCodec()) : new FilmStorage();
+            for (int i = 0; i < size; i++) {
+                films.save(BenchmarkData.film(i));
+            }
+            storage = films;
+        } else {
+            UserStorage users = compact ? new UserStorage(new CompactUserCodec()) : new UserStorage();
+            for (int i = 0; i < size; i++) {
+                users.save(BenchmarkData.user(i));
+            }
+            storage = users;
+        }
+        footprint.bytesPerEntity = (usedHeap() - before) / size;
+        return storage;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
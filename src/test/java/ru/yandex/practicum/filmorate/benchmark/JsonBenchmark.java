@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Сериализация и десериализация Film/User общим ObjectMapper приложения ({@link Json#MAPPER}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"1000", "100000"})
+    private int listSize;
+
+    private final ObjectMapper mapper = Json.MAPPER;
+    private final Film film = BenchmarkData.film(1);
+    private final User user = BenchmarkData.user(1);
+    private byte[] filmJson;
+    private byte[] userJson;
+    private List<Film> films;
+
+    @Setup
+    public void prepare() throws IOException {
+        filmJson = mapper.writeValueAsBytes(film);
+        userJson = mapper.writeValueAsBytes(user);
+        films = LongStream.range(0, listSize).mapToObj(BenchmarkData::film).toList();
+    }
+
+    @Benchmark
+    public byte[] writeFilm() throws IOException {
+        return mapper.writeValueAsBytes(film);
+    }
+
+    @Benchmark
+    public Film readFilm() throws IOException {
+        return mapper.readValue(filmJson, Film.class);
+    }
+
+    @Benchmark
+    public byte[] writeUser() throws IOException {
+        return mapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public User readUser() throws IOException {
+        return mapper.readValue(userJson, User.class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public byte[] writeFilmList() throws IOException {
+        return mapper.writeValueAsBytes(films);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.CompactFilmCodec;
+import ru.yandex.practicum.filmorate.storage.EntityCodec;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.Json;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тело ответа-списка фильмов: сериализация коллекции ObjectMapper'ом (как раньше в
+ * {@code GET /films}) против склейки JSON-фрагментов, сохранённых хранилищем при записи.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListJsonBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"objects", "compact"})
+    private String layout;
+
+    private final ObjectWriter writer = Json.MAPPER.writer();
+    private FilmStorage storage;
+
+    @Setup
+    public void fill() {
+        storage = new FilmStorage("compact".equals(layout) ? new CompactFilmCodec() : EntityCodec.objects(Film::copy));
+        storage.enableJsonFragments();
+        for (int i = 0; i < size; i++) {
+            storage.save(BenchmarkData.film(i));
+        }
+    }
+
+    @Benchmark
+    public byte[] allObjectMapper() throws IOException {
+        return writer.writeValueAsBytes(storage.findAll());
+    }
+
+    @Benchmark
+    public byte[] allFragments() {
+        return storage.findAllJson();
+    }
+
+    @Benchmark
+    public byte[] pageObjectMapper() throws IOException {
+        return writer.writeValueAsBytes(storage.findPage(size / 2, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public byte[] pageFragments() {
+        return storage.findPageJson(size / 2, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.replication.ReplicationFilter;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Масштабирование чтения репликами: ведущий узел и {@code replicas} реплик запускаются
+ * отдельными JVM, чтение страниц каталога распределяется случайно по всем узлам.
+ * Перед замером каталог наполняется через ведущий узел, а реплики догоняют его по токену.
+ * Логи узлов пишутся в {@code target/replication-bench}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ReplicationBenchmark {
+    private static final int FILMS = 1_000;
+    private static final long START_TIMEOUT_MS = 60_000;
+
+    @Param({"0", "1", "2"})
+    private int replicas;
+
+    private final List<Process> processes = new ArrayList<>();
+    private final List<String> nodes = new ArrayList<>();
+    private HttpClient client;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        client = HttpClient.newHttpClient();
+        int replicationPort = freePort();
+        String primary = startNode("primary", "--filmorate.replication.role=primary",
+                "--filmorate.replication.port=" + replicationPort);
+        List<String> replicaUrls = new ArrayList<>();
+        for (int i = 0; i < replicas; i++) {
+            replicaUrls.add(startNode("replica-" + i, "--filmorate.replication.role=replica",
+                    "--filmorate.replication.primary=localhost:" + replicationPort));
+        }
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        String seq = "0";
+        for (int i = 1; i <= FILMS; i++) {
+            HttpResponse<byte[]> response = send(HttpRequest.newBuilder(URI.create(primary + "/films"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(BenchmarkData.film(i))))
+                    .build());
+            seq = response.headers().firstValue(ReplicationFilter.SEQ_HEADER).orElseThrow();
+        }
+        for (String replica : replicaUrls) {
+            // ответ приходит, когда реплика применила последнюю запись
+            send(HttpRequest.newBuilder(URI.create(replica + "/replication"))
+                    .header(ReplicationFilter.MIN_SEQ_HEADER, seq)
+                    .build());
+        }
+        nodes.add(primary);
+        nodes.addAll(replicaUrls);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        processes.forEach(Process::destroy);
+    }
+
+    @Benchmark
+    public int readPage() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String node = nodes.get(random.nextInt(nodes.size()));
+        return send(HttpRequest.newBuilder(URI.create(node + "/films?limit=100&after=" + random.nextInt(FILMS)))
+                .build()).body().length;
+    }
+
+    private String startNode(String name, String... args) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                FilmorateApplication.class.getName(),
+                "--server.port=" + port,
+                "--logging.level.ru.yandex.practicum=WARN"));
+        command.addAll(List.of(args));
+        Path log = Path.of("target", "replication-bench", name + ".log");
+        log.getParent().toFile().mkdirs();
+        processes.add(new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start());
+        String url = "http://localhost:" + port;
+        awaitStarted(url);
+        return url;
+    }
+
+    private void awaitStarted(String url) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                send(HttpRequest.newBuilder(URI.create(url + "/replication")).build());
+                return;
+            } catch (IOException | IllegalStateException e) {
+                Thread.sleep(200);
+            }
+        }
+        throw new IllegalStateException("Узел " + url + " не запустился за " + START_TIMEOUT_MS + " мс");
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.CompactFilmCodec;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время готовности после рестарта: восстановление {@code size} фильмов из снимка
+ * и хвоста журнала ({@code tailPercent} процентов от размера — изменения после снимка).
+ * Данные на диске готовятся один раз за прогон; каждая итерация поднимает пустое хранилище
+ * в компактной раскладке и читает их целиком. Загрузка снимка идёт в {@code parallelism} потоков.
+ * Для 10 млн фильмов нужно около 8 ГБ кучи и столько же свободного места на диске.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class RestoreBenchmark {
+    private static final int CHUNK = 10_000;
+
+    @Param({"10000000"})
+    private int size;
+
+    @Param({"1"})
+    private int tailPercent;
+
+    @Param({"0"})
+    private int parallelism;
+
+    private Path dataDir;
+    private FilmStorage restored;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        dataDir = Files.createTempDirectory("filmorate-restore");
+        FilmStorage storage = new FilmStorage(new CompactFilmCodec());
+        // снимок пишется, как только журнал накопит size записей; хвост после него остаётся в wal
+        storage.attachJournal(new StorageJournal<>(dataDir, Film.class, size));
+        List<Film> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < size; i++) {
+            chunk.add(BenchmarkData.film(i));
+            if (chunk.size() == CHUNK || i == size - 1) {
+                storage.saveAll(chunk, (e, index) -> {
+                    throw e;
+                });
+                chunk.clear();
+            }
+        }
+        long tail = (long) size * tailPercent / 100;
+        for (long id = 1; id <= tail; id++) {
+            Film film = BenchmarkData.film(id - 1);
+            film.setId(id);
+            film.setDuration(1 + (int) (id % 300));
+            storage.update(film);
+        }
+        storage.closeJournal();
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        restored = null;
+        System.gc();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (var files = Files.walk(dataDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int restore() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        restored = new FilmStorage(new CompactFilmCodec());
+        // интервал 0: восстановленное хранилище не пишет свой снимок и не меняет данные прогона
+        restored.attachJournal(new StorageJournal<>(dataDir, Film.class, 0, threads));
+        restored.closeJournal();
+        if (restored.findAll().size() != size) {
+            throw new IllegalStateException("Восстановлено " + restored.findAll().size() + " из " + size);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Операции InMemoryStorage на заполненном хранилище.
+ * Размер 10M требует большой кучи: {@code -p size=10000000 -jvmArgs -Xmx16g}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class StorageBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private FilmStorage storage;
+    private Film[] films;
+    private final AtomicLong nextNumber = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        storage = new FilmStorage();
+        films = new Film[size];
+        for (int i = 0; i < size; i++) {
+            films[i] = storage.save(BenchmarkData.film(i));
+        }
+        nextNumber.set(size);
+    }
+
+    @Benchmark
+    public Film findById() {
+        return storage.findById(randomId());
+    }
+
+    @Benchmark
+    public Film save() {
+        return storage.save(BenchmarkData.film(nextNumber.getAndIncrement()));
+    }
+
+    @Benchmark
+    public Film update() {
+        return storage.update(films[ThreadLocalRandom.current().nextInt(size)]);
+    }
+
+    @Benchmark
+    public Film saveDuplicate() {
+        try {
+            return storage.save(BenchmarkData.film(ThreadLocalRandom.current().nextInt(size)));
+        } catch (DuplicatedDataException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public List<Film> findPage() {
+        return storage.findPage(randomId(), 100);
+    }
+
+    /**
+     * Автодополнение по префиксу, под которым 1 + 10 + 100 + … числовых терминов из названий.
+     */
+    @Benchmark
+    public List<Film> searchPrefix() {
+        return storage.search("123", 20);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void findAll(Blackhole blackhole) {
+        for (Film film : storage.findAll()) {
+            blackhole.consume(film);
+        }
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, size + 1);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.controller.BatchExecutor;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.validator.FilmValidator;
+import ru.yandex.practicum.filmorate.validator.UserValidator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка входных данных так, как её выполняют контроллеры. Выделение памяти — с {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    private final FilmValidator filmValidator = new FilmValidator();
+    private final UserValidator userValidator = new UserValidator();
+    private final Film validFilm = BenchmarkData.film(1);
+    private final Film invalidFilm = invalidFilm(2);
+    private final User validUser = BenchmarkData.user(1);
+    private final List<Film> invalidBatch = new ArrayList<>();
+
+    public ValidationBenchmark() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            invalidBatch.add(invalidFilm(i));
+        }
+    }
+
+    // два нарушения: дата релиза и продолжительность
+    private static Film invalidFilm(long number) {
+        Film film = BenchmarkData.film(number);
+        film.setReleaseDate(LocalDate.of(1800, 1, 1));
+        film.setDuration(-1);
+        return film;
+    }
+
+    @Benchmark
+    public Film validateFilm() {
+        filmValidator.validate(validFilm);
+        return validFilm;
+    }
+
+    @Benchmark
+    public String validateInvalidFilm() {
+        try {
+            filmValidator.validate(invalidFilm);
+            return null;
+        } catch (ValidationException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public User validateUser() {
+        userValidator.validate(validUser);
+        return validUser;
+    }
+
+    @Benchmark
+    public List<BatchItemResult> validateInvalidBatch() {
+        // все записи пакета некорректны, до записи в хранилище дело не доходит
+        return BatchExecutor.execute(invalidBatch, filmValidator, (films, onReject) -> {
+        }, Film::getId);
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочное сравнение режимов веб-слоя: пул платформенных потоков Tomcat (урезанный до
+ * {@code poolSize}) против виртуальных потоков. Запись фильма ждёт fsync журнала, поэтому
+ * при числе клиентов больше пула платформенный режим упирается в потоки.
+ * Число клиентов задаётся через {@code -Dbench.threads}. Виртуальные потоки включаются только
+ * на JVM 21 и новее (Spring смотрит на версию JVM при запуске, а не на цель компиляции), поэтому
+ * на более старой JVM режим {@code virtual} завершается ошибкой, а не измеряет платформенные потоки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class WebLoadBenchmark {
+    private static final int FILMS = 1_000;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"16"})
+    private int poolSize;
+
+    private ConfigurableApplicationContext context;
+    private Path dataDir;
+    private HttpClient client;
+    private ObjectMapper mapper;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        if ("virtual".equals(mode) && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Режим virtual требует JVM 21+, запущено на " + Runtime.version()
+                    + "; запустите с -p mode=platform или на JDK 21");
+        }
+        dataDir = Files.createTempDirectory("filmorate-load");
+        // аргументы командной строки, чтобы перекрыть application.properties
+        context = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                "--server.tomcat.threads.max=" + poolSize,
+                "--spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                "--filmorate.storage.persistence.enabled=true",
+                "--filmorate.storage.persistence.dir=" + dataDir,
+                "--logging.level.ru.yandex.practicum=WARN");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+        client = HttpClient.newHttpClient();
+        mapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        for (int i = 1; i <= FILMS; i++) {
+            send(HttpRequest.newBuilder(URI.create(baseUrl + "/films"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(BenchmarkData.film(i))))
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        try (var files = Files.walk(dataDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int readPage() throws Exception {
+        long after = ThreadLocalRandom.current().nextInt(FILMS);
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/films?limit=100&after=" + after)).build());
+    }
+
+    @Benchmark
+    public int updateFilm() throws Exception {
+        long id = 1 + ThreadLocalRandom.current().nextInt(FILMS);
+        Film film = BenchmarkData.film(id);
+        film.setId(id);
+        film.setDuration(60 + ThreadLocalRandom.current().nextInt(120));
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/films"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(film)))
+                .build());
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
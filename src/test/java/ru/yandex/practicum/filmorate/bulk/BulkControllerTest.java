@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.bulk;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.yandex.practicum.filmorate.exception.ExceptionControllerAdvice;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.CompactFilmCodec;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class BulkControllerTest {
+
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new FilmStorage(new CompactFilmCodec());
+        userStorage = new UserStorage();
+        mockMvc = mockMvc(filmStorage, userStorage);
+    }
+
+    private static MockMvc mockMvc(FilmStorage filmStorage) {
+        return mockMvc(filmStorage, new UserStorage());
+    }
+
+    private static MockMvc mockMvc(FilmStorage filmStorage, UserStorage userStorage) {
+        return MockMvcBuilders.standaloneSetup(new BulkController(filmStorage, userStorage, 4, new SimpleMeterRegistry()))
+                .setControllerAdvice(new ExceptionControllerAdvice(new SimpleMeterRegistry()))
+                .build();
+    }
+
+    private static String filmJson(String name) {
+        return "{\"name\":\"" + name + "\",\"description\":\"description\",\"releaseDate\":\"2000-01-01\",\"duration\":90}";
+    }
+
+    private Film saveFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return filmStorage.save(film);
+    }
+
+    private byte[] export(String format) throws Exception {
+        MvcResult pending = mockMvc.perform(get("/admin/export?entity=films&format=" + format))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Test
+    void importNdjson_withBadRecords_shouldImportRestAndReportRejected() throws Exception {
+        String body = String.join("\n",
+                filmJson("first"),
+                "",
+                filmJson(" "),
+                filmJson("second"),
+                filmJson("first"),
+                "{not json");
+
+        mockMvc.perform(post("/admin/import?entity=films")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.records").value(6))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected").value(3))
+                .andExpect(jsonPath("$.errors[0].index").value(2))
+                .andExpect(jsonPath("$.errors[0].status").value(400))
+                .andExpect(jsonPath("$.errors[1].index").value(5))
+                .andExpect(jsonPath("$.errors[2].index").value(4))
+                .andExpect(jsonPath("$.errors[2].status").value(409));
+
+        assertEquals("first", filmStorage.findById(1L).getName());
+        assertEquals("second", filmStorage.findById(2L).getName());
+    }
+
+    @Test
+    void importNdjson_shouldCountRecordsOnContextRegistry() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MockMvc counted = MockMvcBuilders.standaloneSetup(new BulkController(filmStorage, userStorage, 4, registry))
+                .build();
+
+        counted.perform(post("/admin/import?entity=films")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(filmJson("first") + "\n" + filmJson("second")))
+                .andExpect(status().isOk());
+
+        assertEquals(2, registry.get("filmorate.bulk.records").tag("direction", "import").tag("entity", "films")
+                .counter().count());
+    }
+
+    @Test
+    void importNdjson_acrossManyChunks_shouldAssignIdsInStreamOrder() throws Exception {
+        int count = 5_000;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            body.append(filmJson("film-" + i + "-" + "x".repeat(i % 50))).append('\n');
+        }
+
+        mockMvc.perform(post("/admin/import?entity=films")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(count));
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("film-" + i + "-" + "x".repeat(i % 50), filmStorage.findById(i + 1L).getName());
+        }
+    }
+
+    @Test
+    void exportBinary_thenImport_shouldRestoreCatalogInOrder() throws Exception {
+        saveFilm("alpha");
+        saveFilm("beta");
+        saveFilm("gamma");
+        byte[] exported = export("binary");
+
+        FilmStorage target = new FilmStorage();
+        mockMvc(target).perform(post("/admin/import?entity=films&format=binary")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(exported))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.bytes").value(exported.length));
+
+        assertEquals(Arrays.asList("alpha", "beta", "gamma"),
+                target.findPage(0, 10).stream().map(Film::getName).toList());
+        assertEquals(100, target.findById(2L).getDuration());
+    }
+
+    @Test
+    void exportNdjson_shouldWriteOneFilmPerLine() throws Exception {
+        saveFilm("alpha");
+        saveFilm("beta");
+
+        String[] lines = new String(export("ndjson"), StandardCharsets.UTF_8).split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("\"name\":\"beta\""));
+    }
+
+    @Test
+    void importBinary_truncatedStream_shouldReturnBadRequest() throws Exception {
+        saveFilm("alpha");
+        byte[] exported = export("binary");
+
+        mockMvc(new FilmStorage()).perform(post("/admin/import?entity=films&format=binary")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(Arrays.copyOf(exported, exported.length - 3)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void importUsers_withoutName_shouldUseLoginLikePost() throws Exception {
+        String body = String.join("\n",
+                "{\"email\":\"first@example.com\",\"login\":\"first\",\"birthday\":\"1990-01-01\"}",
+                "{\"email\":\"second@example.com\",\"login\":\"second\",\"name\":\" \","
+                        + "\"birthday\":\"1990-01-01\"}",
+                "{\"email\":\"third@example.com\",\"login\":\"third\",\"name\":\"Третий\","
+                        + "\"birthday\":\"1990-01-01\"}");
+
+        mockMvc.perform(post("/admin/import?entity=users")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(3));
+
+        assertEquals("first", userStorage.findById(1L).getName());
+        assertEquals("second", userStorage.findById(2L).getName());
+        assertEquals("Третий", userStorage.findById(3L).getName());
+    }
+
+    @Test
+    void import_unknownEntity_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/admin/import?entity=genres").content(filmJson("first")))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,260 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Три узла в одном процессе на разных портах, обращения — через публичный HTTP API.
+ */
+class ShardClusterTest {
+    private static final int NODES = 3;
+    private static final String SECRET = "cluster-test-secret";
+
+    @TempDir
+    static Path dataDir;
+
+    private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private static final List<String[]> args = new ArrayList<>();
+    private static final List<String> urls = new ArrayList<>();
+    private static final HttpClient client = HttpClient.newHttpClient();
+    private static final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports.add(socket.getLocalPort());
+            }
+        }
+        ports.forEach(port -> urls.add("http://localhost:" + port));
+        for (int i = 0; i < NODES; i++) {
+            // аргументы командной строки, чтобы перекрыть application.properties
+            args.add(new String[]{
+                    "--server.port=" + ports.get(i),
+                    "--filmorate.cluster.enabled=true",
+                    "--filmorate.cluster.nodes=" + String.join(",", urls),
+                    "--filmorate.cluster.self=" + urls.get(i),
+                    "--filmorate.cluster.secret=" + SECRET,
+                    "--filmorate.storage.persistence.enabled=true",
+                    "--filmorate.storage.persistence.dir=" + dataDir.resolve("node-" + i),
+                    "--logging.level.ru.yandex.practicum=WARN"});
+            contexts.add(SpringApplication.run(FilmorateApplication.class, args.get(i)));
+        }
+    }
+
+    private static void restart(int node) {
+        contexts.get(node).close();
+        contexts.set(node, SpringApplication.run(FilmorateApplication.class, args.get(node)));
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    private static HttpResponse<String> send(int node, String method, String path, Object body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(urls.get(node) + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonNode json(int node, String method, String path, Object body) throws Exception {
+        HttpResponse<String> response = send(node, method, path, body);
+        assertEquals(200, response.statusCode(), response.body());
+        return response.body().isEmpty() ? null : mapper.readTree(response.body());
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private static Set<Long> ids(JsonNode array) {
+        Set<Long> ids = new HashSet<>();
+        array.forEach(node -> ids.add(node.get("id").asLong()));
+        return ids;
+    }
+
+    @Test
+    void createOnEveryNode_shouldBeVisibleFromAnyNode() throws Exception {
+        Set<Long> created = new HashSet<>();
+        for (int i = 0; i < NODES * 3; i++) {
+            created.add(json(i % NODES, "POST", "/films", film("visible-" + i)).get("id").asLong());
+        }
+
+        for (int node = 0; node < NODES; node++) {
+            assertTrue(ids(json(node, "GET", "/films", null)).containsAll(created));
+            for (long id : created) {
+                assertEquals(id, json(node, "GET", "/films?after=" + (id - 1) + "&limit=1", null).get(0)
+                        .get("id").asLong());
+            }
+        }
+    }
+
+    @Test
+    void listWithEtag_shouldChangeAfterWriteOnAnotherNode() throws Exception {
+        long id = json(0, "POST", "/films", film("tagged")).get("id").asLong();
+        String path = "/films?after=" + (id - 1) + "&limit=1";
+        String etag = send(1, "GET", path, null).headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest conditional = HttpRequest.newBuilder(URI.create(urls.get(1) + path))
+                .header("If-None-Match", etag)
+                .build();
+        assertEquals(304, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        json(2, "PATCH", "/films/" + id, Map.of("duration", 150));
+        HttpResponse<String> changed = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, changed.statusCode());
+        assertEquals(150, mapper.readTree(changed.body()).get(0).get("duration").asInt());
+    }
+
+    @Test
+    void createDuplicateOnAnotherNode_shouldReturnConflict() throws Exception {
+        json(0, "POST", "/users", user("shared@example.com"));
+
+        assertEquals(409, send(1, "POST", "/users", user("shared@example.com")).statusCode());
+        assertEquals(409, send(2, "POST", "/users", user("shared@example.com")).statusCode());
+    }
+
+    @Test
+    void renameOnAnotherNode_shouldReleaseOldName() throws Exception {
+        Film film = mapper.treeToValue(json(0, "POST", "/films", film("old-name")), Film.class);
+        film.setName("new-name");
+
+        assertEquals("new-name", json(1, "PUT", "/films", film).get("name").asText());
+        assertEquals(409, send(2, "POST", "/films", film("new-name")).statusCode());
+        json(2, "POST", "/films", film("old-name"));
+    }
+
+    @Test
+    void patchThroughNonOwner_shouldUpdateOwnerAndCheckVersion() throws Exception {
+        long id = json(0, "POST", "/films", film("patched")).get("id").asLong();
+
+        JsonNode patched = json(1, "PATCH", "/films/" + id, Map.of("duration", 150, "version", 1));
+        assertEquals(150, patched.get("duration").asInt());
+        assertEquals(2, patched.get("version").asLong());
+        assertEquals(150, json(2, "GET", "/films?after=" + (id - 1) + "&limit=1", null).get(0)
+                .get("duration").asInt());
+        assertEquals(409, send(2, "PATCH", "/films/" + id, Map.of("duration", 160, "version", 1)).statusCode());
+    }
+
+    @Test
+    void likesAndFriendsAcrossNodes_shouldBeMerged() throws Exception {
+        List<Long> users = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            users.add(json(i, "POST", "/users", user("friend-" + i + "@example.com")).get("id").asLong());
+        }
+        long popular = json(1, "POST", "/films", film("popular")).get("id").asLong();
+        for (int i = 0; i < NODES; i++) {
+            json(i, "PUT", "/films/" + popular + "/like/" + users.get(i), null);
+        }
+        json(0, "PUT", "/users/" + users.get(0) + "/friends/" + users.get(2), null);
+        json(1, "PUT", "/users/" + users.get(1) + "/friends/" + users.get(2), null);
+
+        assertEquals(popular, json(2, "GET", "/films/popular?count=1", null).get(0).get("id").asLong());
+        assertEquals(Set.of(users.get(2)), ids(json(2, "GET",
+                "/users/" + users.get(0) + "/friends/common/" + users.get(1), null)));
+        assertEquals(Set.of(users.get(0), users.get(1)), ids(json(0, "GET",
+                "/users/" + users.get(2) + "/friends", null)));
+    }
+
+    @Test
+    void internalApiWithoutSecret_shouldBeForbidden() throws Exception {
+        String path = ShardCluster.INTERNAL_PATH + "/keys/films/reserve?key=stolen&id=1";
+
+        assertEquals(403, send(0, "POST", path, null).statusCode());
+        HttpRequest wrongSecret = HttpRequest.newBuilder(URI.create(urls.get(0) + path))
+                .header(ShardCluster.SECRET_HEADER, "wrong")
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        assertEquals(403, client.send(wrongSecret, HttpResponse.BodyHandlers.ofString()).statusCode());
+        json(1, "POST", "/films", film("stolen"));
+    }
+
+    @Test
+    void internalPageWithoutLimit_shouldUseDefaultPageSize() throws Exception {
+        json(0, "POST", "/films", film("internal-page"));
+        HttpRequest page = HttpRequest.newBuilder(URI.create(urls.get(0) + ShardCluster.INTERNAL_PATH + "/films?after=0"))
+                .header(ShardCluster.SECRET_HEADER, SECRET)
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(page, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(mapper.readTree(response.body()).isArray());
+    }
+
+    @Test
+    void restartOfKeyOwner_shouldKeepNamesReserved() throws Exception {
+        String name = "restarted-key";
+        int keyOwner = urls.indexOf(contexts.get(0).getBean(ShardCluster.class).keyOwner("films", name));
+        int creator = (keyOwner + 1) % NODES;
+        json(creator, "POST", "/films", film(name));
+
+        restart(keyOwner);
+
+        assertEquals(409, send(keyOwner, "POST", "/films", film(name)).statusCode());
+        assertEquals(409, send((keyOwner + 2) % NODES, "POST", "/films", film(name)).statusCode());
+    }
+
+    @Test
+    void keyOwnerRestartedWhileEntityOwnerDown_shouldGetKeysWhenEntityOwnerStarts() throws Exception {
+        String name = "restarted-entity";
+        int keyOwner = urls.indexOf(contexts.get(0).getBean(ShardCluster.class).keyOwner("films", name));
+        int creator = (keyOwner + 1) % NODES;
+        json(creator, "POST", "/films", film(name));
+
+        contexts.get(creator).close();
+        restart(keyOwner);
+        contexts.set(creator, SpringApplication.run(FilmorateApplication.class, args.get(creator)));
+
+        assertEquals(409, send((keyOwner + 2) % NODES, "POST", "/films", film(name)).statusCode());
+    }
+}
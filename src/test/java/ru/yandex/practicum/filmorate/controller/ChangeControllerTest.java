@@ -0,0 +1,242 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.exception.ExceptionControllerAdvice;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ChangeFeed;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ChangeControllerTest {
+
+    private static final int CAPACITY = 8;
+
+    private MockMvc mockMvc;
+    private ChangeFeed changeFeed;
+    private ChangeController changeController;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        changeFeed = new ChangeFeed(CAPACITY);
+        filmStorage = new FilmStorage();
+        filmStorage.attachChangeFeed(changeFeed, "film");
+        userStorage = new UserStorage();
+        userStorage.attachChangeFeed(changeFeed, "user");
+        changeController = new ChangeController(changeFeed, 2, 5_000);
+        mockMvc = MockMvcBuilders.standaloneSetup(changeController)
+                .setControllerAdvice(new ExceptionControllerAdvice(new SimpleMeterRegistry()))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        changeController.close();
+    }
+
+    private Film saveFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return filmStorage.save(film);
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return userStorage.save(user);
+    }
+
+    private MvcResult perform(String url) throws Exception {
+        return mockMvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private MvcResult stream(String url, String lastEventId) throws Exception {
+        var builder = get(url).accept(MediaType.TEXT_EVENT_STREAM);
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private static String awaitBody(MvcResult result, Predicate<String> condition) throws Exception {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        String body = result.getResponse().getContentAsString();
+        while (!condition.test(body)) {
+            assertTrue(System.nanoTime() < deadline, "Событие не пришло в поток: " + body);
+            Thread.sleep(20);
+            body = result.getResponse().getContentAsString();
+        }
+        return body;
+    }
+
+    @Test
+    void stream_shouldPushChangesPublishedAfterSubscription() throws Exception {
+        saveFilm("before");
+        MvcResult result = stream("/changes?since=1", null);
+
+        saveFilm("first");
+        saveUser("user@example.com");
+
+        String body = awaitBody(result, text -> text.contains("id:3"));
+        assertTrue(body.contains("id:2\nevent:change\ndata:"), body);
+        assertTrue(body.contains("\"name\":\"first\""), body);
+        assertFalse(body.contains("\"name\":\"before\""), body);
+        assertTrue(body.indexOf("id:2") < body.indexOf("id:3"), body);
+    }
+
+    @Test
+    void stream_slowClient_shouldBeClosedAfterSendTimeoutWithoutBlockingOthers() throws Exception {
+        CountDownLatch slowCompleted = new CountDownLatch(1);
+        AtomicInteger emitters = new AtomicInteger();
+        // один поток доставки: без срока отправки зависший клиент держал бы его и остальные не получили бы событий
+        ChangeController controller = new ChangeController(changeFeed, 1, 200) {
+            @Override
+            SseEmitter createEmitter(long timeoutMs) {
+                if (emitters.incrementAndGet() == 1) {
+                    return super.createEmitter(timeoutMs);
+                }
+                return new SseEmitter(timeoutMs) {
+                    @Override
+                    public void send(SseEventBuilder builder) throws IOException {
+                        try {
+                            Thread.sleep(60_000);
+                        } catch (InterruptedException e) {
+                            throw new InterruptedIOException("Клиент не принимает данные");
+                        }
+                    }
+
+                    @Override
+                    public void complete() {
+                        slowCompleted.countDown();
+                        super.complete();
+                    }
+                };
+            }
+        };
+        try {
+            MockMvc slowMockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+            MvcResult fast = slowMockMvc.perform(get("/changes?since=0").accept(MediaType.TEXT_EVENT_STREAM))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            controller.stream(0L, null, null);
+
+            saveFilm("first");
+
+            assertTrue(slowCompleted.await(10, TimeUnit.SECONDS), "Медленный клиент не отключён по сроку отправки");
+            awaitBody(fast, text -> text.contains("id:1"));
+        } finally {
+            controller.close();
+        }
+    }
+
+    @Test
+    void poll_withWaitAboveAsyncTimeout_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/changes?since=0&waitMs=30000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void stream_withLastEventId_shouldResumeAfterIt() throws Exception {
+        saveFilm("first");
+        saveFilm("second");
+        saveFilm("third");
+
+        String body = awaitBody(stream("/changes?since=0", "2"), text -> text.contains("id:3"));
+        assertFalse(body.contains("id:1\n"), body);
+        assertFalse(body.contains("id:2\n"), body);
+    }
+
+    @Test
+    void poll_shouldReturnChangesInOrderFromCursor() throws Exception {
+        Film film = saveFilm("film");
+        saveUser("user@example.com");
+        film.setDuration(120);
+        filmStorage.update(film);
+
+        mockMvc.perform(asyncDispatch(perform("/changes?since=0&limit=2")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events.length()").value(2))
+                .andExpect(jsonPath("$.events[0].entity").value("film"))
+                .andExpect(jsonPath("$.events[0].operation").value("create"))
+                .andExpect(jsonPath("$.events[1].entity").value("user"))
+                .andExpect(jsonPath("$.next").value(2));
+
+        mockMvc.perform(asyncDispatch(perform("/changes?since=2")))
+                .andExpect(jsonPath("$.events.length()").value(1))
+                .andExpect(jsonPath("$.events[0].operation").value("update"))
+                .andExpect(jsonPath("$.events[0].data.duration").value(120))
+                .andExpect(jsonPath("$.next").value(3));
+    }
+
+    @Test
+    void poll_withWait_shouldCompleteOnNextChange() throws Exception {
+        saveFilm("first");
+        MvcResult pending = perform("/changes?since=1&waitMs=10000");
+
+        saveFilm("second");
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events.length()").value(1))
+                .andExpect(jsonPath("$.events[0].data.name").value("second"));
+    }
+
+    @Test
+    void poll_afterTimedOutWait_nextWaitShouldBlockUntilChange() throws Exception {
+        saveFilm("first");
+        mockMvc.perform(asyncDispatch(perform("/changes?since=1&waitMs=50")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events.length()").value(0));
+
+        MvcResult pending = perform("/changes?since=1&waitMs=10000");
+        assertThrows(IllegalStateException.class, () -> pending.getAsyncResult(300));
+
+        saveFilm("second");
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(jsonPath("$.events.length()").value(1))
+                .andExpect(jsonPath("$.events[0].data.name").value("second"));
+    }
+
+    @Test
+    void poll_behindRingBuffer_shouldReturnGone() throws Exception {
+        for (int i = 0; i < CAPACITY + 2; i++) {
+            saveFilm("film-" + i);
+        }
+
+        mockMvc.perform(get("/changes?since=0"))
+                .andExpect(status().isGone());
+        mockMvc.perform(get("/changes?since=100"))
+                .andExpect(status().isGone());
+    }
+}
@@ -2,19 +2,28 @@ package ru.yandex.practicum.filmorate.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ru.yandex.practicum.filmorate.exception.ExceptionControllerAdvice;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.RecommendationIndex;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.time.LocalDate;
+import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 class FilmControllerTest {
 
@@ -23,9 +32,13 @@ class FilmControllerTest {
 
     @BeforeEach
     void setUp() {
-        FilmController controller = new FilmController();
-        mockMvc = MockMvcBuilders.standaloneSetup(controller)
-                .setControllerAdvice(new ExceptionControllerAdvice())  // обработка исключений
+        FilmStorage filmStorage = new FilmStorage();
+        UserStorage userStorage = new UserStorage();
+        RecommendationIndex recommendationIndex = new RecommendationIndex(1024, 0);
+        filmStorage.setLikeListener(recommendationIndex);
+        mockMvc = MockMvcBuilders.standaloneSetup(new FilmController(filmStorage, userStorage),
+                        new UserController(userStorage, filmStorage, recommendationIndex))
+                .setControllerAdvice(new ExceptionControllerAdvice(new SimpleMeterRegistry()))  // обработка исключений
                 .build();
 
         objectMapper = new ObjectMapper();
@@ -110,6 +123,23 @@ class FilmControllerTest {
                         .value("Продолжительность фильма должна быть положительным числом"));
     }
 
+    @Test
+    void createFilm_withSeveralInvalidFields_shouldReportAllViolations() throws Exception {
+        Film film = createValidFilm();
+        film.setName(" ");
+        film.setDuration(-10);
+
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Название фильма не может быть пустым; "
+                        + "Продолжительность фильма должна быть положительным числом"))
+                .andExpect(jsonPath("$.details.name").value("Название фильма не может быть пустым"))
+                .andExpect(jsonPath("$.details.duration")
+                        .value("Продолжительность фильма должна быть положительным числом"));
+    }
+
     @Test
     void updateFilm_existingFilm_shouldUpdateSuccessfully() throws Exception {
         Film film = createValidFilm();
@@ -142,6 +172,44 @@ class FilmControllerTest {
         mockMvc.perform(put("/films")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isNotFound())
+                // у ошибки без подробностей поля details в ответе нет
+                .andExpect(content().string(not(containsString("details"))));
+    }
+
+    @Test
+    void patchFilm_withDescriptionOnly_shouldKeepOtherFieldsAndBumpVersion() throws Exception {
+        createFilms(1);
+
+        mockMvc.perform(patch("/films/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\": \"Новое описание\", \"version\": 1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Film 1"))
+                .andExpect(jsonPath("$.description").value("Новое описание"))
+                .andExpect(jsonPath("$.duration").value(136))
+                .andExpect(jsonPath("$.version").value(2));
+
+        // изменение на основе устаревшей версии отклоняется
+        mockMvc.perform(patch("/films/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"duration\": 90, \"version\": 1}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void patchFilm_withInvalidField_shouldReturnBadRequest() throws Exception {
+        createFilms(1);
+
+        mockMvc.perform(patch("/films/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"releaseDate\": \"1800-01-01\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Дата релиза — не раньше 28 декабря 1895 года"));
+
+        mockMvc.perform(patch("/films/42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"duration\": 90}"))
                 .andExpect(status().isNotFound());
     }
 
@@ -172,4 +240,270 @@ class FilmControllerTest {
                 .andExpect(jsonPath("$.length()").value(2));
     }
 
-}
\ No newline at end of file
+    private void createFilms(int count) throws Exception {
+        for (int i = 1; i <= count; i++) {
+            Film film = createValidFilm();
+            film.setName("Film " + i);
+            mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(film)))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void findAll_withCursor_shouldReturnPageAfterId() throws Exception {
+        createFilms(5);
+
+        mockMvc.perform(get("/films").param("after", "2").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(4));
+
+        mockMvc.perform(get("/films").param("after", "4").param("limit", "10"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(5));
+    }
+
+    @Test
+    void findAll_withCurrentEtag_shouldReturnNotModifiedUntilDataChanges() throws Exception {
+        createFilms(2);
+
+        String etag = mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/films").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // после записи версия хранилища меняется, кэш и ETag устаревают
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createValidFilm())))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    void findAll_withInvalidLimit_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/films").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAll_withNdjsonAccept_shouldStreamOneFilmPerLine() throws Exception {
+        createFilms(3);
+
+        MvcResult result = mockMvc.perform(get("/films").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("Film 3", objectMapper.readValue(lines[2], Film.class).getName());
+    }
+
+    private void createUser(String email) throws Exception {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin(email.substring(0, email.indexOf('@')));
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void findPopular_shouldOrderFilmsByLikes() throws Exception {
+        createFilms(3);
+        createUser("first@example.com");
+        createUser("second@example.com");
+
+        mockMvc.perform(put("/films/3/like/1")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/3/like/2")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/2/like/1")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/2/like/1")).andExpect(status().isOk()); // повторный лайк не считается
+
+        mockMvc.perform(get("/films/popular").param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(2));
+
+        mockMvc.perform(delete("/films/3/like/1")).andExpect(status().isOk());
+        mockMvc.perform(delete("/films/3/like/2")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/popular"))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(1))
+                .andExpect(jsonPath("$[2].id").value(3));
+    }
+
+    @Test
+    void addLike_unknownUser_shouldReturnNotFound() throws Exception {
+        createFilms(1);
+
+        mockMvc.perform(put("/films/1/like/42"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void search_shouldMatchWordsAndPrefixOfLastWord() throws Exception {
+        Film matrix = createValidFilm();
+        Film inception = createValidFilm();
+        inception.setName("Inception");
+        inception.setDescription("A thief who steals corporate secrets through dream-sharing technology.");
+
+        String response = mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(matrix)))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(inception)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/search").param("q", "matr"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("The Matrix"));
+
+        mockMvc.perform(get("/films/search").param("q", "Computer HACK"))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        mockMvc.perform(get("/films/search").param("q", "the").param("limit", "1"))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        // после обновления старые слова больше не находятся
+        Film updated = objectMapper.readValue(response, Film.class);
+        updated.setName("Reloaded");
+        updated.setDescription("Sequel");
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updated)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/search").param("q", "matrix"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/films/search").param("q", "reload"))
+                .andExpect(jsonPath("$[0].id").value(updated.getId()));
+    }
+
+    @Test
+    void search_withoutQuery_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/films/search"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search").param("q", "matrix").param("limit", "many"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAll_withRangeFilters_shouldReturnMatchingFilms() throws Exception {
+        int[][] releases = {{1991, 130}, {1995, 100}, {1999, 136}, {2003, 140}};
+        for (int[] release : releases) {
+            Film film = createValidFilm();
+            film.setName("Film " + release[0]);
+            film.setReleaseDate(LocalDate.of(release[0], 6, 1));
+            film.setDuration(release[1]);
+            mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(film)))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/films")
+                        .param("releasedFrom", "1990-01-01")
+                        .param("releasedTo", "1999-12-31")
+                        .param("minDuration", "120"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Film 1991"))
+                .andExpect(jsonPath("$[1].name").value("Film 1999"));
+
+        mockMvc.perform(get("/films").param("maxDuration", "135"))
+                .andExpect(jsonPath("$.length()").value(2));
+
+        mockMvc.perform(get("/films").param("minDuration", "120").param("limit", "1"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Film 1991"));
+
+        mockMvc.perform(get("/films").param("minDuration", "120").param("after", "1").param("limit", "2"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Film 1999"))
+                .andExpect(jsonPath("$[1].name").value("Film 2003"));
+    }
+
+    @Test
+    void createBatch_withInvalidAndDuplicateItems_shouldSaveOthers() throws Exception {
+        Film valid = createValidFilm();
+        Film duplicate = createValidFilm();
+        Film noName = createValidFilm();
+        noName.setName("");
+        Film second = createValidFilm();
+        second.setName("The Matrix Reloaded");
+
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(valid, duplicate, noName, second))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].status").value(409))
+                .andExpect(jsonPath("$[2].status").value(400))
+                .andExpect(jsonPath("$[3].status").value(200))
+                .andExpect(jsonPath("$[3].id").value(2));
+
+        mockMvc.perform(get("/films"))
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void updateBatch_withUnknownIdAndDuplicateName_shouldUpdateOthers() throws Exception {
+        Film first = createValidFilm();
+        Film second = createValidFilm();
+        second.setName("The Matrix Reloaded");
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(first, second))))
+                .andExpect(status().isOk());
+
+        Film renamed = createValidFilm();
+        renamed.setId(1L);
+        renamed.setName("Batch Name");
+        Film unknown = createValidFilm();
+        unknown.setId(999L);
+        unknown.setName("Unknown");
+        Film taken = createValidFilm();
+        taken.setId(2L);
+        taken.setName("Batch Name");
+
+        mockMvc.perform(put("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(renamed, unknown, taken))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].status").value(404))
+                .andExpect(jsonPath("$[2].status").value(409));
+
+        mockMvc.perform(get("/films"))
+                .andExpect(jsonPath("$[0].name").value("Batch Name"))
+                .andExpect(jsonPath("$[1].name").value("The Matrix Reloaded"));
+    }
+}
@@ -2,15 +2,21 @@ package ru.yandex.practicum.filmorate.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ru.yandex.practicum.filmorate.exception.ExceptionControllerAdvice;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.RecommendationIndex;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -21,12 +27,17 @@ class UserControllerTest {
 
     private MockMvc mockMvc;
     private ObjectMapper objectMapper;
+    private RecommendationIndex recommendationIndex;
 
     @BeforeEach
     void setUp() {
-        UserController controller = new UserController();
-        mockMvc = MockMvcBuilders.standaloneSetup(controller)
-                .setControllerAdvice(new ExceptionControllerAdvice())
+        FilmStorage filmStorage = new FilmStorage();
+        UserStorage userStorage = new UserStorage();
+        recommendationIndex = new RecommendationIndex(1024, 0);
+        filmStorage.setLikeListener(recommendationIndex);
+        mockMvc = MockMvcBuilders.standaloneSetup(new UserController(userStorage, filmStorage, recommendationIndex),
+                        new FilmController(filmStorage, userStorage))
+                .setControllerAdvice(new ExceptionControllerAdvice(new SimpleMeterRegistry()))
                 .build();
 
         objectMapper = new ObjectMapper();
@@ -62,7 +73,9 @@ class UserControllerTest {
         mockMvc.perform(post("/users")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(emptyJson))
-                .andExpect(status().isBadRequest());
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details.email").value("Имейл не может быть пустым"))
+                .andExpect(jsonPath("$.details.login").value("Логин не может быть пустым"));
     }
 
     @Test
@@ -73,7 +86,8 @@ class UserControllerTest {
         mockMvc.perform(post("/users")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(user)))
-                .andExpect(status().isBadRequest());
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Некорректный имейл"));
     }
 
     @Test
@@ -145,4 +159,138 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.length()").value(2));
     }
 
-}
\ No newline at end of file
+    @Test
+    void createBatch_withMixedUsers_shouldReportResultPerItem() throws Exception {
+        User valid = createValidUser();
+        User duplicate = createValidUser();
+        User invalidEmail = createValidUser();
+        invalidEmail.setEmail("invalid-email");
+        User futureBirthday = createValidUser();
+        futureBirthday.setEmail("future@example.com");
+        futureBirthday.setBirthday(LocalDate.now().plusDays(1));
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                List.of(valid, duplicate, invalidEmail, futureBirthday))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].status").value(409))
+                .andExpect(jsonPath("$[2].status").value(400))
+                .andExpect(jsonPath("$[3].status").value(400))
+                .andExpect(jsonPath("$[3].error").value("Дата рождения не может быть в будущем"));
+
+        mockMvc.perform(get("/users"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void updateBatch_withUnknownId_shouldUpdateOthers() throws Exception {
+        User user = createValidUser();
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isOk());
+
+        User existing = createValidUser();
+        existing.setId(1L);
+        existing.setName("Batch Name");
+        User unknown = createValidUser();
+        unknown.setId(999L);
+        unknown.setEmail("unknown@example.com");
+
+        mockMvc.perform(put("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(existing, unknown))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(404));
+
+        mockMvc.perform(get("/users"))
+                .andExpect(jsonPath("$[0].name").value("Batch Name"));
+    }
+
+    private void createUsers(int count) throws Exception {
+        for (int i = 1; i <= count; i++) {
+            User user = createValidUser();
+            user.setEmail("user" + i + "@example.com");
+            mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(user)))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void addFriend_shouldLinkBothUsersAndFindCommonFriends() throws Exception {
+        createUsers(4);
+
+        mockMvc.perform(put("/users/1/friends/3")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/1/friends/4")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/2/friends/4")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/2/friends/3")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/4/friends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(2));
+
+        mockMvc.perform(delete("/users/2/friends/3")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/1/friends/common/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(4));
+    }
+
+    @Test
+    void addFriend_unknownUser_shouldReturnNotFound() throws Exception {
+        createUsers(1);
+
+        mockMvc.perform(put("/users/1/friends/42"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void findRecommendations_shouldSuggestFilmsOfMostSimilarUser() throws Exception {
+        createUsers(3);
+        for (int i = 1; i <= 4; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("description");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(film)))
+                    .andExpect(status().isOk());
+        }
+
+        // у пользователя 2 больше общих лайков с пользователем 1, чем у пользователя 3
+        mockMvc.perform(put("/films/1/like/1")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/2/like/1")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/1/like/2")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/2/like/2")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/3/like/2")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/1/like/3")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/4/like/3")).andExpect(status().isOk());
+        recommendationIndex.awaitApplied();
+
+        mockMvc.perform(get("/users/1/recommendations"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+
+        mockMvc.perform(delete("/films/2/like/2")).andExpect(status().isOk());
+        recommendationIndex.awaitApplied();
+
+        // теперь пользователи 2 и 3 одинаково близки к пользователю 1
+        mockMvc.perform(get("/users/1/recommendations"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(4));
+    }
+}
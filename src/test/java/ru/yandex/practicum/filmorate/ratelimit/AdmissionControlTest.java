@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTest {
+    private static final long MS = 1_000_000L;
+
+    private final AtomicLong now = new AtomicLong();
+    private final AdmissionControl admission = new AdmissionControl(100 * MS, 1000 * MS, now::get);
+
+    private void window(int requests, long latencyNanos) {
+        for (int i = 0; i < requests; i++) {
+            admission.admit();
+            admission.record(latencyNanos);
+        }
+        now.addAndGet(1000 * MS);
+        admission.admit();
+    }
+
+    @Test
+    void admit_whenP99AboveThreshold_shouldShedAndRecoverAfterwards() {
+        window(100, 10 * MS);
+        assertEquals(1.0, admission.admittedRatio());
+
+        window(100, 300 * MS);
+        assertEquals(0.5, admission.admittedRatio());
+        assertTrue(admission.lastP99Nanos() >= 300 * MS);
+
+        window(100, 300 * MS);
+        assertEquals(0.25, admission.admittedRatio());
+
+        for (int i = 0; i < 10; i++) {
+            window(100, 10 * MS);
+        }
+        assertEquals(1.0, admission.admittedRatio());
+    }
+
+    @Test
+    void bucket_upperBound_shouldCoverValueWithinQuarter() {
+        for (long value : new long[]{1, 3, 1000, 123_456_789, 5_000_000_000L}) {
+            long bound = AdmissionControl.upperBound(AdmissionControl.bucket(value));
+            assertTrue(bound > value && bound <= value * 1.25 + 2, value + " -> " + bound);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.exception.ExceptionControllerAdvice;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class RateLimitFilterTest {
+    private static final String GATEWAY = "10.0.0.1";
+
+    private static MockMvc mockMvc(RateLimitFilter filter) {
+        return MockMvcBuilders.standaloneSetup(new FilmController(new FilmStorage(), new UserStorage()))
+                .setControllerAdvice(new ExceptionControllerAdvice(new SimpleMeterRegistry()))
+                .addFilters(filter)
+                .build();
+    }
+
+    private final MockMvc mockMvc = mockMvc(new RateLimitFilter(
+            new RateLimiter("GET /films=0.1/2", "1000/1000", 100, new SimpleMeterRegistry()), null, "X-Client-Id", Set.of(GATEWAY)));
+
+    @Test
+    void findAll_overClientLimit_shouldReturnTooManyRequests() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/films").with(remote(GATEWAY)).header("X-Client-Id", "greedy"))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/films").with(remote(GATEWAY)).header("X-Client-Id", "greedy"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "10"))
+                .andExpect(jsonPath("$.error").value("Превышен лимит запросов для клиента greedy"));
+
+        mockMvc.perform(get("/films").with(remote(GATEWAY)).header("X-Client-Id", "polite"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular").with(remote(GATEWAY)).header("X-Client-Id", "greedy"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void findAll_withClientHeaderFromUntrustedAddress_shouldLimitByAddress() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/films").with(remote("192.168.1.5")).header("X-Client-Id", "client-" + i))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/films").with(remote("192.168.1.5")).header("X-Client-Id", "fresh"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.error").value("Превышен лимит запросов для клиента 192.168.1.5"));
+    }
+
+    @Test
+    void findAll_withAdmissionOnly_shouldShedWithoutRateLimiter() throws Exception {
+        AtomicLong now = new AtomicLong();
+        AdmissionControl admission = new AdmissionControl(1, 1000, now::get);
+        for (int i = 0; i < 100; i++) {
+            admission.record(1_000_000);
+        }
+        // каждое закрытое окно с p99 выше порога вдвое уменьшает долю допуска
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(1000);
+            admission.admit();
+            for (int j = 0; j < 100; j++) {
+                admission.record(1_000_000);
+            }
+        }
+        MockMvc admissionOnly = mockMvc(new RateLimitFilter(null, admission, "X-Client-Id", Set.of()));
+
+        int shed = 0;
+        for (int i = 0; i < 50; i++) {
+            if (admissionOnly.perform(get("/films")).andReturn().getResponse().getStatus() == 429) {
+                shed++;
+            }
+        }
+        assertTrue(shed > 0, "Допуск без ограничения частоты не отклонил ни одного запроса");
+    }
+
+    private static RequestPostProcessor remote(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+}
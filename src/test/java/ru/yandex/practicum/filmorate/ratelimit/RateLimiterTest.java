@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong(SECOND);
+
+    private RateLimiter limiter(String rules, String defaultLimit, int maxClients) {
+        return new RateLimiter(RateLimitRule.parseAll(rules), RateLimitRule.parse("*=" + defaultLimit),
+                maxClients, now::get, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void acquire_beyondBurst_shouldWaitForRefill() {
+        RateLimiter.Client client = limiter("", "2/3", 10).client("a");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, client.acquire("GET", "/films"));
+        }
+        long wait = client.acquire("GET", "/films");
+        assertEquals(SECOND / 2, wait);
+
+        now.addAndGet(wait);
+        assertEquals(0, client.acquire("GET", "/films"));
+        assertTrue(client.acquire("GET", "/films") > 0);
+    }
+
+    @Test
+    void acquire_shouldUseMostSpecificRuleWithSeparateBuckets() {
+        RateLimiter limiter = limiter("GET /films=1/1, reporting@*=1/5, reporting@GET /films/{id}=1/2", "1/10", 10);
+        RateLimiter.Client anonymous = limiter.client("a");
+        RateLimiter.Client reporting = limiter.client("reporting");
+
+        assertEquals(0, anonymous.acquire("GET", "/films"));
+        assertTrue(anonymous.acquire("GET", "/films") > 0);
+        // другие точки — в корзине по умолчанию
+        assertEquals(0, anonymous.acquire("POST", "/films"));
+
+        assertEquals(0, reporting.acquire("GET", "/films/1"));
+        assertEquals(0, reporting.acquire("GET", "/films/2"));
+        assertTrue(reporting.acquire("GET", "/films/3") > 0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, reporting.acquire("GET", "/films"));
+        }
+        assertTrue(reporting.acquire("GET", "/users") > 0);
+    }
+
+    @Test
+    void client_overCapacity_shouldEvictIdleOrShareOverflowState() {
+        RateLimiter limiter = limiter("", "1/1", 2);
+        limiter.client("a").acquire("GET", "/films");
+        limiter.client("b").acquire("GET", "/films");
+
+        assertEquals(RateLimiter.OVERFLOW_CLIENT, limiter.client("c").id());
+
+        now.addAndGet(2 * SECOND);
+        assertEquals("d", limiter.client("d").id());
+    }
+
+    @Test
+    void parse_invalidRule_shouldFail() {
+        assertThrows(IllegalArgumentException.class, () -> RateLimitRule.parse("GET films=1/1"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitRule.parse("GET /films=0/1"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitRule.parse("GET /films"));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ChangeFeed;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.net.BindException;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaClientTest {
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Реплика не догнала ведущий узел");
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Порт закрытого ведущего узла освобождается, когда его поток accept выйдет из ожидания.
+     */
+    private static ReplicationSource listen(int port, FilmStorage films) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return new ReplicationSource(port, new ChangeFeed(1024), films, new UserStorage(), new SimpleMeterRegistry());
+            } catch (BindException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    @Test
+    void snapshotOfNewEpoch_shouldReplaceReplicaData() throws Exception {
+        FilmStorage oldFilms = new FilmStorage();
+        UserStorage oldUsers = new UserStorage();
+        Film kept = oldFilms.save(film("Солярис"));
+        for (int i = 0; i < 5; i++) {
+            kept.setDescription("правка " + i);
+            kept = oldFilms.update(kept);
+        }
+        Film gone = oldFilms.save(film("Сталкер"));
+        User liker = oldUsers.save(user("liker@example.com"));
+        oldFilms.addLike(gone.getId(), liker.getId());
+        ReplicationSource oldPrimary = new ReplicationSource(0, new ChangeFeed(1024), oldFilms, oldUsers, new SimpleMeterRegistry());
+        int port = oldPrimary.port();
+
+        FilmStorage films = new FilmStorage();
+        UserStorage users = new UserStorage();
+        try (ReplicaClient replica = new ReplicaClient("localhost:" + port, films, users, new SimpleMeterRegistry())) {
+            await(() -> films.findAll().size() == 2);
+            assertEquals(1, films.countLikes(gone.getId()));
+            oldPrimary.close();
+
+            // ведущий узел перезапущен без сохранённых данных: версии начались заново
+            FilmStorage newFilms = new FilmStorage();
+            newFilms.save(film("Зеркало"));
+            ReplicationSource newPrimary = listen(port, newFilms);
+            try {
+                await(() -> films.findAll().size() == 1 && users.findAll().isEmpty());
+            } finally {
+                newPrimary.close();
+            }
+        }
+
+        assertEquals("Зеркало", films.findById(kept.getId()).getName());
+        assertNull(films.findById(gone.getId()));
+        assertEquals(0, films.countLikes(gone.getId()));
+        assertEquals(1, films.findPopular(10).size());
+        assertEquals(0, films.search("сталкер", 10).size());
+        assertEquals(1, films.search("зеркало", 10).size());
+    }
+}
@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.replication;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ведущий узел и реплика в одном процессе, обмен — через сокет репликации.
+ */
+class ReplicationTest {
+    private static final HttpClient client = HttpClient.newHttpClient();
+    private static final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private static ConfigurableApplicationContext primary;
+    private static ConfigurableApplicationContext replica;
+    private static String primaryUrl;
+    private static String replicaUrl;
+    private static long snapshotFilmId;
+
+    @BeforeAll
+    static void start() throws Exception {
+        primary = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                "--filmorate.replication.role=primary",
+                "--filmorate.replication.port=0",
+                "--logging.level.ru.yandex.practicum=WARN");
+        primaryUrl = url(primary);
+        // создан до подключения реплики — попадёт к ней через снимок
+        snapshotFilmId = json(send(primaryUrl, "POST", "/films", film("before-replica"), null)).get("id").asLong();
+
+        int replicationPort = primary.getBean(ReplicationSource.class).port();
+        replica = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                "--filmorate.replication.role=replica",
+                "--filmorate.replication.primary=localhost:" + replicationPort,
+                "--filmorate.replication.max-wait-ms=2000",
+                "--logging.level.ru.yandex.practicum=WARN");
+        replicaUrl = url(replica);
+    }
+
+    @AfterAll
+    static void stop() {
+        replica.close();
+        primary.close();
+    }
+
+    private static String url(ConfigurableApplicationContext context) {
+        return "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private static HttpResponse<String> send(String baseUrl, String method, String path, Object body, String minSeq)
+            throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)));
+        if (minSeq != null) {
+            request.header(ReplicationFilter.MIN_SEQ_HEADER, minSeq);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonNode json(HttpResponse<String> response) throws Exception {
+        assertEquals(200, response.statusCode(), response.body());
+        return mapper.readTree(response.body());
+    }
+
+    private static String token(HttpResponse<String> response) {
+        return response.headers().firstValue(ReplicationFilter.SEQ_HEADER).orElseThrow();
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    @Test
+    void readWithToken_shouldSeeOwnWrite() throws Exception {
+        HttpResponse<String> created = send(primaryUrl, "POST", "/films", film("replicated"), null);
+        long id = json(created).get("id").asLong();
+
+        JsonNode page = json(send(replicaUrl, "GET", "/films?after=" + (id - 1) + "&limit=1", null, token(created)));
+
+        assertEquals("replicated", page.get(0).get("name").asText());
+    }
+
+    @Test
+    void snapshot_shouldContainDataWrittenBeforeReplicaConnected() throws Exception {
+        HttpResponse<String> status = send(primaryUrl, "GET", "/replication", null, null);
+
+        JsonNode page = json(send(replicaUrl, "GET", "/films?after=" + (snapshotFilmId - 1) + "&limit=1",
+                null, token(status)));
+
+        assertEquals("before-replica", page.get(0).get("name").asText());
+    }
+
+    @Test
+    void likesAndFriends_shouldBeReplicated() throws Exception {
+        long first = json(send(primaryUrl, "POST", "/users", user("first@example.com"), null)).get("id").asLong();
+        long second = json(send(primaryUrl, "POST", "/users", user("second@example.com"), null)).get("id").asLong();
+        long filmId = json(send(primaryUrl, "POST", "/films", film("liked"), null)).get("id").asLong();
+        send(primaryUrl, "PUT", "/films/" + filmId + "/like/" + first, null, null);
+        send(primaryUrl, "PUT", "/films/" + filmId + "/like/" + second, null, null);
+        HttpResponse<String> friended = send(primaryUrl, "PUT", "/users/" + first + "/friends/" + second, null, null);
+        String seq = token(friended);
+
+        assertEquals(filmId, json(send(replicaUrl, "GET", "/films/popular?count=1", null, seq)).get(0)
+                .get("id").asLong());
+        assertEquals(second, json(send(replicaUrl, "GET", "/users/" + first + "/friends", null, seq)).get(0)
+                .get("id").asLong());
+    }
+
+    @Test
+    void writeToReplica_shouldBeRejected() throws Exception {
+        assertEquals(405, send(replicaUrl, "POST", "/films", film("rejected"), null).statusCode());
+    }
+
+    @Test
+    void tokenAheadOfPrimary_shouldTimeOut() throws Exception {
+        HttpResponse<String> response = send(replicaUrl, "GET", "/films", null, String.valueOf(Long.MAX_VALUE));
+
+        assertEquals(503, response.statusCode());
+    }
+
+    @Test
+    void status_shouldReportConnectedReplicaWithoutLag() throws Exception {
+        String seq = token(send(primaryUrl, "POST", "/films", film("status"), null));
+
+        JsonNode status = json(send(replicaUrl, "GET", "/replication", null, seq));
+
+        assertEquals("replica", status.get("role").asText());
+        assertTrue(status.get("connected").asBoolean());
+        assertTrue(status.get("seq").asLong() >= Long.parseLong(seq));
+        assertEquals(1, json(send(primaryUrl, "GET", "/replication", null, null)).get("replicas").asInt());
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FilmPopularityIndexTest {
+
+    @Test
+    void top_afterLikesMoveFilmsAcrossBoundary_shouldRepublishOrder() {
+        FilmPopularityIndex index = new FilmPopularityIndex();
+        Map<Long, Integer> likes = new HashMap<>();
+        for (long id = 1; id <= 5; id++) {
+            likes.put(id, (int) id);
+            index.refresh(id, likes::get);
+        }
+
+        assertArrayEquals(new long[]{5, 4}, index.top(2));
+
+        // фильм снизу поднимается в вершину, верхний теряет все лайки
+        likes.put(1L, 10);
+        index.refresh(1, likes::get);
+        likes.put(5L, 0);
+        index.refresh(5, likes::get);
+
+        assertArrayEquals(new long[]{1, 4}, index.top(2));
+        assertArrayEquals(new long[]{1, 4, 3, 2}, index.top(10));
+    }
+
+    @Test
+    void top_whenChangeBelowPublishedTop_shouldKeepPublishedArray() {
+        FilmPopularityIndex index = new FilmPopularityIndex();
+        Map<Long, Integer> likes = new HashMap<>();
+        for (long id = 1; id <= 5; id++) {
+            likes.put(id, 10 - (int) id);
+            index.refresh(id, likes::get);
+        }
+        long[] published = index.top(2);
+
+        likes.put(5L, 6);
+        index.refresh(5, likes::get);
+
+        assertSame(published, index.top(2));
+    }
+}
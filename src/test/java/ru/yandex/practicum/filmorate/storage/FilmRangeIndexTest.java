@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FilmRangeIndexTest {
+
+    private static Film film(long id, LocalDate releaseDate, int duration) {
+        Film film = new Film();
+        film.setId(id);
+        film.setReleaseDate(releaseDate);
+        film.setDuration(duration);
+        return film;
+    }
+
+    @Test
+    void findCandidates_withCursorAndLimit_shouldCheckOnlyOnePageInIdOrder() {
+        FilmRangeIndex index = new FilmRangeIndex();
+        // продолжительность убывает с ростом id: порядок индекса обратен порядку id; в диапазон попадают id 500..1000
+        for (long id = 1; id <= 1000; id++) {
+            index.update(null, film(id, LocalDate.of(2000, 1, 1), (int) (2000 - id)));
+        }
+        AtomicInteger checked = new AtomicInteger();
+
+        long[] page = index.findCandidates(null, null, 1000, 1500, 510, 5, id -> {
+            checked.incrementAndGet();
+            return id % 2 == 0;
+        });
+
+        assertArrayEquals(new long[]{512, 514, 516, 518, 520}, page);
+        assertEquals(10, checked.get());
+    }
+
+    @Test
+    void findCandidates_withRepeatedValues_shouldMergeValuesInIdOrder() {
+        FilmRangeIndex index = new FilmRangeIndex();
+        // три значения продолжительности вперемешку по id; 130 вне диапазона
+        for (long id = 1; id <= 30; id++) {
+            index.update(null, film(id, LocalDate.of(2000, 1, 1), 100 + (int) (id % 4) * 10));
+        }
+
+        long[] page = index.findCandidates(null, null, 100, 120, 4, 6, id -> true);
+
+        assertArrayEquals(new long[]{5, 6, 8, 9, 10, 12}, page);
+    }
+
+    @Test
+    void findCandidates_withoutRanges_shouldReturnNull() {
+        FilmRangeIndex index = new FilmRangeIndex();
+        index.update(null, film(1, LocalDate.of(2000, 1, 1), 100));
+
+        assertNull(index.findCandidates(null, null, null, null, 0, 10, id -> true));
+    }
+
+    @Test
+    void findCandidates_withBothRanges_shouldLeadWithSingleValueRangeOfFewerFilms() {
+        FilmRangeIndex index = new FilmRangeIndex();
+        // все фильмы в диапазоне продолжительности (1000 значений), в диапазоне дат — каждый сотый (одна дата)
+        for (long id = 1; id <= 1000; id++) {
+            LocalDate releaseDate = id % 100 == 0 ? LocalDate.of(2000, 1, 1) : LocalDate.of(1990, 1, 1);
+            index.update(null, film(id, releaseDate, (int) id));
+        }
+        AtomicInteger checked = new AtomicInteger();
+
+        long[] page = index.findCandidates(LocalDate.of(2000, 1, 1), null, 1, 1000, 0, 100, id -> {
+            checked.incrementAndGet();
+            return true;
+        });
+
+        assertEquals(10, page.length);
+        assertEquals(10, checked.get());
+    }
+
+    @Test
+    void findCandidates_withBothWideRanges_shouldLeadWithRangeOfFewerFilms() {
+        FilmRangeIndex index = new FilmRangeIndex();
+        // в диапазоне дат 400 фильмов на 400 дней, в диапазоне продолжительности все 4000 на 100 значений
+        for (long id = 1; id <= 4000; id++) {
+            LocalDate releaseDate = id % 10 == 0
+                    ? LocalDate.of(2000, 1, 1).plusDays(id / 10)
+                    : LocalDate.of(1950, 1, 1).plusDays(id % 1000);
+            index.update(null, film(id, releaseDate, 60 + (int) (id % 100)));
+        }
+        AtomicInteger checked = new AtomicInteger();
+
+        long[] page = index.findCandidates(LocalDate.of(2000, 1, 1), LocalDate.of(2010, 12, 31), 60, 159, 0, 50,
+                id -> {
+                    checked.incrementAndGet();
+                    return id % 10 == 0;
+                });
+
+        assertEquals(50, page.length);
+        assertEquals(500, page[49]);
+        assertEquals(50, checked.get());
+    }
+
+    @Test
+    void findCandidates_withManyFilmsPerValue_shouldMergeValuesUpToLimit() {
+        FilmRangeIndex index = new FilmRangeIndex();
+        // три значения по ~333 фильма: диапазон сливается курсорами значений, а не просматривается целиком
+        for (long id = 1; id <= 1000; id++) {
+            index.update(null, film(id, LocalDate.of(2000, 1, 1), 100 + (int) (id % 3) * 10));
+        }
+        AtomicInteger checked = new AtomicInteger();
+
+        long[] page = index.findCandidates(null, null, 100, 110, 500, 5, id -> {
+            checked.incrementAndGet();
+            return true;
+        });
+
+        assertArrayEquals(new long[]{501, 502, 504, 505, 507}, page);
+        assertEquals(5, checked.get());
+    }
+
+    @Test
+    void findCandidates_afterFilmsMoveBetweenValues_shouldFollowUpdatedCounts() {
+        FilmRangeIndex index = new FilmRangeIndex();
+        for (long id = 1; id <= 1000; id++) {
+            index.update(null, film(id, LocalDate.of(2000, 1, 1).plusDays(id % 200), 100));
+        }
+        // 900 фильмов уходят из диапазона продолжительности, в нём остаются 100 против 1000 в диапазоне дат
+        for (long id = 1; id <= 900; id++) {
+            index.update(film(id, LocalDate.of(2000, 1, 1).plusDays(id % 200), 100),
+                    film(id, LocalDate.of(2000, 1, 1).plusDays(id % 200), 200));
+        }
+        AtomicInteger checked = new AtomicInteger();
+
+        long[] page = index.findCandidates(LocalDate.of(2000, 1, 1), LocalDate.of(2001, 1, 1), 90, 110, 0, 1000,
+                id -> {
+                    checked.incrementAndGet();
+                    return true;
+                });
+
+        assertEquals(100, page.length);
+        assertEquals(901, page[0]);
+        assertEquals(100, checked.get());
+    }
+}
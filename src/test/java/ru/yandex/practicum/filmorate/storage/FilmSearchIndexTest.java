@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class FilmSearchIndexTest {
+
+    private static Film film(long id, String name, String description) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription(description);
+        return film;
+    }
+
+    @Test
+    void search_prefixWithManyTerms_shouldMergeAllTermsInIdOrder() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        // у каждого фильма свой термин с общим префиксом; id идут не в порядке терминов
+        for (long id = 1; id <= 3000; id++) {
+            index.update(null, film(id, "part" + (3001 - id), id % 2 == 0 ? "even" : "odd"));
+        }
+
+        assertArrayEquals(LongStream.rangeClosed(1, 3000).toArray(), index.search("part", 5000));
+        assertArrayEquals(new long[]{1, 2, 3}, index.search("par", 3));
+        assertArrayEquals(LongStream.iterate(2, id -> id + 2).limit(1500).toArray(), index.search("even part", 5000));
+        assertArrayEquals(new long[]{2003, 2005}, index.search("odd part99", 2));
+    }
+
+    @Test
+    void search_shortLastWord_shouldMatchWholeTermInsteadOfAllTermsWithPrefix() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        // под префиксом "a" 5000 терминов, целое слово "a" — только у каждого сотого фильма
+        for (long id = 1; id <= 5000; id++) {
+            index.update(null, film(id, "a" + id, id % 100 == 0 ? "a story" : "story"));
+        }
+
+        assertArrayEquals(LongStream.rangeClosed(1, 50).map(n -> n * 100).toArray(), index.search("a", 100));
+        assertArrayEquals(new long[]{100, 200}, index.search("story a", 2));
+        assertArrayEquals(new long[0], index.search("a1x", 10));
+        // с трёх символов префикс снова раскрывается во все термины
+        assertArrayEquals(new long[]{10, 100, 101, 102}, index.search("a10", 4));
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IdTrieTest {
+
+    private static List<Long> idsAfter(IdTrie trie, long afterId) {
+        List<Long> ids = new ArrayList<>();
+        IdTrie.Cursor cursor = trie.cursor(afterId);
+        while (cursor.next()) {
+            ids.add(cursor.id());
+        }
+        return ids;
+    }
+
+    @Test
+    void with_randomSparseIds_shouldMatchSortedMapAndKeepOldVersions() {
+        Random random = new Random(42);
+        TreeMap<Long, Object> expected = new TreeMap<>();
+        IdTrie trie = IdTrie.EMPTY;
+        IdTrie half = null;
+        TreeMap<Long, Object> halfExpected = null;
+        for (int i = 0; i < 5_000; i++) {
+            long id = i % 3 == 0 ? random.nextInt(100_000) : (random.nextLong() >>> 1) >>> random.nextInt(63);
+            Object value = "v" + i;
+            trie = trie.with(id, value);
+            expected.put(id, value);
+            if (i == 2_500) {
+                half = trie;
+                halfExpected = new TreeMap<>(expected);
+            }
+        }
+
+        assertEquals(expected.size(), trie.size());
+        for (Map.Entry<Long, Object> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), trie.get(entry.getKey()));
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), idsAfter(trie, -1));
+        long middle = expected.keySet().stream().skip(expected.size() / 2).findFirst().orElseThrow();
+        assertEquals(new ArrayList<>(expected.tailMap(middle, false).keySet()), idsAfter(trie, middle));
+        // прежняя версия не видит последующих записей
+        assertEquals(halfExpected.size(), half.size());
+        assertEquals(new ArrayList<>(halfExpected.keySet()), idsAfter(half, -1));
+    }
+
+    @Test
+    void cursor_beyondLastId_shouldBeEmpty() {
+        IdTrie trie = IdTrie.EMPTY.with(1, "a").with(31, "b").with(32, "c");
+
+        assertEquals(List.of(32L), idsAfter(trie, 31));
+        assertEquals(List.of(), idsAfter(trie, 32));
+        assertEquals(List.of(), idsAfter(trie, Long.MAX_VALUE));
+        assertFalse(IdTrie.EMPTY.cursor(-1).next());
+        assertNull(trie.get(1_000_000));
+        assertEquals(3, trie.with(32, "d").size());
+    }
+
+    @Test
+    void withAll_shouldApplyBatchInOrderAndKeepOldVersion() {
+        IdTrie base = IdTrie.EMPTY;
+        for (long id = 0; id < 100; id++) {
+            base = base.with(id, "old" + id);
+        }
+        // тот же id дважды, удаление, новые id за пределами прежней высоты дерева
+        long[] ids = {5, 5, 7, 50_000, 1_000_000, 99};
+        Object[] values = {"a", "b", null, "c", "d", null};
+
+        IdTrie batch = base.withAll(ids, values, ids.length);
+
+        assertEquals("b", batch.get(5));
+        assertNull(batch.get(7));
+        assertNull(batch.get(99));
+        assertEquals("c", batch.get(50_000));
+        assertEquals("d", batch.get(1_000_000));
+        assertEquals(100, batch.size());
+        assertEquals(List.of(50_000L, 1_000_000L), idsAfter(batch, 98));
+        // исходная версия не изменилась
+        assertEquals(100, base.size());
+        assertEquals("old5", base.get(5));
+        assertEquals("old7", base.get(7));
+        assertNull(base.get(50_000));
+    }
+}
@@ -0,0 +1,466 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.VersionConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryStorageTest {
+
+    private static final int THREADS = 16;
+    private static final int PER_THREAD = 2_000;
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private User createUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin("login");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private <R> List<R> runConcurrently(Callable<R> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<R>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(task));
+            }
+            List<R> results = new ArrayList<>();
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void save_concurrently_shouldNotDuplicateIdsOrLoseWrites() throws Exception {
+        FilmStorage storage = new FilmStorage();
+
+        List<List<Long>> ids = runConcurrently(() -> {
+            List<Long> saved = new ArrayList<>();
+            for (int i = 0; i < PER_THREAD; i++) {
+                saved.add(storage.save(createFilm(Thread.currentThread().getName() + "-" + i)).getId());
+            }
+            return saved;
+        });
+
+        Set<Long> unique = new HashSet<>();
+        ids.forEach(unique::addAll);
+        assertEquals(THREADS * PER_THREAD, unique.size(), "идентификаторы не должны повторяться");
+        assertEquals(THREADS * PER_THREAD, storage.findAll().size(), "ни одна запись не должна потеряться");
+        for (Long id : unique) {
+            assertEquals(id, storage.findById(id).getId());
+        }
+    }
+
+    @Test
+    void update_concurrently_shouldKeepEveryEntity() throws Exception {
+        UserStorage storage = new UserStorage();
+        for (int i = 0; i < THREADS; i++) {
+            storage.save(createUser("user" + i + "@example.com"));
+        }
+
+        runConcurrently(() -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                long id = i % THREADS + 1;
+                User user = createUser("user" + (id - 1) + "@example.com");
+                user.setId(id);
+                user.setName("name-" + i);
+                storage.update(user);
+            }
+            return null;
+        });
+
+        assertEquals(THREADS, storage.findAll().size());
+        for (long id = 1; id <= THREADS; id++) {
+            assertTrue(storage.existsById(id));
+            assertEquals(id, storage.findById(id).getId());
+        }
+    }
+
+    @Test
+    void update_concurrently_shouldPublishOwnWriteAndLastVersionToSnapshot() throws Exception {
+        UserStorage storage = new UserStorage();
+        for (int i = 0; i < THREADS; i++) {
+            storage.save(createUser("user" + i + "@example.com"));
+        }
+
+        List<Integer> unseen = runConcurrently(() -> {
+            int missed = 0;
+            for (int i = 0; i < PER_THREAD; i++) {
+                long id = i % THREADS + 1;
+                User user = createUser("user" + (id - 1) + "@example.com");
+                user.setId(id);
+                long written = storage.update(user).getVersion();
+                // запись видна в снимке, как только update вернул управление
+                if (storage.findPage(id - 1, 1).get(0).getVersion() < written) {
+                    missed++;
+                }
+            }
+            return missed;
+        });
+
+        assertEquals(Collections.nCopies(THREADS, 0), unseen);
+        for (User user : storage.findAll()) {
+            assertEquals(storage.findById(user.getId()).getVersion(), user.getVersion());
+        }
+        assertEquals(THREADS + (long) THREADS * PER_THREAD, storage.version());
+    }
+
+    @Test
+    void save_sameNameConcurrently_shouldStoreOnlyOneFilm() throws Exception {
+        FilmStorage storage = new FilmStorage();
+
+        List<Integer> saved = runConcurrently(() -> {
+            int count = 0;
+            for (int i = 0; i < PER_THREAD; i++) {
+                try {
+                    storage.save(createFilm("film-" + i));
+                    count++;
+                } catch (DuplicatedDataException ignored) {
+                    // другой поток успел раньше
+                }
+            }
+            return count;
+        });
+
+        assertEquals(PER_THREAD, saved.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(PER_THREAD, storage.findAll().size());
+    }
+
+    @Test
+    void update_toTakenEmail_shouldThrowDuplicate() {
+        UserStorage storage = new UserStorage();
+        storage.save(createUser("first@example.com"));
+        User second = storage.save(createUser("second@example.com"));
+
+        User changed = createUser("first@example.com");
+        changed.setId(second.getId());
+        assertThrows(DuplicatedDataException.class, () -> storage.update(changed));
+
+        changed.setEmail("third@example.com");
+        storage.update(changed);
+        storage.save(createUser("second@example.com"));
+        assertEquals(3, storage.findAll().size());
+    }
+
+    @Test
+    void update_afterMutatingFoundEntity_shouldMoveUniqueKeyAndSearchTerms() {
+        FilmStorage storage = new FilmStorage();
+        Film saved = storage.save(createFilm("Солярис"));
+
+        Film found = storage.findById(saved.getId());
+        found.setName("Сталкер");
+        assertEquals("Солярис", storage.findById(saved.getId()).getName());
+        storage.update(found);
+
+        storage.save(createFilm("Солярис"));
+        assertEquals(List.of("Сталкер"), storage.search("сталкер", 10).stream().map(Film::getName).toList());
+        assertEquals(1, storage.search("солярис", 10).size());
+    }
+
+    @Test
+    void compactLayout_shouldRestoreEntitiesAndKeepUniqueIndex() {
+        UserStorage storage = new UserStorage(new CompactUserCodec());
+        User saved = storage.save(createUser("first@example.com"));
+        User withoutDate = createUser("второй@example.com");
+        withoutDate.setBirthday(null);
+        storage.save(withoutDate);
+
+        User restored = storage.findById(saved.getId());
+        assertEquals("first@example.com", restored.getEmail());
+        assertEquals("login", restored.getLogin());
+        assertEquals(null, restored.getName());
+        assertEquals(LocalDate.of(1990, 1, 1), restored.getBirthday());
+        assertEquals(null, storage.findById(withoutDate.getId()).getBirthday());
+        assertEquals("второй@example.com", storage.findById(withoutDate.getId()).getEmail());
+
+        assertThrows(DuplicatedDataException.class, () -> storage.save(createUser("first@example.com")));
+        restored.setEmail("renamed@example.com");
+        storage.update(restored);
+        storage.save(createUser("first@example.com"));
+        assertEquals(3, storage.findAll().size());
+        assertEquals(List.of(1L, 2L), storage.findPage(0, 2).stream().map(User::getId).toList());
+    }
+
+    @Test
+    void patch_concurrently_shouldRetryAndNotLoseChanges() throws Exception {
+        FilmStorage storage = new FilmStorage();
+        Film film = storage.save(createFilm("film"));
+
+        runConcurrently(() -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                storage.patch(film.getId(), null, current -> {
+                    Film changed = createFilm(current.getName());
+                    changed.setDuration(current.getDuration() + 1);
+                    return changed;
+                });
+            }
+            return null;
+        });
+
+        Film result = storage.findById(film.getId());
+        assertEquals(100 + THREADS * PER_THREAD, result.getDuration());
+        assertEquals(1 + THREADS * PER_THREAD, result.getVersion());
+        assertThrows(VersionConflictException.class, () -> storage.patch(film.getId(), 1L, current -> current));
+    }
+
+    @Test
+    void jsonFragments_shouldMatchDefaultSerializationAndFollowUpdates() throws Exception {
+        ObjectMapper mapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        FilmStorage storage = new FilmStorage(new CompactFilmCodec());
+        storage.enableJsonFragments();
+        Film first = storage.save(createFilm("first"));
+        storage.save(createFilm("second"));
+        Film updated = createFilm("first, \"renamed\"");
+        updated.setId(first.getId());
+        storage.update(updated);
+
+        assertEquals(mapper.writeValueAsString(storage.findPage(0, 10)), new String(storage.findAllJson(), UTF_8));
+        assertEquals(mapper.writeValueAsString(storage.findPage(1, 1)),
+                new String(storage.findPageJson(1, 1), UTF_8));
+        // устаревшая версия не берётся из фрагмента
+        assertEquals(mapper.writeValueAsString(List.of(first)), new String(storage.toJson(List.of(first)), UTF_8));
+        assertEquals("[]", new String(storage.findPageJson(10, 5), UTF_8));
+    }
+
+    @Test
+    void findAll_whileWriting_shouldSeeStateAtCallTime() {
+        FilmStorage storage = new FilmStorage(new CompactFilmCodec());
+        for (int i = 0; i < 100; i++) {
+            storage.save(createFilm("film" + i));
+        }
+        Collection<Film> all = storage.findAll();
+        StorageSnapshot<Film> snapshot = storage.snapshot();
+
+        Iterator<Film> iterator = all.iterator();
+        List<Integer> durations = new ArrayList<>(List.of(iterator.next().getDuration()));
+        // обход уже начат, а все фильмы изменены и добавлен новый
+        for (long id = 1; id <= 100; id++) {
+            Film changed = createFilm("film" + (id - 1));
+            changed.setId(id);
+            changed.setDuration(999);
+            storage.update(changed);
+        }
+        storage.save(createFilm("new"));
+        iterator.forEachRemaining(film -> durations.add(film.getDuration()));
+
+        assertEquals(Collections.nCopies(100, 100), durations);
+        assertEquals(100, all.size());
+        assertEquals(100, snapshot.findPage(50, 100).get(0).getDuration());
+        assertEquals(50, snapshot.findPage(50, 100).size());
+        assertEquals(999, storage.findPage(50, 1).get(0).getDuration());
+        assertEquals(101, storage.findAll().size());
+    }
+
+    @Test
+    void findAll_concurrentWithUpdates_shouldNeverSeeTornRounds() throws Exception {
+        FilmStorage storage = new FilmStorage();
+        int films = 200;
+        for (int i = 0; i < films; i++) {
+            storage.save(createFilm("film" + i));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            // раунды обновлений по возрастанию id: в срезе длительности не растут с id
+            // и отличаются не больше чем на единицу
+            for (int round = 101; running.get(); round++) {
+                for (long id = 1; id <= films; id++) {
+                    Film changed = createFilm("film" + (id - 1));
+                    changed.setId(id);
+                    changed.setDuration(round);
+                    storage.update(changed);
+                }
+            }
+        });
+        writer.start();
+        try {
+            for (int scan = 0; scan < 500; scan++) {
+                int previous = Integer.MAX_VALUE;
+                int first = -1;
+                for (Film film : storage.findAll()) {
+                    int duration = film.getDuration();
+                    first = first < 0 ? duration : first;
+                    assertTrue(duration <= previous && first - duration <= 1, "срез должен быть на один момент");
+                    previous = duration;
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    void findPopular_concurrentWithLikes_shouldListEveryFilmOnce() throws Exception {
+        FilmStorage storage = new FilmStorage();
+        int films = 50;
+        for (int i = 0; i < films; i++) {
+            storage.save(createFilm("film" + i));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            // лайки и их снятие постоянно переносят фильмы по рейтингу в обе стороны
+            for (long userId = 1; running.get(); userId++) {
+                for (long id = 1; id <= films; id++) {
+                    storage.addLike(id, userId);
+                    if (userId % 2 == 0) {
+                        storage.removeLike(id, userId - 1);
+                    }
+                }
+            }
+        });
+        writer.start();
+        try {
+            for (int scan = 0; scan < 2_000; scan++) {
+                List<Film> popular = storage.findPopular(films);
+                Set<Long> ids = new HashSet<>();
+                popular.forEach(film -> ids.add(film.getId()));
+                assertEquals(films, popular.size(), "ни один фильм не должен пропасть из рейтинга");
+                assertEquals(films, ids.size(), "фильм не должен попасть в рейтинг дважды");
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    void registerMetrics_shouldReportOnlyRegisteredInstance() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FilmStorage registered = new FilmStorage();
+        registered.registerMetrics(registry);
+        FilmStorage temporary = new FilmStorage();
+
+        registered.save(createFilm("registered"));
+        temporary.save(createFilm("first"));
+        temporary.save(createFilm("second"));
+
+        assertEquals(1, registry.get("filmorate.storage.size").tag("storage", "FilmStorage").gauge().value());
+        assertEquals(1, registry.get("filmorate.storage.operation").tag("operation", "save").timer().count());
+        assertEquals(3, registry.get("filmorate.storage.index.size").gauges().size());
+    }
+
+    @Test
+    void update_duringCreateCallback_shouldRunAfterIt() throws Exception {
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch created = new CountDownLatch(1);
+        AtomicReference<Long> createdId = new AtomicReference<>();
+        FilmStorage films = new FilmStorage() {
+            @Override
+            protected void afterWrite(Film previous, Film current) {
+                if (previous == null) {
+                    createdId.set(current.getId());
+                    created.countDown();
+                    try {
+                        // окно, в которое параллельное изменение успело бы обогнать создание
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                calls.add(previous == null ? "create" : "update");
+                super.afterWrite(previous, current);
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Film> save = executor.submit(() -> films.save(createFilm("Солярис")));
+            assertTrue(created.await(10, TimeUnit.SECONDS));
+            Film renamed = createFilm("Сталкер");
+            renamed.setId(createdId.get());
+            films.update(renamed);
+            save.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of("create", "update"), calls);
+        assertEquals(0, films.search("солярис", 10).size());
+        assertEquals(1, films.search("сталкер", 10).size());
+    }
+
+    /**
+     * Хранилище, у которого первая запись после {@link #failNext} падает в {@code afterWrite}.
+     */
+    private static class FailingFilmStorage extends FilmStorage {
+        private final AtomicBoolean failNext = new AtomicBoolean();
+
+        @Override
+        protected void afterWrite(Film previous, Film current) {
+            if (failNext.compareAndSet(true, false)) {
+                throw new IllegalStateException("injected failure");
+            }
+            super.afterWrite(previous, current);
+        }
+    }
+
+    @Test
+    void save_whenWriteFails_shouldReleaseUniqueName() {
+        FailingFilmStorage storage = new FailingFilmStorage();
+        storage.failNext.set(true);
+
+        assertThrows(IllegalStateException.class, () -> storage.save(createFilm("Unlucky")));
+
+        Film saved = storage.save(createFilm("Unlucky"));
+        assertEquals(saved.getId(), storage.findById(saved.getId()).getId());
+        assertEquals(1, storage.findAll().size());
+    }
+
+    @Test
+    void update_whenWriteFails_shouldReleaseNewNameAndKeepOld() {
+        FailingFilmStorage storage = new FailingFilmStorage();
+        Film film = storage.save(createFilm("Original"));
+        Film renamed = createFilm("Renamed");
+        renamed.setId(film.getId());
+        storage.failNext.set(true);
+
+        assertThrows(IllegalStateException.class, () -> storage.update(renamed));
+
+        assertThrows(DuplicatedDataException.class, () -> storage.save(createFilm("Original")));
+        assertEquals("Renamed", storage.save(createFilm("Renamed")).getName());
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class RecommendationIndexTest {
+    private final RecommendationIndex index = new RecommendationIndex(1024, 0, 2);
+
+    @AfterEach
+    void tearDown() {
+        index.close();
+    }
+
+    @Test
+    void likesBeyondCap_shouldNotCountTowardsOverlap() {
+        // фильм 1 лайкают трое, в пересечениях по нему учтены только первые двое
+        index.onLikeChanged(1, 10, true);
+        index.onLikeChanged(1, 20, true);
+        index.onLikeChanged(1, 30, true);
+        index.onLikeChanged(2, 20, true);
+        index.onLikeChanged(3, 30, true);
+        index.awaitApplied();
+
+        assertArrayEquals(new long[]{2}, index.recommend(10));
+        assertArrayEquals(new long[0], index.recommend(30));
+
+        // снятый лайк освобождает место в учёте для следующих лайков
+        index.onLikeChanged(1, 20, false);
+        index.onLikeChanged(1, 40, true);
+        index.onLikeChanged(4, 40, true);
+        index.awaitApplied();
+
+        assertArrayEquals(new long[]{4}, index.recommend(10));
+    }
+
+    @Test
+    void recommend_shouldReturnSortedFilmsAfterLikesAndUnlikes() {
+        RecommendationIndex wide = new RecommendationIndex(1024, 0);
+        try {
+            wide.onLikeChanged(1, 10, true);
+            wide.onLikeChanged(1, 20, true);
+            // лайки в обратном порядке, часть из них снимается сразу после постановки
+            for (long filmId = 50; filmId >= 2; filmId--) {
+                wide.onLikeChanged(filmId, 20, true);
+                if (filmId % 5 == 0) {
+                    wide.onLikeChanged(filmId, 20, false);
+                }
+            }
+            wide.onLikeChanged(3, 10, true);
+            wide.awaitApplied();
+
+            long[] expected = LongStream.rangeClosed(2, 50)
+                    .filter(filmId -> filmId != 3 && filmId % 5 != 0)
+                    .toArray();
+            assertArrayEquals(expected, wide.recommend(10));
+        } finally {
+            wide.close();
+        }
+    }
+
+    @Test
+    void recommend_afterClosestOverlapShrinks_shouldFallBackToNextClosestUsers() {
+        index.onLikeChanged(1, 10, true);
+        index.onLikeChanged(2, 10, true);
+        index.onLikeChanged(1, 20, true);
+        index.onLikeChanged(2, 20, true);
+        index.onLikeChanged(5, 20, true);
+        index.onLikeChanged(3, 30, true);
+        index.onLikeChanged(3, 10, true);
+        index.onLikeChanged(6, 30, true);
+        index.awaitApplied();
+
+        assertArrayEquals(new long[]{5}, index.recommend(10));
+
+        // пересечение с 20 сравнялось с пересечением с 30: ближайших двое
+        index.onLikeChanged(2, 20, false);
+        index.awaitApplied();
+        assertArrayEquals(new long[]{5, 6}, index.recommend(10));
+
+        // у 20 не осталось общих фильмов с 10
+        index.onLikeChanged(1, 20, false);
+        index.awaitApplied();
+        assertArrayEquals(new long[]{6}, index.recommend(10));
+        assertArrayEquals(new long[0], index.recommend(20));
+    }
+}
@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private FilmStorage openStorage(long snapshotInterval) {
+        FilmStorage storage = new FilmStorage();
+        storage.attachJournal(new StorageJournal<>(dir, Film.class, snapshotInterval));
+        return storage;
+    }
+
+    private void fillAndClose(long snapshotInterval) {
+        FilmStorage storage = openStorage(snapshotInterval);
+        for (int i = 1; i <= 10; i++) {
+            storage.save(createFilm("Film " + i));
+        }
+        Film renamed = createFilm("Renamed");
+        renamed.setId(3L);
+        storage.update(renamed);
+        storage.closeJournal();
+    }
+
+    private void assertRestored(FilmStorage restored) {
+        assertEquals(10, restored.findAll().size());
+        assertEquals("Renamed", restored.findById(3L).getName());
+        assertEquals(3L, restored.search("renamed", 10).get(0).getId());
+        assertEquals(0, restored.search("film 3", 10).size());
+        assertEquals(10, restored.findByRanges(null, null, 100, 100, 0, Integer.MAX_VALUE).size());
+        assertThrows(DuplicatedDataException.class, () -> restored.save(createFilm("Renamed")));
+        assertEquals(11L, restored.save(createFilm("Film 3")).getId());
+    }
+
+    @Test
+    void attachJournal_afterRestart_shouldRestoreFromWal() {
+        fillAndClose(0);
+
+        assertRestored(openStorage(0));
+    }
+
+    @Test
+    void attachJournal_afterRestart_shouldRestoreFromSnapshotAndWalTail() {
+        fillAndClose(4);
+
+        assertRestored(openStorage(4));
+    }
+
+    @Test
+    void attachJournal_withParallelLoad_shouldRestoreEverySegment() {
+        FilmStorage storage = new FilmStorage();
+        storage.attachJournal(new StorageJournal<>(dir, Film.class, 1_000, 4, 64));
+        for (int i = 1; i <= 1_000; i++) {
+            storage.save(createFilm("Film " + i));
+        }
+        storage.closeJournal();
+
+        FilmStorage restored = new FilmStorage();
+        restored.attachJournal(new StorageJournal<>(dir, Film.class, 1_000, 4, 64));
+        assertEquals(1_000, restored.findAll().size());
+        assertEquals("Film 500", restored.findById(500L).getName());
+        assertEquals(500L, restored.search("film 500", 10).get(0).getId());
+        assertEquals(1_000, restored.search("film", 1_000).size());
+        assertEquals(1_001L, restored.save(createFilm("Film 0")).getId());
+    }
+
+    @Test
+    void attachJournal_withTornTail_shouldIgnoreBrokenRecord() throws IOException {
+        fillAndClose(0);
+        Files.write(dir.resolve(StorageJournal.WAL_FILE), new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        assertRestored(openStorage(0));
+    }
+
+    @Test
+    void attachLikesJournal_afterRestart_shouldRestoreLikesAndRanking() {
+        FilmStorage storage = openStorage(0);
+        storage.attachLikesJournal(new StorageJournal<>(dir.resolve("likes"), Link.class, 3));
+        for (int i = 1; i <= 3; i++) {
+            storage.save(createFilm("Film " + i));
+        }
+        storage.addLike(2, 10);
+        storage.addLike(2, 11);
+        storage.addLike(3, 10);
+        storage.addLike(1, 12);
+        storage.removeLike(1, 12);
+        storage.closeJournal();
+
+        FilmStorage restored = openStorage(0);
+        restored.attachLikesJournal(new StorageJournal<>(dir.resolve("likes"), Link.class, 3));
+        assertArrayEquals(new long[]{10, 11}, restored.likeIds(2));
+        assertArrayEquals(new long[0], restored.likeIds(1));
+        assertEquals(List.of(2L, 3L, 1L), restored.findPopular(3).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void attachFriendsJournal_afterRestart_shouldRestoreBothSides() {
+        UserStorage storage = new UserStorage();
+        storage.attachFriendsJournal(new StorageJournal<>(dir.resolve("friends"), Link.class, 3));
+        storage.addFriend(1, 2);
+        storage.addFriend(1, 3);
+        storage.addFriend(2, 3);
+        storage.removeFriend(1, 2);
+        storage.closeJournal();
+
+        UserStorage restored = new UserStorage();
+        restored.attachFriendsJournal(new StorageJournal<>(dir.resolve("friends"), Link.class, 3));
+        assertArrayEquals(new long[]{3}, restored.friendIds(1));
+        assertArrayEquals(new long[]{1, 2}, restored.friendIds(3));
+        assertArrayEquals(new long[]{3}, restored.friendIds(2));
+    }
+
+    @Test
+    void append_afterFailedRecord_shouldFailItAndKeepWriting() throws Exception {
+        StorageJournal<Film> journal = new StorageJournal<>(dir, Film.class, 0);
+        journal.replay(film -> { });
+        journal.start(List::of);
+
+        CompletableFuture<Void> broken = journal.appendEncoded(null);
+
+        assertThrows(ExecutionException.class, () -> broken.get(5, TimeUnit.SECONDS));
+        journal.append(createFilm("Film 1")).get(5, TimeUnit.SECONDS);
+        journal.close();
+    }
+
+    @Test
+    void append_duringSnapshot_shouldNotWaitForIt() throws Exception {
+        StorageJournal<Film> journal = new StorageJournal<>(dir, Film.class, 1);
+        journal.replay(film -> { });
+        CountDownLatch snapshotStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        journal.start(() -> {
+            snapshotStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(createFilm("Film 1"));
+        });
+
+        journal.append(createFilm("Film 1")).get(5, TimeUnit.SECONDS);
+        assertTrue(snapshotStarted.await(5, TimeUnit.SECONDS));
+        journal.append(createFilm("Film 2")).get(5, TimeUnit.SECONDS);
+        release.countDown();
+        journal.close();
+
+        List<String> restored = new ArrayList<>();
+        StorageJournal<Film> reopened = new StorageJournal<>(dir, Film.class, 1);
+        reopened.replay(film -> restored.add(film.getName()));
+        assertEquals(List.of("Film 1", "Film 2"), restored);
+        assertTrue(Files.notExists(dir.resolve(StorageJournal.WAL_OLD_FILE)));
+    }
+}
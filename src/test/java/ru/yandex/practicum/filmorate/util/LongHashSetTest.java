@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void addAndRemove_shouldBehaveLikeHashSet() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextInt(2_000) - 100;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        for (long value = -100; value < 1_900; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+
+        long[] actual = set.toArray();
+        Arrays.sort(actual);
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(), actual);
+    }
+
+    @Test
+    void add_zero_shouldBeSupported() {
+        LongHashSet set = new LongHashSet();
+
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertTrue(set.remove(0));
+        assertTrue(set.isEmpty());
+    }
+}
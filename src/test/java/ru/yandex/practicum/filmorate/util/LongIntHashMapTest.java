@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongIntHashMapTest {
+
+    @Test
+    void add_shouldBehaveLikeHashMapOfCounters() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) - 100;
+            int delta = random.nextBoolean() ? 1 : -1;
+            Integer updated = expected.merge(key, delta, Integer::sum);
+            if (updated == 0) {
+                expected.remove(key);
+            }
+            assertEquals(updated, map.add(key, delta));
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = -100; key < 1_900; key++) {
+            assertEquals(expected.getOrDefault(key, 0), map.get(key));
+        }
+
+        Map<Long, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void add_zeroKey_shouldBeSupported() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        assertEquals(2, map.add(0, 2));
+        assertEquals(2, map.get(0));
+        assertEquals(1, map.size());
+        assertEquals(0, map.add(0, -2));
+        assertTrue(map.isEmpty());
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SortedLongArraysTest {
+
+    @Test
+    void insertAndRemove_shouldKeepArraySorted() {
+        long[] array = SortedLongArrays.EMPTY;
+        array = SortedLongArrays.insert(array, 5);
+        array = SortedLongArrays.insert(array, 1);
+        array = SortedLongArrays.insert(array, 3);
+
+        assertSame(array, SortedLongArrays.insert(array, 3));
+        assertArrayEquals(new long[]{1, 3, 5}, array);
+        assertArrayEquals(new long[]{1, 5}, SortedLongArrays.remove(array, 3));
+        assertSame(array, SortedLongArrays.remove(array, 4));
+    }
+
+    @Test
+    void intersect_shouldUseMergeAndBinarySearchConsistently() {
+        long[] even = LongStream.range(0, 10_000).map(i -> i * 2).toArray();
+        long[] triples = LongStream.range(0, 5_000).map(i -> i * 3).toArray();
+        long[] expected = LongStream.range(0, 10_000).map(i -> i * 6).filter(i -> i < 15_000).toArray();
+
+        assertArrayEquals(expected, SortedLongArrays.intersect(even, triples));
+        assertArrayEquals(new long[]{6, 12}, SortedLongArrays.intersect(new long[]{1, 6, 12}, even));
+        assertArrayEquals(new long[0], SortedLongArrays.intersect(SortedLongArrays.EMPTY, even));
+    }
+}